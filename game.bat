@@ -67,7 +67,72 @@ IF "%1"=="build" (
     exit /b
 )
 
+REM Target "buildSimd": Compila o pacote opcional toolbox.simd (Java Vector API, JDK 16+)
+REM Para usá-lo, execute com: java --add-modules jdk.incubator.vector ... (sem o módulo o caminho escalar é usado)
+IF "%1"=="buildSimd" (
+    CALL %0 build %2
+    IF "%LOG_OPTION%"=="terminal" (
+        echo Compilando o pacote SIMD...
+        javac -d bin --add-modules jdk.incubator.vector -cp bin src/toolBox/simd/*.java
+        echo Compilação concluída.
+    ) ELSE (
+        echo Compilando o pacote SIMD... >> %LOG_FILE%
+        javac -d bin --add-modules jdk.incubator.vector -cp bin src/toolBox/simd/*.java >> %LOG_FILE% 2>&1
+        echo Compilação concluída. >> %LOG_FILE%
+    )
+    exit /b
+)
+
+REM Target "check": Compila e executa as verificações sem contexto OpenGL (pasta test)
+REM Cada verificação é uma classe com main que termina com erro (AssertionError) se algo não confere
+REM O TransformBatchCheck roda de novo com o módulo jdk.incubator.vector para conferir o caminho SIMD (se compilado com buildSimd)
+IF "%1"=="check" (
+    CALL %0 build %2
+    IF "%LOG_OPTION%"=="terminal" (
+        echo Compilando as verificações...
+        javac -d bin -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar test/toolBox/*.java test/renderEngine/*.java test/terrains/*.java test/entities/*.java
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.Std140WriterCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TripleBufferCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TransformBatchCheck
+        java --add-modules jdk.incubator.vector -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TransformBatchCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FrameUniformBufferCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FreeListAllocatorCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FrameClockCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.GLStateCacheCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.RenderQueueCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.MeshOptimizerCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.VertexQuantizerCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.OBJLoaderCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar entities.SceneSnapshotCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.GeomipmapIndicesCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.TerrainLodCheck
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.TerrainMeshCheck
+        echo Verificações concluídas.
+    ) ELSE (
+        echo Compilando as verificações... >> %LOG_FILE%
+        javac -d bin -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar test/toolBox/*.java test/renderEngine/*.java test/terrains/*.java test/entities/*.java >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.Std140WriterCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TripleBufferCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TransformBatchCheck >> %LOG_FILE% 2>&1
+        java --add-modules jdk.incubator.vector -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar toolbox.TransformBatchCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FrameUniformBufferCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FreeListAllocatorCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.FrameClockCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.GLStateCacheCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.RenderQueueCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.MeshOptimizerCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.VertexQuantizerCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar renderEngine.OBJLoaderCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar entities.SceneSnapshotCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.GeomipmapIndicesCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.TerrainLodCheck >> %LOG_FILE% 2>&1
+        java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.TerrainMeshCheck >> %LOG_FILE% 2>&1
+        echo Verificações concluídas. >> %LOG_FILE%
+    )
+    exit /b
+)
+
 REM Se nenhum argumento válido foi passado, mostra uma mensagem de ajuda
-echo Uso: %0 [justRun|clean|build|run] [terminal|log]
+echo Uso: %0 [justRun|clean|build|buildSimd|check|run] [terminal|log]
 echo Exemplo: %0 rb terminal
 exit /b
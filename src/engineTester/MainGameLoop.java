@@ -1,7 +1,5 @@
 package engineTester;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 import org.lwjgl.opengl.Display;
@@ -9,14 +7,20 @@ import org.lwjgl.util.vector.Vector3f;
 
 import entities.Camera;
 import entities.Entity;
+import entities.EntityOctree;
+import entities.EntityStore;
 import entities.Light;
+import entities.SceneSnapshot;
 import models.RawModel;
 import models.TexturedModel;
 import renderEngine.DisplayManager;
 import renderEngine.Loader;
 import renderEngine.MasterRenderer;
 import renderEngine.OBJLoader;
+import renderEngine.SimulationThread;
+import terrains.HeightGenerator;
 import terrains.Terrain;
+import terrains.TerrainManager;
 import textures.ModelTexture;
 
 public class MainGameLoop {
@@ -25,45 +29,74 @@ public class MainGameLoop {
 
 		DisplayManager.createDisplay();
 		Loader loader = new Loader();
+		// Modelos estáticos (árvores e terrenos) compartilham os mesmos buffers e o mesmo VAO
+		loader.useGeometryArena(1 << 18, 1 << 20);
 		
 		
 		RawModel model = OBJLoader.loadObjModel("tree", loader);
 		
 		TexturedModel staticModel = new TexturedModel(model,new ModelTexture(loader.loadTexture("tree")));
 		
-		List<Entity> entities = new ArrayList<Entity>();
+		// A simulação e a renderização têm cada uma a sua cópia da cena: a simulação altera a sua e publica snapshots,
+		// a renderização aplica o snapshot (interpolado) na sua antes de desenhar
+		EntityStore simulationStore = new EntityStore();
+		EntityStore renderStore = new EntityStore();
+		// Índice espacial das entidades de renderização: só as que tocam o frustum da câmera são enviadas ao renderizador
+		EntityOctree entities = new EntityOctree(new Vector3f(0, 0, 0), 2048, 8);
+		MasterRenderer renderer = new MasterRenderer();
+
+		// Relevo procedural sem fim: o TerrainManager mantém os terrenos em volta da câmera, gerados por threads
+		// próprias e enviados para a GPU aos poucos a cada quadro. Os primeiros são carregados já, para as árvores.
+		HeightGenerator heightGenerator = new HeightGenerator(42, 40, 24);
+		TerrainManager terrainManager = new TerrainManager(loader, new ModelTexture(loader.loadTexture("grass")),
+				heightGenerator, 2, 2);
+		final Camera camera = new Camera();
+		Camera renderCamera = new Camera();
+		terrainManager.preload(renderCamera.getPosition(), renderer.getJobSystem());
+
 		Random random = new Random();
 		for(int i=0;i<50;i++){
-			entities.add(new Entity(staticModel, new Vector3f(random.nextFloat()*800 - 400,0,random.nextFloat() * -600),0,0,0,3));
+			float x = random.nextFloat()*800 - 400;
+			float z = random.nextFloat() * -600;
+			// Apoia a árvore no chão do terreno em que ela cair
+			Vector3f position = new Vector3f(x, terrainManager.getHeightOfTerrain(x, z), z);
+			new Entity(simulationStore, staticModel, position,0,0,0,3);
+			entities.insert(new Entity(renderStore, staticModel, position,0,0,0,3));
 		}
 		
 		Light light = new Light(new Vector3f(20000,20000,2000),new Vector3f(1,1,1));
-		
-		Terrain terrain = new Terrain(1,1,loader,new ModelTexture(loader.loadTexture("grass")));
-		Terrain terrain2 = new Terrain(0,1,loader,new ModelTexture(loader.loadTexture("grass")));
+		Light renderLight = new Light(new Vector3f(light.getPosition()),new Vector3f(light.getColour()));
 
-        System.out.println("1 - X: "+terrain.getX());
-        System.out.println("1 - Z: "+terrain.getZ());
-        System.out.println("2 - X: "+terrain2.getX());
-        System.out.println("2 - Z: "+terrain2.getZ());
-		
-		Camera camera = new Camera();
-        
-		MasterRenderer renderer = new MasterRenderer();
+		// Lógica do jogo em passos fixos de 1/60 s, em uma thread separada da renderização
+		SimulationThread simulation = new SimulationThread(simulationStore, camera, light, 60, new SimulationThread.Step() {
+			@Override
+			public void update(float stepSeconds) {
+				camera.move(stepSeconds);
+			}
+		});
+		simulation.start();
 		
 		while(!Display.isCloseRequested()){
             // System.out.println("Cam - Pos: "+camera.getPosition());
-			camera.move();
+			SceneSnapshot snapshot = simulation.acquireSnapshot();
+			if(snapshot != null){
+				float alpha = simulation.getAlpha(snapshot, System.nanoTime());
+				snapshot.applyTo(renderStore, alpha);
+				snapshot.applyTo(renderCamera, alpha);
+				snapshot.applyTo(renderLight);
+			}
 			
-			renderer.processTerrain(terrain);
-			renderer.processTerrain(terrain2);
-			for(Entity entity:entities){
-				renderer.processEntity(entity);
+			terrainManager.update(renderCamera.getPosition());
+			for (Terrain terrain : terrainManager.getTerrains()) {
+				renderer.processTerrain(terrain);
 			}
-			renderer.render(light, camera);
+			renderer.processVisibleEntities(entities, renderCamera);
+			renderer.render(renderLight, renderCamera);
 			DisplayManager.updateDisplay();
 		}
 
+		simulation.requestStop();
+		terrainManager.cleanUp();
 		renderer.cleanUp();
 		loader.cleanUp();
 		DisplayManager.closeDisplay();
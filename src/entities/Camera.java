@@ -11,36 +11,38 @@ public class Camera {
 	private float pitch; // Angulação em torno do eixo x (inclinção da câmera para cima ou para baixo)
 	private float yaw;   // Angulação em torno do eixo y (rotação da câmera para a esquerda ou para a direita)
 	private float roll;  // Angulação em torno do eixo z (inclinação lateral da câmera)
-	private float speedCam = 1f;
+	private float speedCam = 60f; // Velocidade da câmera em unidades por segundo
 
 	// Construtor padrão da classe Camera
 	public Camera(){}
 
-	// Método responsável por movimentar a câmera com base nas teclas pressionadas
-	public void move(){
+	// Método responsável por movimentar a câmera com base nas teclas pressionadas.
+	// O deslocamento é proporcional ao tempo decorrido, então a velocidade não depende da taxa de quadros.
+	public void move(float deltaSeconds){
+		float distance = speedCam * deltaSeconds; // Distância percorrida neste intervalo
 		// Verifica se a tecla W está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_W)){
-			position.z -= speedCam; // Move a câmera para trás no eixo z (diminui a posição no eixo z)
+			position.z -= distance; // Move a câmera para trás no eixo z (diminui a posição no eixo z)
 		}
 		// Verifica se a tecla S está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_S)){
-			position.z += speedCam; // Move a câmera para frente no eixo z (aumenta a posição no eixo z)
+			position.z += distance; // Move a câmera para frente no eixo z (aumenta a posição no eixo z)
 		}
 		// Verifica se a tecla D está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_D)){
-			position.x += speedCam; // Move a câmera para a direita no eixo x (aumenta a posição no eixo x)
+			position.x += distance; // Move a câmera para a direita no eixo x (aumenta a posição no eixo x)
 		}
 		// Verifica se a tecla A está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_A)){
-			position.x -= speedCam; // Move a câmera para a esquerda no eixo x (diminui a posição no eixo x)
+			position.x -= distance; // Move a câmera para a esquerda no eixo x (diminui a posição no eixo x)
 		}
 		// Verifica se a tecla E está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_E)){
-			position.y += speedCam; // Move a câmera para cima no eixo y (aumenta a posição no eixo y)
+			position.y += distance; // Move a câmera para cima no eixo y (aumenta a posição no eixo y)
 		}
 		// Verifica se a tecla A está pressionada
 		if(Keyboard.isKeyDown(Keyboard.KEY_Q)){
-			position.y -= speedCam; // Move a câmera para baixo no eixo y (diminui a posição no eixo y)
+			position.y -= distance; // Move a câmera para baixo no eixo y (diminui a posição no eixo y)
 		}
 	}
 
@@ -64,6 +66,11 @@ public class Camera {
 		return roll;
 	}
 
+	// Método para setar a inclinação da câmera (pitch)
+	public void setPitch(float pitch) {
+		this.pitch = pitch;
+	}
+
 	// Método para setar a rotação da câmera (yaw)
 	public void setYaw(float yaw) {
 		this.yaw = yaw;
@@ -1,41 +1,164 @@
 // Importando classes necessárias para o funcionamento da entidade
 package entities;
 
+import java.nio.FloatBuffer;
+
+import models.RawModel;
 import models.TexturedModel;
 
+import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 
-// Definindo a classe da entidade
+// Definindo a classe da entidade.
+// A transformação (posição, rotação, escala e matriz em cache) fica em um EntityStore, em arrays contíguos;
+// a entidade guarda apenas o modelo e o seu índice nesse armazenamento.
 public class Entity {
 
     // Atributos da entidade
     private TexturedModel model; // Modelo texturizado da entidade
-    private Vector3f position; // Posição da entidade no espaço 3D (coordenadas x, y, z)
-    private float rotX, rotY, rotZ; // Rotação da entidade em torno dos eixos x, y, z
-    private float scale; // Escala da entidade
+    EntityStore store; // Armazenamento que guarda a transformação da entidade (null depois de removida)
+    int index; // Posição da entidade nos arrays do armazenamento
+
+    // Cópia devolvida por getTransformationMatrix(), preenchida a partir do armazenamento
+    private final Matrix4f transformationMatrix = new Matrix4f();
 
-    // Construtor da entidade que recebe todos os parâmetros para inicializar seus atributos
+    // Índice espacial em que a entidade está registrada (null se não estiver), o nó que a contém
+    // e a posição da entidade na lista do nó
+    EntityOctree octree;
+    OctreeNode octreeNode;
+    int octreeSlot;
+
+    // Construtor da entidade que recebe todos os parâmetros para inicializar seus atributos (no armazenamento padrão)
     public Entity(TexturedModel model, Vector3f position, float rotX, float rotY, float rotZ, float scale) {
+        this(EntityStore.getDefault(), model, position, rotX, rotY, rotZ, scale);
+    }
+
+    // Cria a entidade dentro do armazenamento informado
+    public Entity(EntityStore store, TexturedModel model, Vector3f position, float rotX, float rotY, float rotZ, float scale) {
         this.model = model; // Define o modelo da entidade
-        this.position = position; // Define a posição inicial da entidade
-        this.rotX = rotX; // Define a rotação inicial em torno do eixo x
-        this.rotY = rotY; // Define a rotação inicial em torno do eixo y
-        this.rotZ = rotZ; // Define a rotação inicial em torno do eixo z
-        this.scale = scale; // Define a escala inicial da entidade
+        this.store = store;
+        // Define a posição, a rotação em torno dos eixos x, y, z e a escala iniciais
+        this.index = store.add(this, position.x, position.y, position.z, rotX, rotY, rotZ, scale);
     }
 
     // Método para incrementar a posição da entidade em um deslocamento específico
     public void increasePosition(float dx, float dy, float dz) {
-        this.position.x += dx; // Incrementa a coordenada x da posição da entidade
-        this.position.y += dy; // Incrementa a coordenada y da posição da entidade
-        this.position.z += dz; // Incrementa a coordenada z da posição da entidade
+        float[] positions = store.getPositions();
+        int p = index * EntityStore.POSITION_STRIDE;
+        positions[p] += dx; // Incrementa a coordenada x da posição da entidade
+        positions[p + 1] += dy; // Incrementa a coordenada y da posição da entidade
+        positions[p + 2] += dz; // Incrementa a coordenada z da posição da entidade
+        markTransformDirty();
     }
 
     // Método para incrementar a rotação da entidade em valores específicos
     public void increaseRotation(float dx, float dy, float dz) {
-        this.rotX += dx; // Incrementa a rotação em torno do eixo x
-        this.rotY += dy; // Incrementa a rotação em torno do eixo y
-        this.rotZ += dz; // Incrementa a rotação em torno do eixo z
+        float[] rotations = store.getRotations();
+        int r = index * EntityStore.ROTATION_STRIDE;
+        rotations[r] += dx; // Incrementa a rotação em torno do eixo x
+        rotations[r + 1] += dy; // Incrementa a rotação em torno do eixo y
+        rotations[r + 2] += dz; // Incrementa a rotação em torno do eixo z
+        markTransformDirty();
+    }
+
+    // Retorna a matriz de transformação da entidade, recalculada no armazenamento apenas se algo mudou.
+    // A matriz pertence à entidade: não deve ser alterada por quem a recebe.
+    public Matrix4f getTransformationMatrix() {
+        store.ensureMatrix(index);
+        float[] m = store.getMatrices();
+        int o = index * EntityStore.MATRIX_STRIDE;
+        Matrix4f dest = transformationMatrix;
+        dest.m00 = m[o];
+        dest.m01 = m[o + 1];
+        dest.m02 = m[o + 2];
+        dest.m03 = m[o + 3];
+        dest.m10 = m[o + 4];
+        dest.m11 = m[o + 5];
+        dest.m12 = m[o + 6];
+        dest.m13 = m[o + 7];
+        dest.m20 = m[o + 8];
+        dest.m21 = m[o + 9];
+        dest.m22 = m[o + 10];
+        dest.m23 = m[o + 11];
+        dest.m30 = m[o + 12];
+        dest.m31 = m[o + 13];
+        dest.m32 = m[o + 14];
+        dest.m33 = m[o + 15];
+        return dest;
+    }
+
+    // Copia a matriz de transformação, em ordem de colunas, direto do armazenamento para o buffer
+    public void storeTransformationMatrix(FloatBuffer buffer) {
+        store.storeMatrix(index, buffer);
+    }
+
+    // true se a matriz de transformação precisa ser recalculada antes do próximo uso
+    public boolean isTransformDirty() {
+        return store.isDirty(index);
+    }
+
+    // Versão da transformação: muda toda vez que posição, rotação ou escala são alteradas
+    public int getTransformVersion() {
+        return store.getVersion(index);
+    }
+
+    // Marca a transformação como alterada (invalida a matriz em cache e atualiza o índice espacial).
+    // Quem altera os arrays do EntityStore diretamente precisa chamar este método.
+    public void markTransformDirty() {
+        store.markDirty(index);
+        updateSpatialIndex();
+    }
+
+    // Armazenamento e índice da entidade
+    public EntityStore getStore() {
+        return store;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    // Calcula o centro da esfera envolvente da entidade no mundo (modelo posicionado e escalado) e o guarda em dest.
+    // Com rotação, a esfera é centrada na origem da entidade para conter o modelo em qualquer orientação.
+    public Vector3f getBoundingCenter(Vector3f dest) {
+        RawModel raw = model.getRawModel();
+        float[] positions = store.getPositions();
+        int p = index * EntityStore.POSITION_STRIDE;
+        if (!raw.hasBounds() || isRotated()) {
+            dest.set(positions[p], positions[p + 1], positions[p + 2]);
+        } else {
+            Vector3f center = raw.getBoundsCenter();
+            float scale = getScale();
+            dest.set(positions[p] + center.x * scale, positions[p + 1] + center.y * scale, positions[p + 2] + center.z * scale);
+        }
+        return dest;
+    }
+
+    // Raio da esfera envolvente da entidade no mundo (ver getBoundingCenter); 0 se o modelo não tiver volume envolvente
+    public float getBoundingRadius() {
+        RawModel raw = model.getRawModel();
+        if (!raw.hasBounds()) {
+            return 0;
+        }
+        float scale = Math.abs(getScale());
+        float radius = raw.getBoundsRadius() * scale;
+        if (isRotated()) {
+            radius += raw.getBoundsCenter().length() * scale;
+        }
+        return radius;
+    }
+
+    private boolean isRotated() {
+        float[] rotations = store.getRotations();
+        int r = index * EntityStore.ROTATION_STRIDE;
+        return rotations[r] != 0 || rotations[r + 1] != 0 || rotations[r + 2] != 0;
+    }
+
+    // Avisa o índice espacial (se houver) que o volume envolvente da entidade pode ter mudado
+    void updateSpatialIndex() {
+        if (octree != null) {
+            octree.update(this);
+        }
     }
 
     // Métodos de acesso aos atributos da entidade
@@ -46,45 +169,60 @@ public class Entity {
 
     public void setModel(TexturedModel model) {
         this.model = model; // Define um novo modelo texturizado para a entidade
+        updateSpatialIndex();
     }
 
+    // Retorna uma cópia da posição da entidade no espaço 3D, lida do armazenamento.
+    // Alterar o vetor devolvido não move a entidade: use setPosition() ou increasePosition().
     public Vector3f getPosition() {
-        return position; // Retorna a posição da entidade no espaço 3D
+        float[] positions = store.getPositions();
+        int p = index * EntityStore.POSITION_STRIDE;
+        return new Vector3f(positions[p], positions[p + 1], positions[p + 2]);
     }
 
     public void setPosition(Vector3f position) {
-        this.position = position; // Define uma nova posição para a entidade
+        float[] positions = store.getPositions();
+        int p = index * EntityStore.POSITION_STRIDE;
+        // Define uma nova posição para a entidade
+        positions[p] = position.x;
+        positions[p + 1] = position.y;
+        positions[p + 2] = position.z;
+        markTransformDirty();
     }
 
     public float getRotX() {
-        return rotX; // Retorna a rotação atual em torno do eixo x
+        return store.getRotations()[index * EntityStore.ROTATION_STRIDE]; // Retorna a rotação atual em torno do eixo x
     }
 
     public void setRotX(float rotX) {
-        this.rotX = rotX; // Define um novo valor de rotação em torno do eixo x
+        store.getRotations()[index * EntityStore.ROTATION_STRIDE] = rotX; // Define um novo valor de rotação em torno do eixo x
+        markTransformDirty();
     }
 
     public float getRotY() {
-        return rotY; // Retorna a rotação atual em torno do eixo y
+        return store.getRotations()[index * EntityStore.ROTATION_STRIDE + 1]; // Retorna a rotação atual em torno do eixo y
     }
 
     public void setRotY(float rotY) {
-        this.rotY = rotY; // Define um novo valor de rotação em torno do eixo y
+        store.getRotations()[index * EntityStore.ROTATION_STRIDE + 1] = rotY; // Define um novo valor de rotação em torno do eixo y
+        markTransformDirty();
     }
 
     public float getRotZ() {
-        return rotZ; // Retorna a rotação atual em torno do eixo z
+        return store.getRotations()[index * EntityStore.ROTATION_STRIDE + 2]; // Retorna a rotação atual em torno do eixo z
     }
 
     public void setRotZ(float rotZ) {
-        this.rotZ = rotZ; // Define um novo valor de rotação em torno do eixo z
+        store.getRotations()[index * EntityStore.ROTATION_STRIDE + 2] = rotZ; // Define um novo valor de rotação em torno do eixo z
+        markTransformDirty();
     }
 
     public float getScale() {
-        return scale; // Retorna a escala atual da entidade
+        return store.getScales()[index]; // Retorna a escala atual da entidade
     }
 
     public void setScale(float scale) {
-        this.scale = scale; // Define um novo valor de escala para a entidade
+        store.getScales()[index] = scale; // Define um novo valor de escala para a entidade
+        markTransformDirty();
     }
 }
@@ -0,0 +1,263 @@
+package entities;
+
+import java.util.List;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import toolbox.Frustum;
+
+/**
+    Índice espacial de entidades em uma octree "solta" (loose octree): cada nó aceita objetos que ultrapassem
+    sua célula em até metade da aresta, então o nível de uma entidade depende só do seu raio e a célula só
+    da posição do seu centro. Inserir, remover e mover uma entidade custa O(profundidade), sem reconstruir a árvore.
+    As entidades registradas avisam a octree sozinhas quando mudam de posição, rotação ou escala (Entity.markTransformDirty).
+    Entidades fora da região coberta ficam na raiz, que é sempre testada.
+ */
+public class EntityOctree {
+
+    // As células soltas têm o dobro da aresta da célula normal
+    private static final float LOOSENESS = 2;
+
+    private final OctreeNode root;
+    private final int maxDepth;
+    // Vetor reutilizado para calcular o centro das esferas envolventes sem alocar
+    private final Vector3f scratch = new Vector3f();
+    // Volumes reutilizados pelas consultas (a octree não deve ser consultada por duas threads ao mesmo tempo)
+    private final FrustumVolume frustumVolume = new FrustumVolume();
+    private final SphereVolume sphereVolume = new SphereVolume();
+    private final BoxVolume boxVolume = new BoxVolume();
+    private final RayVolume rayVolume = new RayVolume();
+
+    // center/halfSize: cubo do mundo coberto pela árvore; maxDepth: quantidade máxima de subdivisões
+    public EntityOctree(Vector3f center, float halfSize, int maxDepth) {
+        this.root = new OctreeNode(null, center.x, center.y, center.z, halfSize, 0);
+        this.maxDepth = maxDepth;
+    }
+
+    // Registra a entidade na octree (se ela estiver em outra octree, sai de lá antes)
+    public void insert(Entity entity) {
+        if (entity.octree == this) {
+            update(entity);
+            return;
+        }
+        if (entity.octree != null) {
+            entity.octree.remove(entity);
+        }
+        entity.octree = this;
+        place(entity, findNode(entity));
+    }
+
+    // Remove a entidade da octree
+    public void remove(Entity entity) {
+        if (entity.octree != this) {
+            return;
+        }
+        OctreeNode node = entity.octreeNode;
+        node.remove(entity);
+        node.addToCount(-1);
+        entity.octree = null;
+        entity.octreeNode = null;
+    }
+
+    // Move a entidade para o nó correto após uma mudança de posição, rotação ou escala
+    void update(Entity entity) {
+        OctreeNode target = findNode(entity);
+        OctreeNode current = entity.octreeNode;
+        if (target == current) {
+            return;
+        }
+        current.remove(entity);
+        current.addToCount(-1);
+        place(entity, target);
+    }
+
+    // Quantidade de entidades registradas
+    public int size() {
+        return root.subtreeCount;
+    }
+
+    // Adiciona a "result" as entidades cuja esfera envolvente está, ao menos em parte, dentro do frustum
+    public void queryFrustum(Frustum frustum, List<Entity> result) {
+        frustumVolume.frustum = frustum;
+        query(root, frustumVolume, result);
+        frustumVolume.frustum = null;
+    }
+
+    // Adiciona a "result" as entidades que tocam a esfera informada
+    public void querySphere(float centerX, float centerY, float centerZ, float radius, List<Entity> result) {
+        sphereVolume.centerX = centerX;
+        sphereVolume.centerY = centerY;
+        sphereVolume.centerZ = centerZ;
+        sphereVolume.radius = radius;
+        query(root, sphereVolume, result);
+    }
+
+    // Adiciona a "result" as entidades que tocam a caixa alinhada aos eixos informada
+    public void queryAABB(float boxMinX, float boxMinY, float boxMinZ,
+            float boxMaxX, float boxMaxY, float boxMaxZ, List<Entity> result) {
+        boxVolume.boxMinX = boxMinX;
+        boxVolume.boxMinY = boxMinY;
+        boxVolume.boxMinZ = boxMinZ;
+        boxVolume.boxMaxX = boxMaxX;
+        boxVolume.boxMaxY = boxMaxY;
+        boxVolume.boxMaxZ = boxMaxZ;
+        query(root, boxVolume, result);
+    }
+
+    // Adiciona a "result" as entidades atingidas pelo raio que parte de "origin" na direção "direction"
+    // (não precisa estar normalizada) até a distância maxDistance. Útil para seleção com o mouse (picking).
+    public void queryRay(Vector3f origin, Vector3f direction, float maxDistance, List<Entity> result) {
+        float length = direction.length();
+        if (length == 0) {
+            return;
+        }
+        rayVolume.ox = origin.x;
+        rayVolume.oy = origin.y;
+        rayVolume.oz = origin.z;
+        rayVolume.dx = direction.x / length;
+        rayVolume.dy = direction.y / length;
+        rayVolume.dz = direction.z / length;
+        rayVolume.maxDistance = maxDistance;
+        query(root, rayVolume, result);
+    }
+
+    // Percorre a árvore descartando ramos vazios ou cujas células soltas não tocam o volume consultado
+    private void query(OctreeNode node, Volume volume, List<Entity> result) {
+        for (int i = 0; i < node.entities.size(); i++) {
+            Entity entity = node.entities.get(i);
+            entity.getBoundingCenter(scratch);
+            if (volume.testSphere(scratch.x, scratch.y, scratch.z, entity.getBoundingRadius())) {
+                result.add(entity);
+            }
+        }
+        if (node.children == null) {
+            return;
+        }
+        for (OctreeNode child : node.children) {
+            if (child == null || child.subtreeCount == 0) {
+                continue;
+            }
+            float loose = child.halfSize * LOOSENESS;
+            if (volume.testBox(child.centerX - loose, child.centerY - loose, child.centerZ - loose,
+                    child.centerX + loose, child.centerY + loose, child.centerZ + loose)) {
+                query(child, volume, result);
+            }
+        }
+    }
+
+    // Desce a partir da raiz enquanto a esfera da entidade couber na célula solta do filho que contém seu centro
+    private OctreeNode findNode(Entity entity) {
+        entity.getBoundingCenter(scratch);
+        float radius = entity.getBoundingRadius();
+        float x = scratch.x;
+        float y = scratch.y;
+        float z = scratch.z;
+        // Fora da região coberta pela árvore: fica na raiz
+        if (Math.abs(x - root.centerX) > root.halfSize || Math.abs(y - root.centerY) > root.halfSize
+                || Math.abs(z - root.centerZ) > root.halfSize) {
+            return root;
+        }
+        OctreeNode node = root;
+        // Com células soltas de aresta dupla, a esfera cabe no filho se o raio não passar da meia aresta do filho
+        while (node.depth < maxDepth && radius <= node.halfSize / 2) {
+            node = node.childFor(x, y, z);
+        }
+        return node;
+    }
+
+    private void place(Entity entity, OctreeNode node) {
+        node.add(entity);
+        node.addToCount(1);
+        entity.octreeNode = node;
+    }
+
+    // Volume consultado: testa as células da árvore e as esferas das entidades
+    private interface Volume {
+        boolean testBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ);
+        boolean testSphere(float x, float y, float z, float radius);
+    }
+
+    private static class FrustumVolume implements Volume {
+        Frustum frustum;
+
+        public boolean testBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            return frustum.testAABB(minX, minY, minZ, maxX, maxY, maxZ);
+        }
+
+        public boolean testSphere(float x, float y, float z, float radius) {
+            return frustum.testSphere(x, y, z, radius);
+        }
+    }
+
+    private static class SphereVolume implements Volume {
+        float centerX, centerY, centerZ, radius;
+
+        public boolean testBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            // Distância ao quadrado do centro da esfera até o ponto mais próximo da caixa
+            float dx = Math.max(Math.max(minX - centerX, 0), centerX - maxX);
+            float dy = Math.max(Math.max(minY - centerY, 0), centerY - maxY);
+            float dz = Math.max(Math.max(minZ - centerZ, 0), centerZ - maxZ);
+            return dx * dx + dy * dy + dz * dz <= radius * radius;
+        }
+
+        public boolean testSphere(float x, float y, float z, float r) {
+            float dx = x - centerX;
+            float dy = y - centerY;
+            float dz = z - centerZ;
+            float sum = r + radius;
+            return dx * dx + dy * dy + dz * dz <= sum * sum;
+        }
+    }
+
+    private static class BoxVolume implements Volume {
+        float boxMinX, boxMinY, boxMinZ, boxMaxX, boxMaxY, boxMaxZ;
+
+        public boolean testBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            return minX <= boxMaxX && maxX >= boxMinX && minY <= boxMaxY && maxY >= boxMinY
+                    && minZ <= boxMaxZ && maxZ >= boxMinZ;
+        }
+
+        public boolean testSphere(float x, float y, float z, float r) {
+            float dx = Math.max(Math.max(boxMinX - x, 0), x - boxMaxX);
+            float dy = Math.max(Math.max(boxMinY - y, 0), y - boxMaxY);
+            float dz = Math.max(Math.max(boxMinZ - z, 0), z - boxMaxZ);
+            return dx * dx + dy * dy + dz * dz <= r * r;
+        }
+    }
+
+    private static class RayVolume implements Volume {
+        // Origem, direção normalizada e comprimento do raio
+        float ox, oy, oz, dx, dy, dz, maxDistance;
+        // Intervalo [tMin, tMax] do raio que ainda está dentro da caixa testada
+        private float tMin, tMax;
+
+        public boolean testBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+            // Teste das "placas" (slab test): intersecção dos intervalos do raio dentro da caixa em cada eixo
+            tMin = 0;
+            tMax = maxDistance;
+            return clipSlab(ox, dx, minX, maxX) && clipSlab(oy, dy, minY, maxY) && clipSlab(oz, dz, minZ, maxZ);
+        }
+
+        public boolean testSphere(float x, float y, float z, float r) {
+            // Ponto do segmento mais próximo do centro da esfera
+            float t = (x - ox) * dx + (y - oy) * dy + (z - oz) * dz;
+            t = Math.max(0, Math.min(maxDistance, t));
+            float px = ox + dx * t - x;
+            float py = oy + dy * t - y;
+            float pz = oz + dz * t - z;
+            return px * px + py * py + pz * pz <= r * r;
+        }
+
+        // Restringe [tMin, tMax] à faixa [min, max] de um eixo; false se o intervalo ficar vazio
+        private boolean clipSlab(float origin, float direction, float min, float max) {
+            if (direction == 0) {
+                return origin >= min && origin <= max;
+            }
+            float t1 = (min - origin) / direction;
+            float t2 = (max - origin) / direction;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+            return tMin <= tMax;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package entities;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import toolbox.Maths;
+import toolbox.TransformBatch;
+
+/**
+    Armazena as transformações das entidades em arrays de primitivos contíguos (estrutura de arrays):
+    posições, rotações, escalas e matrizes em cache ficam lado a lado na memória, indexadas pelo índice da entidade.
+    Cada Entity é só uma "alça" (handle) com o seu índice aqui dentro, então laços sobre todas as transformações
+    (recalcular matrizes, mover grupos de entidades) percorrem memória sequencial em vez de saltar entre objetos.
+    Os índices ficam sempre compactos em [0, size()): ao remover uma entidade, a última ocupa o seu lugar.
+ */
+public class EntityStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+    // Floats por entidade em cada array
+    public static final int POSITION_STRIDE = 3;
+    public static final int ROTATION_STRIDE = 3;
+    public static final int MATRIX_STRIDE = 16;
+
+    // Armazenamento usado pelas entidades criadas sem informar um EntityStore
+    private static final EntityStore DEFAULT = new EntityStore();
+
+    private Entity[] owners = new Entity[INITIAL_CAPACITY];
+    private float[] positions = new float[INITIAL_CAPACITY * POSITION_STRIDE]; // x, y, z
+    private float[] rotations = new float[INITIAL_CAPACITY * ROTATION_STRIDE]; // rotX, rotY, rotZ em graus
+    private float[] scales = new float[INITIAL_CAPACITY];
+    private float[] matrices = new float[INITIAL_CAPACITY * MATRIX_STRIDE]; // em ordem de colunas, como o GLSL espera
+    private boolean[] dirty = new boolean[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private int size;
+    // Quantidade de entidades com a matriz desatualizada (permite pular updateMatrices() quando nada mudou)
+    private int dirtyCount;
+
+    public static EntityStore getDefault() {
+        return DEFAULT;
+    }
+
+    // Quantidade de entidades armazenadas
+    public int size() {
+        return size;
+    }
+
+    // Entidade que ocupa o índice informado
+    public Entity getEntity(int index) {
+        return owners[index];
+    }
+
+    // Remove a entidade do armazenamento (e do índice espacial em que estiver); a última entidade passa a ocupar
+    // o índice liberado
+    public void remove(Entity entity) {
+        if (entity.store != this) {
+            return;
+        }
+        // A octree lê a transformação das entidades que guarda: sem armazenamento a entidade não pode ficar lá
+        if (entity.octree != null) {
+            entity.octree.remove(entity);
+        }
+        int index = entity.index;
+        int last = size - 1;
+        if (dirty[index]) {
+            dirtyCount--;
+        }
+        if (index != last) {
+            owners[index] = owners[last];
+            owners[index].index = index;
+            System.arraycopy(positions, last * POSITION_STRIDE, positions, index * POSITION_STRIDE, POSITION_STRIDE);
+            System.arraycopy(rotations, last * ROTATION_STRIDE, rotations, index * ROTATION_STRIDE, ROTATION_STRIDE);
+            System.arraycopy(matrices, last * MATRIX_STRIDE, matrices, index * MATRIX_STRIDE, MATRIX_STRIDE);
+            scales[index] = scales[last];
+            dirty[index] = dirty[last];
+            versions[index] = versions[last];
+        }
+        owners[last] = null;
+        dirty[last] = false;
+        size = last;
+        entity.store = null;
+        entity.index = -1;
+    }
+
+    // Recalcula, em um único laço sequencial, as matrizes de todas as entidades alteradas. Retorna quantas foram recalculadas.
+    public int updateMatrices() {
+        if (dirtyCount == 0) {
+            return 0;
+        }
+        // Com muitas entidades alteradas compensa remontar todas em lote (SIMD quando disponível) em vez de testar uma a uma
+        if (dirtyCount * 2 >= size) {
+            int rebuilt = dirtyCount;
+            TransformBatch.get().build(positions, rotations, scales, matrices, 0, size);
+            Arrays.fill(dirty, 0, size, false);
+            dirtyCount = 0;
+            return rebuilt;
+        }
+        int rebuilt = 0;
+        for (int i = 0; i < size; i++) {
+            if (dirty[i]) {
+                buildMatrix(i);
+                rebuilt++;
+            }
+        }
+        dirtyCount = 0;
+        return rebuilt;
+    }
+
+    // Desloca as entidades de índice [from, to) pelo mesmo vetor, em um único laço sobre as posições
+    public void translate(int from, int to, float dx, float dy, float dz) {
+        for (int i = from; i < to; i++) {
+            int p = i * POSITION_STRIDE;
+            positions[p] += dx;
+            positions[p + 1] += dy;
+            positions[p + 2] += dz;
+        }
+        for (int i = from; i < to; i++) {
+            markDirty(i);
+        }
+        for (int i = from; i < to; i++) {
+            owners[i].updateSpatialIndex();
+        }
+    }
+
+    // Copia a matriz da entidade (atualizada se necessário) para o buffer, em ordem de colunas
+    public void storeMatrix(int index, FloatBuffer buffer) {
+        ensureMatrix(index);
+        buffer.put(matrices, index * MATRIX_STRIDE, MATRIX_STRIDE);
+    }
+
+    // Arrays internos, para laços em lote (ex.: montagem das matrizes das instâncias).
+    // São substituídos quando o armazenamento cresce: não guarde as referências entre quadros.
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getRotations() {
+        return rotations;
+    }
+
+    public float[] getScales() {
+        return scales;
+    }
+
+    // Matrizes em cache; chame updateMatrices() antes de lê-las diretamente
+    public float[] getMatrices() {
+        return matrices;
+    }
+
+    int add(Entity owner, float x, float y, float z, float rotX, float rotY, float rotZ, float scale) {
+        if (size == owners.length) {
+            grow();
+        }
+        int index = size++;
+        owners[index] = owner;
+        int p = index * POSITION_STRIDE;
+        positions[p] = x;
+        positions[p + 1] = y;
+        positions[p + 2] = z;
+        int r = index * ROTATION_STRIDE;
+        rotations[r] = rotX;
+        rotations[r + 1] = rotY;
+        rotations[r + 2] = rotZ;
+        scales[index] = scale;
+        versions[index] = 0;
+        dirty[index] = true;
+        dirtyCount++;
+        return index;
+    }
+
+    void markDirty(int index) {
+        if (!dirty[index]) {
+            dirty[index] = true;
+            dirtyCount++;
+        }
+        versions[index]++;
+    }
+
+    boolean isDirty(int index) {
+        return dirty[index];
+    }
+
+    int getVersion(int index) {
+        return versions[index];
+    }
+
+    // Recalcula a matriz de uma única entidade, se estiver desatualizada
+    void ensureMatrix(int index) {
+        if (dirty[index]) {
+            buildMatrix(index);
+            dirtyCount--;
+        }
+    }
+
+    private void buildMatrix(int index) {
+        int p = index * POSITION_STRIDE;
+        int r = index * ROTATION_STRIDE;
+        Maths.storeTransformationMatrix(positions[p], positions[p + 1], positions[p + 2],
+                rotations[r], rotations[r + 1], rotations[r + 2], scales[index], matrices, index * MATRIX_STRIDE);
+        dirty[index] = false;
+    }
+
+    private void grow() {
+        int capacity = owners.length * 2;
+        owners = Arrays.copyOf(owners, capacity);
+        positions = Arrays.copyOf(positions, capacity * POSITION_STRIDE);
+        rotations = Arrays.copyOf(rotations, capacity * ROTATION_STRIDE);
+        scales = Arrays.copyOf(scales, capacity);
+        matrices = Arrays.copyOf(matrices, capacity * MATRIX_STRIDE);
+        dirty = Arrays.copyOf(dirty, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+}
@@ -0,0 +1,71 @@
+package entities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Nó do EntityOctree: um cubo (centro e meia aresta) com até 8 filhos criados sob demanda.
+class OctreeNode {
+
+    final float centerX;
+    final float centerY;
+    final float centerZ;
+    final float halfSize;
+    final int depth;
+    final OctreeNode parent;
+
+    // Filhos indexados pelos bits (x >= centro) | (y >= centro) << 1 | (z >= centro) << 2; null até serem usados
+    OctreeNode[] children;
+    // Entidades guardadas neste nó (cada uma sabe sua posição na lista em Entity.octreeSlot)
+    final List<Entity> entities = new ArrayList<Entity>();
+    // Total de entidades neste nó e em todos os seus descendentes (permite pular ramos vazios)
+    int subtreeCount;
+
+    OctreeNode(OctreeNode parent, float centerX, float centerY, float centerZ, float halfSize, int depth) {
+        this.parent = parent;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.halfSize = halfSize;
+        this.depth = depth;
+    }
+
+    // Retorna o filho que contém o ponto, criando-o se ainda não existir
+    OctreeNode childFor(float x, float y, float z) {
+        int index = (x >= centerX ? 1 : 0) | (y >= centerY ? 2 : 0) | (z >= centerZ ? 4 : 0);
+        if (children == null) {
+            children = new OctreeNode[8];
+        }
+        if (children[index] == null) {
+            float quarter = halfSize / 2;
+            children[index] = new OctreeNode(this,
+                    centerX + ((index & 1) != 0 ? quarter : -quarter),
+                    centerY + ((index & 2) != 0 ? quarter : -quarter),
+                    centerZ + ((index & 4) != 0 ? quarter : -quarter),
+                    quarter, depth + 1);
+        }
+        return children[index];
+    }
+
+    // Adiciona a entidade ao fim da lista e guarda sua posição
+    void add(Entity entity) {
+        entity.octreeSlot = entities.size();
+        entities.add(entity);
+    }
+
+    // Remove a entidade em O(1): a última da lista ocupa a posição que ficou livre
+    void remove(Entity entity) {
+        int last = entities.size() - 1;
+        Entity moved = entities.remove(last);
+        if (moved != entity) {
+            entities.set(entity.octreeSlot, moved);
+            moved.octreeSlot = entity.octreeSlot;
+        }
+    }
+
+    // Soma "delta" à contagem deste nó e de todos os seus ancestrais
+    void addToCount(int delta) {
+        for (OctreeNode node = this; node != null; node = node.parent) {
+            node.subtreeCount += delta;
+        }
+    }
+}
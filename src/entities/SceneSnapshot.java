@@ -0,0 +1,161 @@
+package entities;
+
+import java.util.Arrays;
+
+import models.TexturedModel;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+    Cópia do estado da cena (entidades, câmera e luz) produzida pela thread de simulação a cada passo e lida pela
+    thread de renderização. Guarda o passo anterior e o atual, para que a renderização possa interpolar entre os dois
+    sem depender do momento em que cada passo foi publicado. Os arrays seguem o formato do EntityStore
+    (3 floats de posição e de rotação, 1 de escala por entidade).
+    Depois de publicado (TripleBuffer), o snapshot não é alterado até voltar para a simulação.
+ */
+public class SceneSnapshot {
+
+    private static final int CAMERA_SIZE = 5; // x, y, z, pitch, yaw
+
+    private long tick;
+    private long timeNanos;
+    private int entityCount;
+    private TexturedModel[] models = new TexturedModel[0];
+    private float[] previousPositions = new float[0];
+    private float[] currentPositions = new float[0];
+    private float[] previousRotations = new float[0];
+    private float[] currentRotations = new float[0];
+    private float[] previousScales = new float[0];
+    private float[] currentScales = new float[0];
+    private final float[] previousCamera = new float[CAMERA_SIZE];
+    private final float[] currentCamera = new float[CAMERA_SIZE];
+    private final Vector3f lightPosition = new Vector3f();
+    private final Vector3f lightColour = new Vector3f();
+
+    // Simulação: grava o estado atual como novo passo; "last" é o snapshot do passo anterior (ou null no primeiro passo)
+    public void capture(SceneSnapshot last, EntityStore store, Camera camera, Light light, long tick, long timeNanos) {
+        this.tick = tick;
+        this.timeNanos = timeNanos;
+        int count = store.size();
+        ensureCapacity(count);
+        entityCount = count;
+        for (int i = 0; i < count; i++) {
+            models[i] = store.getEntity(i).getModel();
+        }
+        Arrays.fill(models, count, models.length, null);
+        System.arraycopy(store.getPositions(), 0, currentPositions, 0, count * EntityStore.POSITION_STRIDE);
+        System.arraycopy(store.getRotations(), 0, currentRotations, 0, count * EntityStore.ROTATION_STRIDE);
+        System.arraycopy(store.getScales(), 0, currentScales, 0, count);
+        Vector3f cameraPosition = camera.getPosition();
+        currentCamera[0] = cameraPosition.x;
+        currentCamera[1] = cameraPosition.y;
+        currentCamera[2] = cameraPosition.z;
+        currentCamera[3] = camera.getPitch();
+        currentCamera[4] = camera.getYaw();
+        lightPosition.set(light.getPosition());
+        lightColour.set(light.getColour());
+
+        // O passo anterior é o atual do último snapshot; entidades novas (ou sem passo anterior) não são interpoladas
+        int previousCount = last == null ? 0 : Math.min(count, last.entityCount);
+        if (previousCount > 0) {
+            System.arraycopy(last.currentPositions, 0, previousPositions, 0, previousCount * EntityStore.POSITION_STRIDE);
+            System.arraycopy(last.currentRotations, 0, previousRotations, 0, previousCount * EntityStore.ROTATION_STRIDE);
+            System.arraycopy(last.currentScales, 0, previousScales, 0, previousCount);
+        }
+        System.arraycopy(currentPositions, previousCount * EntityStore.POSITION_STRIDE, previousPositions,
+                previousCount * EntityStore.POSITION_STRIDE, (count - previousCount) * EntityStore.POSITION_STRIDE);
+        System.arraycopy(currentRotations, previousCount * EntityStore.ROTATION_STRIDE, previousRotations,
+                previousCount * EntityStore.ROTATION_STRIDE, (count - previousCount) * EntityStore.ROTATION_STRIDE);
+        System.arraycopy(currentScales, previousCount, previousScales, previousCount, count - previousCount);
+        System.arraycopy(last == null ? currentCamera : last.currentCamera, 0, previousCamera, 0, CAMERA_SIZE);
+    }
+
+    // Renderização: escreve no armazenamento de renderização as transformações interpoladas
+    // (alpha 0 = passo anterior, 1 = passo atual) das primeiras min(entityCount, store.size()) entidades.
+    // As entidades do armazenamento devem ter sido criadas na mesma ordem das da simulação; o modelo é copiado do snapshot.
+    // Só as entidades cuja transformação mudou são marcadas (markTransformDirty): as paradas mantêm a matriz em cache
+    // e não são reinseridas no EntityOctree.
+    public void applyTo(EntityStore store, float alpha) {
+        int count = Math.min(entityCount, store.size());
+        float[] positions = store.getPositions();
+        float[] rotations = store.getRotations();
+        float[] scales = store.getScales();
+        for (int i = 0; i < count; i++) {
+            Entity entity = store.getEntity(i);
+            if (entity.getModel() != models[i]) {
+                entity.setModel(models[i]);
+            }
+            boolean changed = lerpChanged(previousPositions, currentPositions, positions,
+                    i * EntityStore.POSITION_STRIDE, EntityStore.POSITION_STRIDE, alpha);
+            changed |= lerpChanged(previousRotations, currentRotations, rotations,
+                    i * EntityStore.ROTATION_STRIDE, EntityStore.ROTATION_STRIDE, alpha);
+            changed |= lerpChanged(previousScales, currentScales, scales, i, 1, alpha);
+            if (changed) {
+                entity.markTransformDirty();
+            }
+        }
+    }
+
+    // Renderização: posiciona a câmera de renderização no ponto interpolado
+    public void applyTo(Camera camera, float alpha) {
+        camera.getPosition().set(lerp(previousCamera[0], currentCamera[0], alpha),
+                lerp(previousCamera[1], currentCamera[1], alpha), lerp(previousCamera[2], currentCamera[2], alpha));
+        camera.setPitch(lerp(previousCamera[3], currentCamera[3], alpha));
+        camera.setYaw(lerp(previousCamera[4], currentCamera[4], alpha));
+    }
+
+    // Renderização: copia a luz do passo atual
+    public void applyTo(Light light) {
+        light.getPosition().set(lightPosition);
+        light.getColour().set(lightColour);
+    }
+
+    // Número do passo de simulação que gerou o snapshot
+    public long getTick() {
+        return tick;
+    }
+
+    // Instante (System.nanoTime) em que o passo foi capturado
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    public TexturedModel getModel(int index) {
+        return models[index];
+    }
+
+    private void ensureCapacity(int count) {
+        if (models.length >= count) {
+            return;
+        }
+        int capacity = Math.max(count, models.length * 2);
+        models = Arrays.copyOf(models, capacity);
+        previousPositions = Arrays.copyOf(previousPositions, capacity * EntityStore.POSITION_STRIDE);
+        currentPositions = Arrays.copyOf(currentPositions, capacity * EntityStore.POSITION_STRIDE);
+        previousRotations = Arrays.copyOf(previousRotations, capacity * EntityStore.ROTATION_STRIDE);
+        currentRotations = Arrays.copyOf(currentRotations, capacity * EntityStore.ROTATION_STRIDE);
+        previousScales = Arrays.copyOf(previousScales, capacity);
+        currentScales = Arrays.copyOf(currentScales, capacity);
+    }
+
+    // Interpola [offset, offset + length) em dest e retorna se algum valor de dest mudou
+    private static boolean lerpChanged(float[] from, float[] to, float[] dest, int offset, int length, float alpha) {
+        boolean changed = false;
+        for (int i = offset; i < offset + length; i++) {
+            float value = from[i] + (to[i] - from[i]) * alpha;
+            if (dest[i] != value) {
+                dest[i] = value;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+}
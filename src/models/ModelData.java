@@ -0,0 +1,34 @@
+package models;
+
+// Dados de um modelo 3D já processados em arrays, prontos para serem enviados ao Loader (ainda sem VAO na GPU).
+public class ModelData {
+
+	private float[] vertices; // Posições dos vértices (x, y, z)
+	private float[] textureCoords; // Coordenadas de textura dos vértices (u, v)
+	private float[] normals; // Vetores normais dos vértices (x, y, z)
+	private int[] indices; // Índices que formam os triângulos
+
+	public ModelData(float[] vertices, float[] textureCoords, float[] normals, int[] indices) {
+		this.vertices = vertices;
+		this.textureCoords = textureCoords;
+		this.normals = normals;
+		this.indices = indices;
+	}
+
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	public float[] getTextureCoords() {
+		return textureCoords;
+	}
+
+	public float[] getNormals() {
+		return normals;
+	}
+
+	public int[] getIndices() {
+		return indices;
+	}
+
+}
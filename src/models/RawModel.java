@@ -1,18 +1,60 @@
 package models;
 
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.util.vector.Vector3f;
+
 // Declaração da classe RawModel.
 public class RawModel {
 
+	// Próximo identificador a ser atribuído (os modelos são criados na thread do OpenGL)
+	private static int nextId = 1;
+
+	// Identificador sequencial do modelo, usado nas chaves de ordenação da RenderQueue
+	private final int id = nextId++;
+
 	// Declaração de uma variável de instância vaoID, que armazena o ID do VAO (Vertex Array Object) que contém os dados do modelo.
 	private int vaoID;
 	
 	// Declaração de uma variável de instância vertexCount, que armazena o número de vértices no modelo.
 	private int vertexCount;
 
+	// Tipo dos índices do index buffer (GL_UNSIGNED_INT, GL_UNSIGNED_SHORT ou GL_UNSIGNED_BYTE), usado no glDrawElements.
+	private int indexType;
+
+	// Deslocamento e escala aplicados às posições no vertex shader (position = offset + position * scale).
+	// Para modelos não quantizados são (0, 0, 0) e (1, 1, 1); nos quantizados levam a posição de [0, 1] de volta à caixa envolvente do modelo.
+	private Vector3f positionOffset;
+	private Vector3f positionScale;
+
+	// Posição do modelo dentro de buffers compartilhados (GeometryArena): primeiro índice no index buffer
+	// e valor somado a cada índice (glDrawElementsBaseVertex). Ambos são 0 para modelos com VAO próprio.
+	private int firstIndex;
+	private int baseVertex;
+
+	// Volumes envolventes do modelo no seu próprio espaço, usados no frustum culling.
+	// Enquanto não forem definidos (hasBounds = false) o modelo nunca é descartado.
+	private boolean hasBounds;
+	private Vector3f boundsMin = new Vector3f();
+	private Vector3f boundsMax = new Vector3f();
+	private Vector3f boundsCenter = new Vector3f(); // Centro da esfera envolvente
+	private float boundsRadius; // Raio da esfera envolvente
+
 	// Declaração do construtor da classe RawModel. O construtor é chamado quando um novo objeto RawModel é criado. Recebe dois argumentos: vaoID e vertexCount.
 	public RawModel(int vaoID, int vertexCount) {
+		this(vaoID, vertexCount, GL11.GL_UNSIGNED_INT, new Vector3f(0, 0, 0), new Vector3f(1, 1, 1));
+	}
+
+	// Construtor usado pelos modelos quantizados, que informam o tipo dos índices e a transformação das posições.
+	public RawModel(int vaoID, int vertexCount, int indexType, Vector3f positionOffset, Vector3f positionScale) {
 		this.vaoID = vaoID;
 		this.vertexCount = vertexCount;
+		this.indexType = indexType;
+		this.positionOffset = positionOffset;
+		this.positionScale = positionScale;
+	}
+
+	public int getId() {
+		return id;
 	}
 
 	// Declaração do método público getVaoID(), que permite que outras classes obtenham o valor do atributo vaoID.
@@ -25,4 +67,76 @@ public class RawModel {
 		return vertexCount;
 	}
 
+	public int getIndexType() {
+		return indexType;
+	}
+
+	public Vector3f getPositionOffset() {
+		return positionOffset;
+	}
+
+	public Vector3f getPositionScale() {
+		return positionScale;
+	}
+
+	public int getFirstIndex() {
+		return firstIndex;
+	}
+
+	// Usado pelo GeometryArena ao alocar ou compactar os buffers compartilhados
+	public void setFirstIndex(int firstIndex) {
+		this.firstIndex = firstIndex;
+	}
+
+	public int getBaseVertex() {
+		return baseVertex;
+	}
+
+	// Usado pelo GeometryArena ao alocar ou compactar os buffers compartilhados
+	public void setBaseVertex(int baseVertex) {
+		this.baseVertex = baseVertex;
+	}
+
+	// Define a caixa envolvente (AABB) do modelo e calcula a esfera envolvente a partir dela
+	public void setBounds(Vector3f min, Vector3f max) {
+		boundsMin.set(min);
+		boundsMax.set(max);
+		boundsCenter.set((min.x + max.x) / 2, (min.y + max.y) / 2, (min.z + max.z) / 2);
+		float dx = max.x - boundsCenter.x;
+		float dy = max.y - boundsCenter.y;
+		float dz = max.z - boundsCenter.z;
+		boundsRadius = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+		hasBounds = true;
+	}
+
+	public boolean hasBounds() {
+		return hasBounds;
+	}
+
+	public Vector3f getBoundsMin() {
+		return boundsMin;
+	}
+
+	public Vector3f getBoundsMax() {
+		return boundsMax;
+	}
+
+	public Vector3f getBoundsCenter() {
+		return boundsCenter;
+	}
+
+	public float getBoundsRadius() {
+		return boundsRadius;
+	}
+
+	// Tamanho em bytes de um índice do modelo (pelo indexType)
+	public int getIndexSize() {
+		return indexType == GL11.GL_UNSIGNED_BYTE ? 1 : indexType == GL11.GL_UNSIGNED_SHORT ? 2 : 4;
+	}
+
+	// Deslocamento em bytes do primeiro índice do modelo dentro do index buffer (parâmetro "indices" do glDrawElements)
+	public long getIndexOffset() {
+		return (long) firstIndex * getIndexSize();
+	}
+
 }
@@ -18,6 +18,12 @@ public class DisplayManager {
 	private static final int HEIGHT = 720;					// Altura Tela
 	private static final int FPS_CAP = 60;					// FPS (Quadros Por Segundo)
 	private static final String TITLE = "Titulo Display"; 	// Título
+	private static final int FRAME_HISTORY = 600;			// Quadros considerados nas estatísticas (10 s a 60 FPS)
+
+	// Relógio dos quadros: delta e estatísticas (os passos fixos da lógica ficam no SimulationThread)
+	private static FrameClock clock = new FrameClock(FrameClock.SYSTEM_TIME, FRAME_HISTORY);
+	// Intervalo (em quadros) entre as impressões das estatísticas; 0 desliga
+	private static int statisticsInterval = 0;
 
 	/**
 		Cria uma janela de exibição na qual podemos renderizar nosso jogo.
@@ -60,6 +66,28 @@ public class DisplayManager {
 		Display.sync(FPS_CAP); 
 		// Atualiza a janela de exibição para refletir o que foi renderizado no quadro atual.
 		Display.update();
+		// Mede o tempo do quadro que terminou
+		clock.tick();
+		if (statisticsInterval > 0 && clock.getFrameCount() % statisticsInterval == 0) {
+			System.out.println(clock.getStatistics());
+		}
+	}
+
+	/**
+	Relógio dos quadros: tempo do último quadro (getDeltaSeconds) e percentis dos tempos de quadro.
+	*/
+	public static FrameClock getFrameClock() {
+		return clock;
+	}
+
+	// Tempo do último quadro em segundos
+	public static float getDeltaSeconds() {
+		return clock.getDeltaSeconds();
+	}
+
+	// Imprime as estatísticas dos tempos de quadro a cada "frames" quadros (0 desliga)
+	public static void setStatisticsInterval(int frames) {
+		statisticsInterval = frames;
 	}
 
 	/**
@@ -1,84 +1,209 @@
 package renderEngine;
 
+import java.nio.FloatBuffer;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
-import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL33;
 
 import entities.Entity;
 import models.RawModel;
 import models.TexturedModel;
+import shaders.InstancedShader;
 import shaders.StaticShader;
 import textures.ModelTexture;
-import toolbox.Maths;
+import toolbox.Frustum;
+import toolbox.JobSystem;
 
 public class EntityRenderer {
 
+	// Tamanho mínimo padrão de um lote (entidades do mesmo modelo) para usar o desenho instanciado
+	public static final int DEFAULT_INSTANCING_THRESHOLD = 16;
+	// Número máximo de instâncias enviadas em um único glDrawElementsInstanced (lotes maiores são divididos)
+	private static final int MAX_INSTANCES = 10000;
+	// Quantidade de floats por instância (uma matriz 4x4)
+	private static final int INSTANCE_DATA_LENGTH = 16;
+	// Atributos do modelo lidos pelos shaders: posição (0), coordenadas de textura (1) e normais (2)
+	static final int MODEL_ATTRIBUTES = 0x7;
+
 	private StaticShader shader;
+	private InstancedShader instancedShader;
+	// Binds de textura, VAO e atributos passam pelo cache, que descarta os que não mudam nada
+	private GLStateCache glState = GLStateCache.getDefault();
+
+	// Lotes com pelo menos esta quantidade de entidades são desenhados com instanciamento
+	private int instancingThreshold = DEFAULT_INSTANCING_THRESHOLD;
+
+	// VBO compartilhado que recebe as matrizes de transformação de cada instância a cada lote
+	private int instanceVbo;
+	// Buffer na memória (fora do heap) usado para montar as matrizes antes do envio para a GPU
+	private FloatBuffer instanceBuffer = BufferUtils.createFloatBuffer(MAX_INSTANCES * INSTANCE_DATA_LENGTH);
+	// VAOs que já tiveram os atributos da matriz da instância configurados
+	private Set<Integer> instancedVaos = new HashSet<Integer>();
+	// Tira os VAOs apagados do conjunto acima: o OpenGL pode reutilizar o ID para um VAO sem esses atributos
+	private final GLStateCache.VertexArrayListener vaoListener = new GLStateCache.VertexArrayListener() {
+		@Override
+		public void vertexArrayDeleted(int vao) {
+			instancedVaos.remove(vao);
+		}
+	};
+	// Cull e montagem das matrizes dos lotes instanciados, distribuídos entre as threads do JobSystem
+	private InstanceDataBuilder instanceDataBuilder;
+	// Quantidade de matrizes de transformação recalculadas no quadro atual (as demais vieram do cache das entidades)
+	private int transformsRebuilt;
 
 	// Construtor da classe Renderer
-	public EntityRenderer(StaticShader shader, Matrix4f projectionMatrix) {
+	// A matriz de projeção chega aos shaders pelo FrameUniformBuffer, atualizado pelo MasterRenderer a cada quadro
+	public EntityRenderer(StaticShader shader, InstancedShader instancedShader, JobSystem jobs) {
 		this.shader = shader;
-		shader.start(); // Inicia o shader
-		shader.loadProjectionMatrix(projectionMatrix); // Carrega a matriz de projeção para o shader
-		shader.stop(); // Para o shader
-	}
-
-	// Método para renderizar uma lista de entidades associadas a modelos texturizados
-	public void render(Map<TexturedModel, List<Entity>> entities) {
-		// Iterar sobre cada modelo texturizado na lista de entidades
-		for (TexturedModel model : entities.keySet()) {
-			// Preparar o modelo texturizado antes de renderizar
-			prepareTexturedModel(model);
-
-			// Obter a lista de entidades associadas a este modelo texturizado
-			List<Entity> batch = entities.get(model);
-
-			// Iterar sobre cada entidade na lista
-			for (Entity entity : batch) {
-				// Preparar a instância da entidade antes de renderizar
-				prepareInstance(entity);
-
-				// Desenhar os elementos do modelo texturizado no contexto OpenGL
-				GL11.glDrawElements(GL11.GL_TRIANGLES, model.getRawModel().getVertexCount(), GL11.GL_UNSIGNED_INT, 0);
-				// Esta linha é responsável por renderizar o modelo texturizado utilizando triângulos,
-				// usando o número de vértices obtidos a partir do modelo raw e um buffer de elementos
-				// não assinados (Unsigned Int) para a renderização.
-			}
+		this.instancedShader = instancedShader;
+		this.instanceDataBuilder = new InstanceDataBuilder(jobs);
+		instanceVbo = createInstanceVbo();
+		glState.addVertexArrayListener(vaoListener);
+	}
+
+	// Zera as estatísticas do quadro; chamado no início de cada quadro
+	public void beginFrame() {
+		transformsRebuilt = 0;
+	}
+
+	// Quantidade de matrizes de transformação recalculadas desde o último beginFrame()
+	public int getTransformsRebuilt() {
+		return transformsRebuilt;
+	}
+
+	// Define a partir de quantas entidades um lote passa a ser desenhado com instanciamento
+	public void setInstancingThreshold(int instancingThreshold) {
+		this.instancingThreshold = instancingThreshold;
+	}
+
+	public int getInstancingThreshold() {
+		return instancingThreshold;
+	}
+
+	// Os métodos abaixo são chamados pelo MasterRenderer na ordem da RenderQueue, que já agrupou os desenhos por
+	// shader, textura e modelo: cada estado só é reenviado quando muda em relação ao desenho anterior.
+
+	// Associa a textura do modelo e carrega as variáveis do material no shader ativo (instanciado ou não)
+	void bindTexture(ModelTexture texture, boolean instanced) {
+		StaticShader activeShader = instanced ? instancedShader : shader;
+		activeShader.loadShineVariables(texture.getShineDamper(), texture.getReflectivity()); // Carrega as variáveis de brilho (shine) para o shader
+		glState.bindTexture(0, texture.getID()); // Associa a textura ao modelo na unidade 0 (GL_TEXTURE0)
+	}
 
-			// Finalizar o modelo texturizado após renderizar todas as entidades associadas a ele
-			unbindTexturedModel();
+	// Ativa o VAO do modelo e carrega a transformação das suas posições no shader ativo
+	void bindModel(RawModel rawModel, boolean instanced) {
+		StaticShader activeShader = instanced ? instancedShader : shader;
+		glState.bindVertexArray(rawModel.getVaoID()); // Ativa o VAO (Vertex Array Object) do modelo
+		// Ativa os atributos de posição (0), coordenadas de textura (1) e normais (2); como ficam guardados no VAO,
+		// só são ativados de fato no primeiro desenho de cada VAO
+		glState.enableVertexAttribArrays(MODEL_ATTRIBUTES);
+		activeShader.loadPositionDequantization(rawModel.getPositionOffset(), rawModel.getPositionScale()); // Carrega a transformação das posições (quantizadas ou não)
+	}
+
+	// Desenha uma entidade com o StaticShader; a textura e o modelo dela devem estar associados
+	void drawEntity(Entity entity) {
+		// Preparar a instância da entidade antes de renderizar
+		prepareInstance(entity);
+
+		// Desenhar os elementos do modelo texturizado no contexto OpenGL
+		RawModel rawModel = entity.getModel().getRawModel();
+		GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, rawModel.getVertexCount(), rawModel.getIndexType(),
+				rawModel.getIndexOffset(), rawModel.getBaseVertex());
+		// Esta linha é responsável por renderizar o modelo texturizado utilizando triângulos,
+		// usando o número de vértices obtidos a partir do modelo raw, o tipo dos seus índices e
+		// a sua posição nos buffers (primeiro índice e vértice base, ambos 0 para modelos com VAO próprio).
+	}
+
+	// Desenha um lote grande com um único glDrawElementsInstanced (por bloco de MAX_INSTANCES) usando o InstancedShader.
+	// O culling dessas entidades contra o frustum (null para desenhar todas) e a montagem das matrizes
+	// são feitos em paralelo pelo InstanceDataBuilder. A textura e o modelo do lote devem estar associados.
+	// Retorna a quantidade de entidades descartadas pelo frustum.
+	int drawInstanced(List<Entity> batch, Frustum frustum) {
+		RawModel rawModel = batch.get(0).getModel().getRawModel();
+		int culled = 0;
+		bindInstanceAttributes(rawModel.getVaoID());
+		// Envia as matrizes em blocos de no máximo MAX_INSTANCES e desenha cada bloco de uma vez
+		for (int start = 0; start < batch.size(); start += MAX_INSTANCES) {
+			int count = Math.min(MAX_INSTANCES, batch.size() - start);
+			int visible = storeInstanceMatrices(batch, start, count, frustum);
+			culled += count - visible;
+			if (visible > 0) {
+				GL32.glDrawElementsInstancedBaseVertex(GL11.GL_TRIANGLES, rawModel.getVertexCount(), rawModel.getIndexType(),
+						rawModel.getIndexOffset(), visible, rawModel.getBaseVertex());
+			}
 		}
+		return culled;
+	}
+
+	// Desativa o VAO ao fim dos desenhos de entidades. Os atributos continuam ativos dentro de cada VAO.
+	void unbindTexturedModel() {
+		glState.bindVertexArray(0);
 	}
 
-	private void prepareTexturedModel(TexturedModel model) {
-		RawModel rawModel = model.getRawModel(); // Obtém o modelo bruto do modelo texturizado
-		GL30.glBindVertexArray(rawModel.getVaoID()); // Ativa o VAO (Vertex Array Object) do modelo
-		GL20.glEnableVertexAttribArray(0); // Ativa o atributo de posição do VAO (índice 0)
-		GL20.glEnableVertexAttribArray(1); // Ativa o atributo de coordenadas de textura do VAO (índice 1)
-		GL20.glEnableVertexAttribArray(2); // Ativa o atributo de coordenadas de textura do VAO (índice 2)
-		ModelTexture texture = model.getTexture(); // Obtém a textura do modelo
-		shader.loadShineVariables(texture.getShineDamper(), texture.getReflectivity()); // Carrega as variáveis de brilho (shine) para o shader
-		GL13.glActiveTexture(GL13.GL_TEXTURE0); // Ativa a textura no índice 0 (GL_TEXTURE0)
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, model.getTexture().getID()); // Associa a textura ao modelo
+	// Libera o VBO das matrizes das instâncias
+	public void cleanUp() {
+		GL15.glDeleteBuffers(instanceVbo);
+		glState.removeVertexArrayListener(vaoListener);
 	}
 
-	private void unbindTexturedModel() {
-		GL20.glDisableVertexAttribArray(0); // Desativa o atributo de posição do VAO (índice 0)
-		GL20.glDisableVertexAttribArray(1); // Desativa o atributo de coordenadas de textura do VAO (índice 1)
-		GL20.glDisableVertexAttribArray(2); // Desativa o atributo de coordenadas de textura do VAO (índice 2)
-		GL30.glBindVertexArray(0); // Desativa o VAO
+	// Cria o VBO das matrizes das instâncias com espaço para MAX_INSTANCES matrizes
+	private int createInstanceVbo() {
+		int vbo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+		// GL_STREAM_DRAW: o conteúdo é reescrito a cada lote, a cada quadro
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, MAX_INSTANCES * INSTANCE_DATA_LENGTH * 4, GL15.GL_STREAM_DRAW);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		return vbo;
+	}
+
+	// Configura (uma única vez por VAO) os atributos 3 a 6 para lerem as colunas da matriz da instância
+	private void bindInstanceAttributes(int vaoID) {
+		int first = InstancedShader.MODEL_MATRIX_ATTRIBUTE;
+		if (instancedVaos.add(vaoID)) {
+			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+			for (int column = 0; column < 4; column++) {
+				// Cada coluna da matriz é um vec4; o stride é a matriz inteira (16 floats)
+				GL20.glVertexAttribPointer(first + column, 4, GL11.GL_FLOAT, false, INSTANCE_DATA_LENGTH * 4, column * 4 * 4);
+				// Divisor 1: o atributo avança uma vez por instância, e não por vértice
+				GL33.glVertexAttribDivisor(first + column, 1);
+			}
+			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		}
+		// Os atributos da matriz ficam ativos no VAO; o StaticShader não os lê, então não atrapalham desenhos não instanciados
+		glState.enableVertexAttribArrays(0xF << first);
+	}
+
+	// Monta (em paralelo) as matrizes das entidades visíveis de [start, start + count) e as envia para o VBO das instâncias.
+	// Retorna quantas matrizes foram enviadas.
+	private int storeInstanceMatrices(List<Entity> batch, int start, int count, Frustum frustum) {
+		instanceBuffer.clear();
+		int visible = instanceDataBuilder.build(batch, start, start + count, frustum, instanceBuffer);
+		transformsRebuilt += instanceDataBuilder.getTransformsRebuilt();
+		instanceBuffer.flip();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceVbo);
+		// Descarta o conteúdo anterior (orphaning) para não esperar a GPU terminar o lote anterior
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, MAX_INSTANCES * INSTANCE_DATA_LENGTH * 4, GL15.GL_STREAM_DRAW);
+		GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, 0, instanceBuffer);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		return visible;
 	}
 
 	private void prepareInstance(Entity entity) {
-		Matrix4f transformationMatrix = Maths.createTransformationMatrix(entity.getPosition(), // Posição da entidade
-				entity.getRotX(), entity.getRotY(), entity.getRotZ(), // Rotação da entidade nos eixos X, Y e Z
-				entity.getScale() // Escala da entidade
-		);
-		shader.loadTransformationMatrix(transformationMatrix); // Carrega a matriz de transformação para o shader
+		countRebuild(entity);
+		shader.loadTransformationMatrix(entity.getTransformationMatrix()); // Carrega a matriz de transformação para o shader
+	}
+
+	// A matriz vem do cache da entidade; conta as que vão precisar ser recalculadas por terem mudado
+	private void countRebuild(Entity entity) {
+		if (entity.isTransformDirty()) {
+			transformsRebuilt++;
+		}
 	}
 }
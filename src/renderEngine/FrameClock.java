@@ -0,0 +1,97 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+/**
+    Relógio de quadros: mede o tempo entre quadros (delta) e guarda os tempos dos últimos quadros para calcular
+    percentis (p50/p95/p99) e o máximo. A lógica em passos fixos e a interpolação ficam no SimulationThread.
+    Não depende do LWJGL: a fonte de tempo é injetável, então pode ser testado com um relógio falso.
+ */
+public class FrameClock {
+
+    // Fonte de tempo em nanossegundos
+    public interface TimeSource {
+        long nanoTime();
+    }
+
+    public static final TimeSource SYSTEM_TIME = new TimeSource() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    // Um quadro muito longo (ex.: janela arrastada, breakpoint) conta no máximo como este tempo no delta,
+    // para quem move coisas pelo delta não dar um salto de segundos de uma vez
+    public static final float MAX_DELTA_SECONDS = 0.25f;
+
+    private final TimeSource time;
+
+    private long lastTime;
+    private float deltaSeconds;
+    private long frameCount;
+
+    // Tempos dos últimos quadros (em nanossegundos), em um buffer circular
+    private final long[] history;
+    private final long[] sorted;
+    private int historySize;
+    private int historyNext;
+
+    // historyLength: quantos quadros entram nos percentis
+    public FrameClock(TimeSource time, int historyLength) {
+        this.time = time;
+        this.history = new long[historyLength];
+        this.sorted = new long[historyLength];
+        this.lastTime = time.nanoTime();
+    }
+
+    // Marca o fim de um quadro: calcula o delta e registra o tempo do quadro
+    public void tick() {
+        long now = time.nanoTime();
+        long frameNanos = now - lastTime;
+        lastTime = now;
+        frameCount++;
+        deltaSeconds = Math.min(frameNanos / 1e9f, MAX_DELTA_SECONDS);
+
+        history[historyNext] = frameNanos;
+        historyNext = (historyNext + 1) % history.length;
+        historySize = Math.min(historySize + 1, history.length);
+    }
+
+    // Tempo do último quadro em segundos (limitado a MAX_DELTA_SECONDS)
+    public float getDeltaSeconds() {
+        return deltaSeconds;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    // Percentil (0 a 100) dos tempos de quadro registrados, em milissegundos; 0 se nenhum quadro foi registrado
+    public float getPercentileMillis(float percentile) {
+        if (historySize == 0) {
+            return 0;
+        }
+        System.arraycopy(history, 0, sorted, 0, historySize);
+        Arrays.sort(sorted, 0, historySize);
+        // Método do posto mais próximo (nearest rank)
+        int rank = (int) Math.ceil(percentile / 100 * historySize);
+        int index = Math.max(0, Math.min(historySize - 1, rank - 1));
+        return sorted[index] / 1e6f;
+    }
+
+    // Maior tempo de quadro registrado, em milissegundos
+    public float getMaxMillis() {
+        long max = 0;
+        for (int i = 0; i < historySize; i++) {
+            max = Math.max(max, history[i]);
+        }
+        return max / 1e6f;
+    }
+
+    // Resumo dos tempos de quadro, para log
+    public String getStatistics() {
+        return String.format("quadro: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms (%d quadros)",
+                getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getMaxMillis(), historySize);
+    }
+}
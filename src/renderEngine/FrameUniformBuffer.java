@@ -0,0 +1,107 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import entities.Camera;
+import entities.Light;
+import toolbox.Maths;
+import toolbox.Std140Writer;
+
+/**
+    Uniform Buffer Object (UBO) com os dados que mudam uma vez por quadro e são iguais para todos os shaders:
+    projeção, visão, inversa da visão, posição da câmera e a lista de luzes. É escrito uma vez por quadro e fica
+    associado ao ponto de ligação BINDING_POINT; cada shader declara o bloco BLOCK_NAME (layout std140) e o liga
+    a esse ponto (ShaderProgram.bindUniformBlock), em vez de receber os mesmos valores uniforme por uniforme.
+
+    Bloco correspondente no GLSL (os deslocamentos em bytes são as constantes *_OFFSET):
+        struct Light { vec3 position; vec3 colour; };
+        layout(std140) uniform FrameData {
+            mat4 projectionMatrix;   // 0
+            mat4 viewMatrix;         // 64
+            mat4 inverseViewMatrix;  // 128
+            vec3 cameraPosition;     // 192
+            int lightCount;          // 204
+            Light lights[MAX_LIGHTS];// 208, 32 bytes por luz
+        };
+ */
+public class FrameUniformBuffer {
+
+    public static final String BLOCK_NAME = "FrameData";
+    public static final int BINDING_POINT = 0;
+    public static final int MAX_LIGHTS = 4;
+
+    public static final int PROJECTION_OFFSET = 0;
+    public static final int VIEW_OFFSET = 64;
+    public static final int INVERSE_VIEW_OFFSET = 128;
+    public static final int CAMERA_POSITION_OFFSET = 192;
+    public static final int LIGHT_COUNT_OFFSET = 204;
+    public static final int LIGHTS_OFFSET = 208;
+    public static final int LIGHT_STRIDE = 32;
+    public static final int SIZE = LIGHTS_OFFSET + MAX_LIGHTS * LIGHT_STRIDE;
+
+    private final int ubo;
+    private final ByteBuffer data = BufferUtils.createByteBuffer(SIZE).order(ByteOrder.nativeOrder());
+    private final Std140Writer writer = new Std140Writer(data);
+    // Reutilizadas a cada quadro para não alocar
+    private final Matrix4f viewMatrix = new Matrix4f();
+    private final Matrix4f inverseViewMatrix = new Matrix4f();
+
+    public FrameUniformBuffer() {
+        ubo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+        GL15.glBufferData(GL31.GL_UNIFORM_BUFFER, SIZE, GL15.GL_DYNAMIC_DRAW);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+        // O ponto de ligação não muda: todos os programas que ligarem o bloco a BINDING_POINT leem este buffer
+        GL30.glBindBufferBase(GL31.GL_UNIFORM_BUFFER, BINDING_POINT, ubo);
+    }
+
+    // Monta e envia os dados do quadro (chamado uma vez por quadro, antes dos desenhos).
+    // Luzes além de MAX_LIGHTS são ignoradas.
+    public void update(Matrix4f projectionMatrix, Camera camera, List<Light> lights) {
+        Maths.createViewMatrix(camera, viewMatrix);
+        Matrix4f.invert(viewMatrix, inverseViewMatrix);
+        data.clear();
+        writer.reset(data);
+        write(writer, projectionMatrix, viewMatrix, inverseViewMatrix, camera.getPosition(), lights);
+        data.flip();
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, ubo);
+        GL15.glBufferSubData(GL31.GL_UNIFORM_BUFFER, 0, data);
+        GL15.glBindBuffer(GL31.GL_UNIFORM_BUFFER, 0);
+    }
+
+    // Escreve o bloco FrameData no layout std140 (sem OpenGL: também serve para conferir os deslocamentos)
+    public static void write(Std140Writer writer, Matrix4f projectionMatrix, Matrix4f viewMatrix,
+            Matrix4f inverseViewMatrix, Vector3f cameraPosition, List<Light> lights) {
+        int lightCount = Math.min(lights.size(), MAX_LIGHTS);
+        writer.putMat4(projectionMatrix);
+        writer.putMat4(viewMatrix);
+        writer.putMat4(inverseViewMatrix);
+        writer.putVec3(cameraPosition);
+        writer.putInt(lightCount);
+        for (int i = 0; i < MAX_LIGHTS; i++) {
+            writer.beginStruct();
+            if (i < lightCount) {
+                Light light = lights.get(i);
+                writer.putVec3(light.getPosition());
+                writer.putVec3(light.getColour());
+            } else {
+                writer.skip(LIGHT_STRIDE);
+            }
+            writer.endStruct();
+        }
+        writer.finish();
+    }
+
+    public void cleanUp() {
+        GL15.glDeleteBuffers(ubo);
+    }
+}
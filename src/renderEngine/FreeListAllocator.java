@@ -0,0 +1,150 @@
+package renderEngine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+    Alocador de intervalos [0, capacidade) com lista de blocos livres, usado pelo GeometryArena para
+    dividir os buffers grandes entre vários modelos. Trabalha apenas com números (unidades de vértices
+    ou de índices), sem nenhuma chamada ao OpenGL.
+    - allocate: primeiro bloco livre em que o tamanho cabe (first-fit);
+    - free: devolve o bloco e o junta aos blocos livres vizinhos (coalescência);
+    - compact: move todos os blocos ocupados para o início, deixando um único bloco livre no final;
+    - grow: aumenta a capacidade, acrescentando o espaço novo ao bloco livre do final.
+ */
+public class FreeListAllocator {
+
+    private int capacity;
+    // Blocos livres ordenados pelo início: início -> tamanho
+    private TreeMap<Integer, Integer> freeBlocks = new TreeMap<Integer, Integer>();
+    // Blocos ocupados: início -> tamanho
+    private TreeMap<Integer, Integer> usedBlocks = new TreeMap<Integer, Integer>();
+    private int usedSpace;
+
+    public FreeListAllocator(int capacity) {
+        this.capacity = capacity;
+        if (capacity > 0) {
+            freeBlocks.put(0, capacity);
+        }
+    }
+
+    // Reserva "size" unidades e retorna o início do bloco, ou -1 se nenhum bloco livre tiver espaço suficiente
+    public int allocate(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Allocation size must be positive: " + size);
+        }
+        for (Map.Entry<Integer, Integer> block : freeBlocks.entrySet()) {
+            int start = block.getKey();
+            int blockSize = block.getValue();
+            if (blockSize >= size) {
+                freeBlocks.remove(start);
+                if (blockSize > size) {
+                    // O que sobra do bloco continua livre
+                    freeBlocks.put(start + size, blockSize - size);
+                }
+                usedBlocks.put(start, size);
+                usedSpace += size;
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    // Libera o bloco que começa em "start", juntando-o aos blocos livres imediatamente antes e depois dele
+    public void free(int start) {
+        Integer size = usedBlocks.remove(start);
+        if (size == null) {
+            throw new IllegalArgumentException("No allocation starts at " + start);
+        }
+        usedSpace -= size;
+        int newStart = start;
+        int newSize = size;
+        Map.Entry<Integer, Integer> previous = freeBlocks.lowerEntry(start);
+        if (previous != null && previous.getKey() + previous.getValue() == start) {
+            freeBlocks.remove(previous.getKey());
+            newStart = previous.getKey();
+            newSize += previous.getValue();
+        }
+        Integer nextSize = freeBlocks.get(start + size);
+        if (nextSize != null) {
+            freeBlocks.remove(start + size);
+            newSize += nextSize;
+        }
+        freeBlocks.put(newStart, newSize);
+    }
+
+    // Move os blocos ocupados para o início (mantendo a ordem) e retorna o mapa início antigo -> início novo.
+    // Quem usa o alocador deve copiar os dados de cada bloco para a nova posição.
+    public Map<Integer, Integer> compact() {
+        Map<Integer, Integer> relocations = new HashMap<Integer, Integer>();
+        TreeMap<Integer, Integer> compacted = new TreeMap<Integer, Integer>();
+        int next = 0;
+        for (Map.Entry<Integer, Integer> block : usedBlocks.entrySet()) {
+            relocations.put(block.getKey(), next);
+            compacted.put(next, block.getValue());
+            next += block.getValue();
+        }
+        usedBlocks = compacted;
+        freeBlocks.clear();
+        if (next < capacity) {
+            freeBlocks.put(next, capacity - next);
+        }
+        return relocations;
+    }
+
+    // Aumenta a capacidade; o espaço novo é acrescentado ao final (junto com o último bloco livre, se houver)
+    public void grow(int newCapacity) {
+        if (newCapacity <= capacity) {
+            return;
+        }
+        Map.Entry<Integer, Integer> last = freeBlocks.lastEntry();
+        if (last != null && last.getKey() + last.getValue() == capacity) {
+            freeBlocks.put(last.getKey(), last.getValue() + newCapacity - capacity);
+        } else {
+            freeBlocks.put(capacity, newCapacity - capacity);
+        }
+        capacity = newCapacity;
+    }
+
+    // Tamanho do bloco ocupado que começa em "start"
+    public int getSize(int start) {
+        Integer size = usedBlocks.get(start);
+        return size == null ? 0 : size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getUsedSpace() {
+        return usedSpace;
+    }
+
+    public int getFreeSpace() {
+        return capacity - usedSpace;
+    }
+
+    public int getFreeBlockCount() {
+        return freeBlocks.size();
+    }
+
+    // Maior bloco livre contínuo (a maior alocação que ainda cabe sem compactar)
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int size : freeBlocks.values()) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+
+    // Fragmentação entre 0 (todo o espaço livre em um só bloco) e 1 (espaço livre muito espalhado)
+    public float getFragmentation() {
+        int free = getFreeSpace();
+        if (free == 0) {
+            return 0;
+        }
+        return 1 - (float) getLargestFreeBlock() / free;
+    }
+
+}
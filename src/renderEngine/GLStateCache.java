@@ -0,0 +1,290 @@
+package renderEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+
+import toolbox.LongIntHashMap;
+
+/**
+    Guarda o estado do OpenGL definido pelo programa (programa de shader ativo, VAO, texturas de cada unidade,
+    atributos de vértice ativos em cada VAO, capacidades como GL_CULL_FACE e GL_DEPTH_TEST, face descartada e
+    escrita de profundidade) e só repassa ao OpenGL as chamadas que mudam algo. As demais são contadas como puladas.
+    Os atributos de vértice ativos fazem parte do estado de cada VAO: depois de ativados uma vez continuam ativos,
+    então não precisam ser desativados e reativados a cada desenho.
+    Todas as chamadas devem vir da thread do contexto OpenGL. Código que altere esse estado sem passar por aqui
+    (ex.: o TextureLoader do Slick associa a textura carregada) deve chamar invalidate() em seguida.
+ */
+public class GLStateCache {
+
+    // Chamadas ao OpenGL que passam pelo cache; substituível para testar sem contexto OpenGL
+    public interface GLBackend {
+        void useProgram(int program);
+        void bindVertexArray(int vao);
+        void setVertexAttribArray(int index, boolean enabled);
+        void activeTexture(int unit); // 0 para GL_TEXTURE0, 1 para GL_TEXTURE1...
+        void bindTexture(int target, int texture);
+        void setCapability(int capability, boolean enabled);
+        void cullFace(int mode);
+        void depthMask(boolean enabled);
+    }
+
+    // Avisado quando um VAO é apagado, para quem guarda estado próprio por VAO (ex.: EntityRenderer)
+    public interface VertexArrayListener {
+        void vertexArrayDeleted(int vao);
+    }
+
+    public static final GLBackend LWJGL_BACKEND = new GLBackend() {
+        @Override
+        public void useProgram(int program) {
+            GL20.glUseProgram(program);
+        }
+
+        @Override
+        public void bindVertexArray(int vao) {
+            GL30.glBindVertexArray(vao);
+        }
+
+        @Override
+        public void setVertexAttribArray(int index, boolean enabled) {
+            if (enabled) {
+                GL20.glEnableVertexAttribArray(index);
+            } else {
+                GL20.glDisableVertexAttribArray(index);
+            }
+        }
+
+        @Override
+        public void activeTexture(int unit) {
+            GL13.glActiveTexture(GL13.GL_TEXTURE0 + unit);
+        }
+
+        @Override
+        public void bindTexture(int target, int texture) {
+            GL11.glBindTexture(target, texture);
+        }
+
+        @Override
+        public void setCapability(int capability, boolean enabled) {
+            if (enabled) {
+                GL11.glEnable(capability);
+            } else {
+                GL11.glDisable(capability);
+            }
+        }
+
+        @Override
+        public void cullFace(int mode) {
+            GL11.glCullFace(mode);
+        }
+
+        @Override
+        public void depthMask(boolean enabled) {
+            GL11.glDepthMask(enabled);
+        }
+    };
+
+    // Valor dos campos enquanto o estado real do OpenGL não é conhecido (a próxima chamada é sempre repassada)
+    private static final int UNKNOWN = -1;
+    private static final int TEXTURE_UNITS = 16;
+
+    // Cache do contexto OpenGL do jogo
+    private static final GLStateCache DEFAULT = new GLStateCache(LWJGL_BACKEND);
+
+    private final GLBackend gl;
+    private int program = UNKNOWN;
+    // O VAO sempre é conhecido (o contexto começa com o VAO 0): os atributos ativos são guardados por VAO
+    private int vao = 0;
+    private int activeUnit = UNKNOWN;
+    private final int[] textures = new int[TEXTURE_UNITS]; // textura GL_TEXTURE_2D de cada unidade
+    private int cullFaceMode = UNKNOWN;
+    private int depthMask = UNKNOWN;
+    // Capacidade (GL_CULL_FACE...) -> 1 ativa, 0 inativa; ausente se desconhecida
+    private LongIntHashMap capabilities = new LongIntHashMap(8);
+    // VAO -> bits dos atributos ativos. Um VAO novo começa com todos desativados, então ausente equivale a 0.
+    private final LongIntHashMap vertexAttribs = new LongIntHashMap(64);
+    private final List<VertexArrayListener> vertexArrayListeners = new ArrayList<VertexArrayListener>();
+
+    private long issuedCalls;
+    private long skippedCalls;
+
+    public GLStateCache(GLBackend gl) {
+        this.gl = gl;
+        Arrays.fill(textures, UNKNOWN);
+    }
+
+    public static GLStateCache getDefault() {
+        return DEFAULT;
+    }
+
+    public void useProgram(int program) {
+        if (this.program == program) {
+            skippedCalls++;
+            return;
+        }
+        this.program = program;
+        gl.useProgram(program);
+        issuedCalls++;
+    }
+
+    public void bindVertexArray(int vao) {
+        if (this.vao == vao) {
+            skippedCalls++;
+            return;
+        }
+        this.vao = vao;
+        gl.bindVertexArray(vao);
+        issuedCalls++;
+    }
+
+    // Deixa ativos no VAO atual exatamente os atributos dos bits de "mask" (bit 0 = atributo 0...)
+    public void setVertexAttribArrays(int mask) {
+        int current = vertexAttribs.get(vao, 0);
+        skippedCalls += Integer.bitCount(mask & current);
+        applyVertexAttribArrays(current, mask);
+    }
+
+    // Ativa os atributos dos bits de "mask" no VAO atual, sem mexer nos demais
+    public void enableVertexAttribArrays(int mask) {
+        int current = vertexAttribs.get(vao, 0);
+        skippedCalls += Integer.bitCount(mask & current);
+        applyVertexAttribArrays(current, current | mask);
+    }
+
+    // Desativa os atributos dos bits de "mask" no VAO atual, sem mexer nos demais
+    public void disableVertexAttribArrays(int mask) {
+        int current = vertexAttribs.get(vao, 0);
+        skippedCalls += Integer.bitCount(mask & ~current);
+        applyVertexAttribArrays(current, current & ~mask);
+    }
+
+    // Associa a textura (GL_TEXTURE_2D) à unidade informada (0 para GL_TEXTURE0...)
+    public void bindTexture(int unit, int texture) {
+        if (textures[unit] == texture) {
+            skippedCalls++;
+            return;
+        }
+        if (activeUnit != unit) {
+            activeUnit = unit;
+            gl.activeTexture(unit);
+            issuedCalls++;
+        }
+        textures[unit] = texture;
+        gl.bindTexture(GL11.GL_TEXTURE_2D, texture);
+        issuedCalls++;
+    }
+
+    public void enable(int capability) {
+        setCapability(capability, true);
+    }
+
+    public void disable(int capability) {
+        setCapability(capability, false);
+    }
+
+    public void cullFace(int mode) {
+        if (cullFaceMode == mode) {
+            skippedCalls++;
+            return;
+        }
+        cullFaceMode = mode;
+        gl.cullFace(mode);
+        issuedCalls++;
+    }
+
+    public void depthMask(boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (depthMask == value) {
+            skippedCalls++;
+            return;
+        }
+        depthMask = value;
+        gl.depthMask(enabled);
+        issuedCalls++;
+    }
+
+    // Avisa que o VAO foi apagado: o OpenGL pode reutilizar o ID para um VAO novo, com todos os atributos desativados
+    public void vertexArrayDeleted(int vao) {
+        vertexAttribs.put(vao, 0);
+        if (this.vao == vao) {
+            this.vao = 0;
+        }
+        for (int i = 0; i < vertexArrayListeners.size(); i++) {
+            vertexArrayListeners.get(i).vertexArrayDeleted(vao);
+        }
+    }
+
+    public void addVertexArrayListener(VertexArrayListener listener) {
+        vertexArrayListeners.add(listener);
+    }
+
+    public void removeVertexArrayListener(VertexArrayListener listener) {
+        vertexArrayListeners.remove(listener);
+    }
+
+    // Avisa que a textura foi apagada: o OpenGL volta a textura 0 nas unidades em que ela estava
+    public void textureDeleted(int texture) {
+        for (int unit = 0; unit < TEXTURE_UNITS; unit++) {
+            if (textures[unit] == texture) {
+                textures[unit] = 0;
+            }
+        }
+    }
+
+    // Esquece o estado global conhecido (programa, texturas, capacidades): as próximas chamadas serão repassadas.
+    // O VAO associado e os atributos ativos de cada VAO são mantidos: código de fora do motor (ex.: Slick) não mexe
+    // em VAOs, e sem saber qual VAO está associado não daria para registrar os atributos ativados nele.
+    public void invalidate() {
+        program = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(textures, UNKNOWN);
+        cullFaceMode = UNKNOWN;
+        depthMask = UNKNOWN;
+        capabilities = new LongIntHashMap(8);
+    }
+
+    // Chamadas repassadas ao OpenGL e evitadas desde o último resetCounters()
+    public long getIssuedCalls() {
+        return issuedCalls;
+    }
+
+    public long getSkippedCalls() {
+        return skippedCalls;
+    }
+
+    public void resetCounters() {
+        issuedCalls = 0;
+        skippedCalls = 0;
+    }
+
+    // Repassa ao OpenGL só os atributos que mudam de "current" para "target"
+    private void applyVertexAttribArrays(int current, int target) {
+        int changed = current ^ target;
+        if (changed == 0) {
+            return;
+        }
+        while (changed != 0) {
+            int index = Integer.numberOfTrailingZeros(changed);
+            gl.setVertexAttribArray(index, (target & (1 << index)) != 0);
+            issuedCalls++;
+            changed &= changed - 1;
+        }
+        vertexAttribs.put(vao, target);
+    }
+
+    private void setCapability(int capability, boolean enabled) {
+        int value = enabled ? 1 : 0;
+        if (capabilities.get(capability, UNKNOWN) == value) {
+            skippedCalls++;
+            return;
+        }
+        capabilities.put(capability, value);
+        gl.setCapability(capability, enabled);
+        issuedCalls++;
+    }
+}
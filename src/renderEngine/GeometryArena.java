@@ -0,0 +1,222 @@
+package renderEngine;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL31;
+
+import models.RawModel;
+
+/**
+    Buffers de geometria compartilhados por vários modelos estáticos (terrenos e entidades).
+    Todos os modelos alocados aqui usam o mesmo VAO, com um VBO de vértices intercalados (VertexLayout.INTERLEAVED)
+    e um index buffer, divididos entre os modelos por dois FreeListAllocator (um em vértices e outro em índices).
+    Cada RawModel guarda seu firstIndex e baseVertex, e os renderizadores desenham com glDrawElementsBaseVertex,
+    sem trocar de VAO entre modelos.
+ */
+public class GeometryArena {
+
+    private int vaoID;
+    private int vertexVbo;
+    private int indexVbo;
+    private FreeListAllocator vertexAllocator;
+    private FreeListAllocator indexAllocator;
+    // Modelos alocados no arena, atualizados quando os buffers são compactados
+    private List<RawModel> models = new ArrayList<RawModel>();
+
+    public GeometryArena(int vertexCapacity, int indexCapacity) {
+        vertexAllocator = new FreeListAllocator(vertexCapacity);
+        indexAllocator = new FreeListAllocator(indexCapacity);
+        vaoID = GL30.glGenVertexArrays();
+        vertexVbo = createBuffer((long) vertexCapacity * VertexLayout.INTERLEAVED_STRIDE);
+        indexVbo = createBuffer((long) indexCapacity * 4);
+        bindBuffersToVAO();
+    }
+
+    // Copia um modelo para os buffers compartilhados, compactando ou aumentando os buffers se faltar espaço.
+    // Retorna null só para modelos vazios.
+    public RawModel allocate(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        return allocate(FloatBuffer.wrap(positions), FloatBuffer.wrap(textureCoords), FloatBuffer.wrap(normals), IntBuffer.wrap(indices));
+    }
+
+    // Mesma função, lendo o conteúdo restante dos buffers (sem alterar suas posições). Os atributos são intercalados
+    // direto no buffer de envio, e um index buffer direto (ex.: mapeado de um arquivo pelo MeshCache) é enviado sem cópia.
+    public RawModel allocate(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals, IntBuffer indices) {
+        int vertexCount = positions.remaining() / 3;
+        int indexCount = indices.remaining();
+        if (vertexCount == 0 || indexCount == 0) {
+            return null;
+        }
+        if (!fits(vertexCount, indexCount)) {
+            // Compactar só ajuda se o espaço livre total for suficiente; senão os buffers crescem, e o espaço novo
+            // fica no fim, contínuo (evita copiar os buffers inteiros a cada modelo quando o arena está cheio)
+            if (vertexAllocator.getFreeSpace() < vertexCount || indexAllocator.getFreeSpace() < indexCount) {
+                grow(vertexCount, indexCount);
+            } else {
+                compact();
+            }
+        }
+        int baseVertex = vertexAllocator.allocate(vertexCount);
+        int firstIndex = indexAllocator.allocate(indexCount);
+
+        FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertexCount * VertexLayout.INTERLEAVED_FLOATS);
+        VertexLayout.interleave(positions, textureCoords, normals, vertexBuffer);
+        vertexBuffer.flip();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vertexVbo);
+        GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, (long) baseVertex * VertexLayout.INTERLEAVED_STRIDE, vertexBuffer);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+        // Os índices continuam relativos ao próprio modelo; o baseVertex é somado pela GPU no momento do desenho.
+        // O index buffer é vinculado em GL_COPY_WRITE_BUFFER para não depender do VAO ativo.
+        IntBuffer indexBuffer = indices;
+        if (!indices.isDirect()) {
+            // O LWJGL só aceita buffers diretos
+            indexBuffer = BufferUtils.createIntBuffer(indexCount);
+            indexBuffer.put(indices.duplicate()).flip();
+        }
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, indexVbo);
+        GL15.glBufferSubData(GL31.GL_COPY_WRITE_BUFFER, (long) firstIndex * 4, indexBuffer);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+
+        RawModel model = new RawModel(vaoID, indexCount);
+        model.setBaseVertex(baseVertex);
+        model.setFirstIndex(firstIndex);
+        models.add(model);
+        return model;
+    }
+
+    // Devolve o espaço de um modelo ao arena (o RawModel não deve mais ser desenhado)
+    public void free(RawModel model) {
+        if (models.remove(model)) {
+            vertexAllocator.free(model.getBaseVertex());
+            indexAllocator.free(model.getFirstIndex());
+        }
+    }
+
+    // Junta todos os modelos no início dos buffers, eliminando os buracos deixados por free()
+    public void compact() {
+        // Guarda os tamanhos dos blocos antes que o alocador seja reorganizado
+        Map<Integer, Integer> vertexSizes = new HashMap<Integer, Integer>();
+        Map<Integer, Integer> indexSizes = new HashMap<Integer, Integer>();
+        for (RawModel model : models) {
+            vertexSizes.put(model.getBaseVertex(), vertexAllocator.getSize(model.getBaseVertex()));
+            indexSizes.put(model.getFirstIndex(), indexAllocator.getSize(model.getFirstIndex()));
+        }
+        Map<Integer, Integer> vertexMoves = vertexAllocator.compact();
+        Map<Integer, Integer> indexMoves = indexAllocator.compact();
+
+        // Os blocos podem se sobrepor ao serem movidos, então os dados são copiados para buffers novos
+        int newVertexVbo = createBuffer((long) vertexAllocator.getCapacity() * VertexLayout.INTERLEAVED_STRIDE);
+        int newIndexVbo = createBuffer((long) indexAllocator.getCapacity() * 4);
+        copyBlocks(vertexVbo, newVertexVbo, vertexMoves, vertexSizes, VertexLayout.INTERLEAVED_STRIDE);
+        copyBlocks(indexVbo, newIndexVbo, indexMoves, indexSizes, 4);
+        GL15.glDeleteBuffers(vertexVbo);
+        GL15.glDeleteBuffers(indexVbo);
+        vertexVbo = newVertexVbo;
+        indexVbo = newIndexVbo;
+        bindBuffersToVAO();
+
+        for (RawModel model : models) {
+            model.setBaseVertex(vertexMoves.get(model.getBaseVertex()));
+            model.setFirstIndex(indexMoves.get(model.getFirstIndex()));
+        }
+    }
+
+    // Aumenta os buffers (pelo menos dobrando) para que caibam mais vertexCount vértices e indexCount índices
+    // contínuos no fim. Os modelos não mudam de posição: o conteúdo antigo é copiado para o início dos buffers novos.
+    private void grow(int vertexCount, int indexCount) {
+        int vertexCapacity = vertexAllocator.getCapacity();
+        int indexCapacity = indexAllocator.getCapacity();
+        if (vertexAllocator.getLargestFreeBlock() < vertexCount) {
+            vertexAllocator.grow(Math.max(vertexCapacity * 2, vertexCapacity + vertexCount));
+            vertexVbo = growBuffer(vertexVbo, (long) vertexCapacity * VertexLayout.INTERLEAVED_STRIDE,
+                    (long) vertexAllocator.getCapacity() * VertexLayout.INTERLEAVED_STRIDE);
+        }
+        if (indexAllocator.getLargestFreeBlock() < indexCount) {
+            indexAllocator.grow(Math.max(indexCapacity * 2, indexCapacity + indexCount));
+            indexVbo = growBuffer(indexVbo, (long) indexCapacity * 4, (long) indexAllocator.getCapacity() * 4);
+        }
+        bindBuffersToVAO();
+    }
+
+    // Cria um buffer de newSize bytes com os oldSize primeiros bytes de "buffer" e apaga o antigo
+    private int growBuffer(int buffer, long oldSize, long newSize) {
+        int newBuffer = createBuffer(newSize);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, buffer);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, newBuffer);
+        GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER, 0, 0, oldSize);
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+        GL15.glDeleteBuffers(buffer);
+        return newBuffer;
+    }
+
+    // Libera o VAO e os buffers do arena
+    public void cleanUp() {
+        GL30.glDeleteVertexArrays(vaoID);
+        GLStateCache.getDefault().vertexArrayDeleted(vaoID);
+        GL15.glDeleteBuffers(vertexVbo);
+        GL15.glDeleteBuffers(indexVbo);
+    }
+
+    public int getVaoID() {
+        return vaoID;
+    }
+
+    public FreeListAllocator getVertexAllocator() {
+        return vertexAllocator;
+    }
+
+    public FreeListAllocator getIndexAllocator() {
+        return indexAllocator;
+    }
+
+    // Verifica se há blocos livres contínuos suficientes para os vértices e os índices
+    private boolean fits(int vertexCount, int indexCount) {
+        return vertexAllocator.getLargestFreeBlock() >= vertexCount && indexAllocator.getLargestFreeBlock() >= indexCount;
+    }
+
+    // Cria um buffer vazio do tamanho informado (em bytes)
+    private int createBuffer(long size) {
+        int vbo = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, size, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        return vbo;
+    }
+
+    // Associa os buffers atuais ao VAO: index buffer e atributos 0, 1 e 2 intercalados
+    private void bindBuffersToVAO() {
+        GLStateCache.getDefault().bindVertexArray(vaoID);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexVbo);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vertexVbo);
+        GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.POSITION_OFFSET);
+        GL20.glVertexAttribPointer(1, 2, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.TEXTURE_OFFSET);
+        GL20.glVertexAttribPointer(2, 3, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.NORMAL_OFFSET);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        GLStateCache.getDefault().bindVertexArray(0);
+    }
+
+    // Copia cada bloco do buffer antigo para a nova posição no buffer novo (na GPU, sem passar pela CPU)
+    private void copyBlocks(int source, int destination, Map<Integer, Integer> moves, Map<Integer, Integer> sizes, int unitSize) {
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, source);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, destination);
+        for (Map.Entry<Integer, Integer> move : moves.entrySet()) {
+            long size = (long) sizes.get(move.getKey()) * unitSize;
+            GL31.glCopyBufferSubData(GL31.GL_COPY_READ_BUFFER, GL31.GL_COPY_WRITE_BUFFER,
+                    (long) move.getKey() * unitSize, (long) move.getValue() * unitSize, size);
+        }
+        GL15.glBindBuffer(GL31.GL_COPY_READ_BUFFER, 0);
+        GL15.glBindBuffer(GL31.GL_COPY_WRITE_BUFFER, 0);
+    }
+
+}
@@ -0,0 +1,127 @@
+package renderEngine;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import entities.Entity;
+import entities.EntityStore;
+import toolbox.Frustum;
+import toolbox.JobSystem;
+
+/**
+    Prepara, em paralelo, os dados de um lote instanciado: testa cada entidade contra o frustum e copia a matriz
+    das visíveis para uma área de preparação (staging). Cada bloco de entidades do JobSystem escreve na sua própria
+    fatia da área de preparação; no fim as fatias são juntadas, em ordem, no buffer de saída.
+    Não faz chamadas OpenGL: para a thread do contexto sobram só o envio do buffer e o desenho.
+ */
+public class InstanceDataBuilder {
+
+    // Entidades por bloco: pequeno o bastante para balancear entre as threads, grande o bastante para diluir o custo da tarefa
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+    private static final int MATRIX_SIZE = 16;
+
+    private final JobSystem jobs;
+    private final int chunkSize;
+
+    // Área de preparação (16 floats por entidade do lote) e quantidade de matrizes escritas por bloco
+    private float[] staging = new float[0];
+    private int[] chunkCounts = new int[0];
+    // Vetor temporário de cada bloco (centro da esfera envolvente), criado uma vez e reutilizado a cada quadro
+    private Vector3f[] chunkCenters = new Vector3f[0];
+
+    // Parâmetros do lote em preparação, lidos pelas tarefas
+    private List<Entity> batch;
+    private int batchStart;
+    private Frustum frustum;
+    private final JobSystem.RangeJob cullAndStore = new JobSystem.RangeJob() {
+        @Override
+        public void run(int chunk, int from, int to) {
+            cullAndStore(chunk, from, to);
+        }
+    };
+
+    // Matrizes que estavam desatualizadas e foram recalculadas na última chamada de build()
+    private int transformsRebuilt;
+
+    public InstanceDataBuilder(JobSystem jobs) {
+        this(jobs, DEFAULT_CHUNK_SIZE);
+    }
+
+    public InstanceDataBuilder(JobSystem jobs, int chunkSize) {
+        this.jobs = jobs;
+        this.chunkSize = chunkSize;
+    }
+
+    // Escreve em "out" as matrizes das entidades visíveis de batch[start, end), na ordem do lote.
+    // Com frustum null nenhuma entidade é descartada. Retorna a quantidade de matrizes escritas.
+    public int build(List<Entity> batch, int start, int end, Frustum frustum, FloatBuffer out) {
+        int count = end - start;
+        // As matrizes desatualizadas são recalculadas aqui, na thread atual, uma vez por armazenamento
+        // (EntityStore.updateMatrices monta em lote com o TransformBatch): as tarefas só leem o EntityStore
+        transformsRebuilt = 0;
+        EntityStore updated = null;
+        for (int i = start; i < end; i++) {
+            EntityStore store = batch.get(i).getStore();
+            if (store != updated) {
+                // Chamar de novo para o mesmo armazenamento não custa nada: não há mais matrizes desatualizadas
+                transformsRebuilt += store.updateMatrices();
+                updated = store;
+            }
+        }
+        if (staging.length < count * MATRIX_SIZE) {
+            staging = new float[count * MATRIX_SIZE];
+        }
+        int chunks = JobSystem.chunkCount(count, chunkSize);
+        if (chunkCounts.length < chunks) {
+            chunkCounts = new int[chunks];
+            Vector3f[] centers = Arrays.copyOf(chunkCenters, chunks);
+            for (int chunk = chunkCenters.length; chunk < chunks; chunk++) {
+                centers[chunk] = new Vector3f();
+            }
+            chunkCenters = centers;
+        }
+
+        this.batch = batch;
+        this.batchStart = start;
+        this.frustum = frustum;
+        jobs.parallelFor(count, chunkSize, cullAndStore);
+        this.batch = null;
+        this.frustum = null;
+
+        // Junta as fatias, em ordem, no buffer de saída
+        int written = 0;
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            out.put(staging, chunk * chunkSize * MATRIX_SIZE, chunkCounts[chunk] * MATRIX_SIZE);
+            written += chunkCounts[chunk];
+        }
+        return written;
+    }
+
+    public int getTransformsRebuilt() {
+        return transformsRebuilt;
+    }
+
+    // Tarefa de um bloco: [from, to) são relativos ao início do lote; escreve a partir de from na área de preparação
+    private void cullAndStore(int chunk, int from, int to) {
+        Vector3f center = chunkCenters[chunk];
+        int written = 0;
+        int target = from * MATRIX_SIZE;
+        for (int i = from; i < to; i++) {
+            Entity entity = batch.get(batchStart + i);
+            if (frustum != null && entity.getModel().getRawModel().hasBounds()) {
+                entity.getBoundingCenter(center);
+                if (!frustum.testSphere(center.x, center.y, center.z, entity.getBoundingRadius())) {
+                    continue;
+                }
+            }
+            EntityStore store = entity.getStore();
+            System.arraycopy(store.getMatrices(), entity.getIndex() * EntityStore.MATRIX_STRIDE, staging, target, MATRIX_SIZE);
+            target += MATRIX_SIZE;
+            written++;
+        }
+        chunkCounts[chunk] = written;
+    }
+}
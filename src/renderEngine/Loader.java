@@ -3,16 +3,21 @@ package renderEngine;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.util.vector.Vector3f;
 import org.newdawn.slick.opengl.Texture;
 import org.newdawn.slick.opengl.TextureLoader;
 
@@ -24,9 +29,48 @@ public class Loader {
     private List<Integer> vaos = new ArrayList<Integer>();
     private List<Integer> vbos = new ArrayList<Integer>();
     private List<Integer> textures = new ArrayList<Integer>();
+    // VBOs de cada VAO, para liberar um modelo sozinho (unloadModel) antes do cleanUp
+    private Map<Integer, List<Integer>> vaoBuffers = new HashMap<Integer, List<Integer>>();
+    private List<Integer> currentVaoBuffers;
+    // Buffers compartilhados para os modelos estáticos (null enquanto useGeometryArena não for chamado)
+    private GeometryArena geometryArena;
+
+    // Passa a colocar os modelos carregados por loadToVAO (sem VertexLayout) em buffers compartilhados,
+    // desenhados todos a partir de um único VAO. As capacidades iniciais crescem quando os modelos não cabem.
+    public void useGeometryArena(int vertexCapacity, int indexCapacity) {
+        if (geometryArena == null) {
+            geometryArena = new GeometryArena(vertexCapacity, indexCapacity);
+        }
+    }
+
+    public GeometryArena getGeometryArena() {
+        return geometryArena;
+    }
 
    // Carrega um modelo 3D para um Vertex Array Object (VAO) e retorna um objeto RawModel que contém o ID do VAO criado e o número de índices no modelo.
     public RawModel loadToVAO(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        if (geometryArena != null) {
+            RawModel model = geometryArena.allocate(positions, textureCoords, normals, indices);
+            if (model != null) {
+                return withBounds(model, FloatBuffer.wrap(positions));
+            }
+        }
+        return loadToVAO(positions, textureCoords, normals, indices, VertexLayout.SEPARATE);
+    }
+
+    // Mesma função de loadToVAO, escolhendo como os atributos são organizados nos VBOs (ver VertexLayout).
+    public RawModel loadToVAO(float[] positions, float[] textureCoords, float[] normals, int[] indices, VertexLayout layout) {
+        if (layout == VertexLayout.INTERLEAVED) {
+            int vaoID = createVAO();
+            bindIndicesBuffer(indices);
+            // Um único VBO com os três atributos de cada vértice lado a lado
+            storeInterleavedData(VertexLayout.interleave(positions, textureCoords, normals));
+            unbindVAO();
+            return withBounds(new RawModel(vaoID, indices.length), FloatBuffer.wrap(positions));
+        }
+        if (layout == VertexLayout.QUANTIZED) {
+            return withBounds(loadQuantizedToVAO(positions, textureCoords, normals, indices), FloatBuffer.wrap(positions));
+        }
         // Cria um novo VAO e retorna seu ID. O VAO será usado para armazenar dados geométricos do modelo 3D.
         int vaoID = createVAO();
         // Cria um index buffer e o associa ao VAO atual. O index buffer contém os índices que conectam os vértices para formar triângulos.
@@ -39,8 +83,30 @@ public class Loader {
         storeDataInAttributeList(2, 3, normals);
         // Desfaz o vínculo com o VAO atual após terminar de armazenar os dados.
         unbindVAO();
-        // Retorna um novo objeto RawModel, que contém o ID do VAO criado e o número de índices no modelo.
-        return new RawModel(vaoID, indices.length);
+        // Retorna um novo objeto RawModel, que contém o ID do VAO criado e o número de índices no modelo,
+        // junto com a caixa envolvente das posições (usada no frustum culling).
+        return withBounds(new RawModel(vaoID, indices.length), FloatBuffer.wrap(positions));
+    }
+
+    // Mesma função de loadToVAO, mas recebendo os dados já em buffers diretos (por exemplo, mapeados de um arquivo pelo MeshCache),
+    // evitando a cópia intermediária para arrays. Com o GeometryArena ativo os atributos ainda são intercalados (uma
+    // passada, direto no buffer de envio), mas os índices vão do buffer mapeado para a GPU sem cópia.
+    public RawModel loadToVAO(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals, IntBuffer indices) {
+        if (geometryArena != null) {
+            RawModel model = geometryArena.allocate(positions, textureCoords, normals, indices);
+            if (model != null) {
+                return withBounds(model, positions);
+            }
+        }
+        int vaoID = createVAO();
+        // O número de índices é a quantidade de elementos restantes no buffer de índices.
+        int indexCount = indices.remaining();
+        bindIndicesBuffer(indices);
+        storeDataInAttributeList(0, 3, positions);
+        storeDataInAttributeList(1, 2, textureCoords);
+        storeDataInAttributeList(2, 3, normals);
+        unbindVAO();
+        return withBounds(new RawModel(vaoID, indexCount), positions);
     }
 
     // Carrega uma textura a partir de um arquivo e retorna o ID da textura.
@@ -56,16 +122,40 @@ public class Loader {
         }
         // Obtém o ID da textura carregada e adiciona-o à lista de texturas rastreadas pela classe.
         int textureID = texture.getTextureID();
+        // O TextureLoader associa a textura por conta própria, sem passar pelo GLStateCache
+        GLStateCache.getDefault().invalidate();
         textures.add(textureID);
         // Retorna o ID da textura para uso posterior.
         return textureID;
     }
 
+    // Libera na GPU a geometria de um único modelo (ex.: terrenos que saíram de perto da câmera): o espaço no
+    // GeometryArena ou o VAO próprio e os seus VBOs. O RawModel não deve mais ser desenhado depois disso.
+    public void unloadModel(RawModel model) {
+        int vaoID = model.getVaoID();
+        if (geometryArena != null && vaoID == geometryArena.getVaoID()) {
+            geometryArena.free(model);
+            return;
+        }
+        List<Integer> buffers = vaoBuffers.remove(vaoID);
+        if (buffers == null) {
+            return;
+        }
+        GL30.glDeleteVertexArrays(vaoID);
+        GLStateCache.getDefault().vertexArrayDeleted(vaoID);
+        vaos.remove(Integer.valueOf(vaoID));
+        for (int vbo : buffers) {
+            GL15.glDeleteBuffers(vbo);
+            vbos.remove(Integer.valueOf(vbo));
+        }
+    }
+
     // Limpa e deleta todos os VAOs, VBOs e texturas criadas pela classe.
     public void cleanUp() {
         // Itera sobre todos os VAOs criados e deleta-os da memória de vídeo (GPU).
         for (int vao : vaos) {
             GL30.glDeleteVertexArrays(vao);
+            GLStateCache.getDefault().vertexArrayDeleted(vao);
         }
         // Itera sobre todos os VBOs criados e deleta-os da memória de vídeo (GPU). Isso também inclui o index buffer criado anteriormente.
         for (int vbo : vbos) {
@@ -74,6 +164,11 @@ public class Loader {
         // Itera sobre todas as texturas carregadas e deleta-as da memória de vídeo (GPU).
         for (int texture : textures) {
             GL11.glDeleteTextures(texture);
+            GLStateCache.getDefault().textureDeleted(texture);
+        }
+        // Deleta os buffers compartilhados, se estiverem em uso.
+        if (geometryArena != null) {
+            geometryArena.cleanUp();
         }
     }
 
@@ -83,22 +178,28 @@ public class Loader {
         int vaoID = GL30.glGenVertexArrays();
         // Adiciona o ID do novo VAO à lista de VAOs rastreados pela classe.
         vaos.add(vaoID);
+        currentVaoBuffers = new ArrayList<Integer>();
+        vaoBuffers.put(vaoID, currentVaoBuffers);
         // Vincula o novo VAO, tornando-o o VAO ativo que será usado para armazenar e renderizar dados geométricos.
-        GL30.glBindVertexArray(vaoID);
+        GLStateCache.getDefault().bindVertexArray(vaoID);
         // Retorna o ID do VAO criado.
         return vaoID;
     }
 
     // Armazena dados em um atributo de um VAO, como as posições dos vértices ou as coordenadas de textura.
     private void storeDataInAttributeList(int attributeNumber, int coordinateSize, float[] data) {
+        // Converte os dados de posição do array de float para um FloatBuffer para que possam ser armazenados no VBO.
+        storeDataInAttributeList(attributeNumber, coordinateSize, storeDataInFloatBuffer(data));
+    }
+
+    // Armazena os dados de um FloatBuffer direto em um atributo do VAO atual.
+    private void storeDataInAttributeList(int attributeNumber, int coordinateSize, FloatBuffer buffer) {
         // Gera um ID para um novo VBO usando glGenBuffers() do OpenGL.
         int vboID = GL15.glGenBuffers();
         // Adiciona o ID do novo VBO à lista de VBOs rastreados pela classe.
-        vbos.add(vboID);
+        trackBuffer(vboID);
         // Vincula o novo VBO, tornando-o o VBO ativo que será usado para armazenar os dados do atributo.
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
-        // Converte os dados de posição do array de float para um FloatBuffer para que possam ser armazenados no VBO.
-        FloatBuffer buffer = storeDataInFloatBuffer(data);
         // Armazena os dados no VBO usando glBufferData(). GL_STATIC_DRAW indica que os dados não serão modificados após serem armazenados.
         GL15.glBufferData(GL15.GL_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
         // Define como os dados do VBO serão interpretados pelos shaders. Neste caso, os dados serão interpretados como atributos de vértice com 3 valores de ponto flutuante (x, y, z).
@@ -107,26 +208,81 @@ public class Loader {
         GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
     }
 
+    // Carrega o modelo no formato compactado de VertexLayout.QUANTIZED.
+    private RawModel loadQuantizedToVAO(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+        int vertexCount = positions.length / 3;
+        // A caixa envolvente define como as posições de 16 bits voltam às coordenadas originais no vertex shader
+        float[] bounds = VertexQuantizer.computeBounds(positions);
+        int indexType = VertexQuantizer.chooseIndexType(vertexCount);
+        int vaoID = createVAO();
+
+        int indexVbo = GL15.glGenBuffers();
+        trackBuffer(indexVbo);
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, indexVbo);
+        GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, VertexQuantizer.packIndices(indices, indexType), GL15.GL_STATIC_DRAW);
+
+        int vboID = GL15.glGenBuffers();
+        trackBuffer(vboID);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        ByteBuffer vertexData = VertexQuantizer.quantizeVertices(positions, textureCoords, normals, bounds);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertexData, GL15.GL_STATIC_DRAW);
+        // Posição: 3 x 16 bits sem sinal, normalizados para [0, 1]
+        GL20.glVertexAttribPointer(0, 3, GL11.GL_UNSIGNED_SHORT, true, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.POSITION_OFFSET);
+        // Coordenadas de textura: 2 x half float
+        GL20.glVertexAttribPointer(1, 2, GL30.GL_HALF_FLOAT, false, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.TEXTURE_OFFSET);
+        // Normal: 10-10-10-2 com sinal, normalizada para [-1, 1] (o componente w é ignorado pelo shader)
+        GL20.glVertexAttribPointer(2, 4, GL33.GL_INT_2_10_10_10_REV, true, VertexQuantizer.VERTEX_SIZE, VertexQuantizer.NORMAL_OFFSET);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        unbindVAO();
+
+        Vector3f positionOffset = new Vector3f(bounds[0], bounds[1], bounds[2]);
+        Vector3f positionScale = new Vector3f(bounds[3], bounds[4], bounds[5]);
+        return new RawModel(vaoID, indices.length, indexType, positionOffset, positionScale);
+    }
+
+    // Armazena os dados intercalados (posição, textura e normal) em um único VBO e aponta os atributos 0, 1 e 2 para ele.
+    private void storeInterleavedData(float[] data) {
+        int vboID = GL15.glGenBuffers();
+        trackBuffer(vboID);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vboID);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, storeDataInFloatBuffer(data), GL15.GL_STATIC_DRAW);
+        // Cada atributo lê a partir do seu deslocamento dentro do vértice e pula o vértice inteiro (stride) para o próximo.
+        GL20.glVertexAttribPointer(0, 3, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.POSITION_OFFSET);
+        GL20.glVertexAttribPointer(1, 2, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.TEXTURE_OFFSET);
+        GL20.glVertexAttribPointer(2, 3, GL11.GL_FLOAT, false, VertexLayout.INTERLEAVED_STRIDE, VertexLayout.NORMAL_OFFSET);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
     // Desfaz o vínculo com o VAO atual, indicando o término do armazenamento de dados.
     private void unbindVAO() {
         // Desfaz o vínculo com o VAO atual após terminar de armazenar os dados.
-        GL30.glBindVertexArray(0);
+        GLStateCache.getDefault().bindVertexArray(0);
     }
 
     // Cria um novo Vertex Buffer Object (VBO) para o index buffer, que contém os índices para desenhar os triângulos do modelo.
     private void bindIndicesBuffer(int[] indices) {
+        // Converte os índices do array de int para um IntBuffer para que possam ser armazenados no VBO.
+        bindIndicesBuffer(storeDataInIntBuffer(indices));
+    }
+
+    // Cria o index buffer do VAO atual a partir de um IntBuffer direto.
+    private void bindIndicesBuffer(IntBuffer buffer) {
         // Gera um ID para um novo VBO que será usado como index buffer.
         int vboId = GL15.glGenBuffers();
         // Adiciona o ID do novo VBO à lista de VBOs rastreados pela classe.
-        vbos.add(vboId);
+        trackBuffer(vboId);
         // Vincula o novo VBO como o index buffer ativo para o VAO atual.
         GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, vboId);
-        // Converte os índices do array de int para um IntBuffer para que possam ser armazenados no VBO.
-        IntBuffer buffer = storeDataInIntBuffer(indices);
         // Armazena os índices no index buffer usando glBufferData(). GL_STATIC_DRAW indica que os dados não serão modificados após serem armazenados.
         GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, buffer, GL15.GL_STATIC_DRAW);
     }
 
+    // Registra um VBO criado para o VAO atual (apagado no cleanUp ou junto com o modelo em unloadModel).
+    private void trackBuffer(int vboID) {
+        vbos.add(vboID);
+        currentVaoBuffers.add(vboID);
+    }
+
     // Cria e retorna um novo IntBuffer com os dados de um array de int.
     private IntBuffer storeDataInIntBuffer(int[] data) {
         // Cria um novo IntBuffer com tamanho igual ao comprimento do array data. O IntBuffer é um buffer especializado que contém dados do tipo int.
@@ -151,4 +307,24 @@ public class Loader {
         return buffer;
     }
 
+    // Calcula a caixa envolvente (AABB) das posições (x, y, z) e a guarda no modelo.
+    private RawModel withBounds(RawModel model, FloatBuffer positions) {
+        int start = positions.position();
+        int end = positions.limit();
+        if (end - start < 3) {
+            return model;
+        }
+        Vector3f min = new Vector3f(Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE);
+        Vector3f max = new Vector3f(-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE);
+        for (int i = start; i + 2 < end; i += 3) {
+            float x = positions.get(i);
+            float y = positions.get(i + 1);
+            float z = positions.get(i + 2);
+            min.set(Math.min(min.x, x), Math.min(min.y, y), Math.min(min.z, z));
+            max.set(Math.max(max.x, x), Math.max(max.y, y), Math.max(max.z, z));
+        }
+        model.setBounds(min, max);
+        return model;
+    }
+
 }
\ No newline at end of file
@@ -2,30 +2,43 @@ package renderEngine;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.lwjgl.opengl.Display;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
 
 import entities.Camera;
 import entities.Entity;
+import entities.EntityOctree;
 import entities.Light;
+import models.RawModel;
 import models.TexturedModel;
+import shaders.InstancedShader;
+import shaders.ShaderProgram;
 import shaders.StaticShader;
 import shaders.TerrainShader;
 import terrains.Terrain;
+import terrains.TerrainLod;
+import toolbox.Frustum;
+import toolbox.JobSystem;
+import toolbox.Maths;
 
 public class MasterRenderer {
 
     private static final float FOV = 70;
 	private static final float NEAR_PLANE = 0.1f;
 	private static final float FAR_PLANE = 1000;
+    // Erro máximo, em pixels, da malha simplificada dos terrenos (TerrainLod)
+    private static final float DEFAULT_TERRAIN_PIXEL_ERROR = 2;
     private Matrix4f projectionMatrix;
 	
     // Declaração de um objeto StaticShader e um objeto Renderer
     private StaticShader shader = new StaticShader();
+    private InstancedShader instancedShader = new InstancedShader();
     private EntityRenderer renderer;
     private TerrainRenderer terrainRenderer;
     private TerrainShader terrainShader = new TerrainShader();
@@ -33,50 +46,292 @@ public class MasterRenderer {
     // Mapa para armazenar uma lista de entidades (Entity) associadas a cada modelo texturizado (TexturedModel)
     private Map<TexturedModel, List<Entity>> entities = new HashMap<TexturedModel, List<Entity>>();
     private List<Terrain> terrains = new ArrayList<Terrain>();
+
+    // Frustum culling: descarta, antes de desenhar, entidades e terrenos fora do campo de visão da câmera
+    private Frustum frustum = new Frustum();
+    // Threads que dividem o trabalho de CPU do quadro (culling e matrizes dos lotes instanciados)
+    private JobSystem jobs = new JobSystem();
+    private boolean frustumCulling = true;
+    // Contadores do último quadro renderizado (objetos testados e descartados)
+    private int entitiesTested;
+    private int entitiesCulled;
+    // Entidades descartadas pela octree em processVisibleEntities desde o último quadro (somadas aos dois acima)
+    private int entitiesCulledByOctree;
+    private int terrainsTested;
+    private int terrainsCulled;
+    private int terrainTriangles;
+    private float terrainPixelError = DEFAULT_TERRAIN_PIXEL_ERROR;
+    // Reutilizados a cada quadro para não alocar durante o culling
+    private final Vector3f boundingCenter = new Vector3f();
+    private final List<Entity> visibleEntities = new ArrayList<Entity>();
+
+    // Fila de desenho do quadro, ordenada para minimizar trocas de estado, e quem a executa com o OpenGL
+    private final RenderQueue renderQueue = new RenderQueue();
+    private final QueueExecutor queueExecutor = new QueueExecutor();
+    // Estado do OpenGL compartilhado com os renderizadores e shaders, para pular chamadas redundantes
+    private final GLStateCache glState = GLStateCache.getDefault();
+    // Dados do quadro (projeção, câmera e luzes) compartilhados por todos os shaders
+    private final FrameUniformBuffer frameUniforms = new FrameUniformBuffer();
+    private final List<Light> lights = new ArrayList<Light>();
     
     public MasterRenderer(){
         // ativa o culling/ocultação de faces
-		GL11.glEnable(GL11.GL_CULL_FACE);
+		glState.enable(GL11.GL_CULL_FACE);
 		// este comando esconde as faces // o Padrão é (GL11.GL_BACK) para esconder as faces traseiras/ocultas porém (GL_FRONT) foi o parametro que funcionou para esta finalidade
-		GL11.glCullFace(GL11.GL_BACK);
+		glState.cullFace(GL11.GL_BACK);
         // GL11.glFrontFace(GL11.GL_CW);
         createProjectionMatrix();
-        renderer = new EntityRenderer(shader, projectionMatrix);
-        terrainRenderer = new TerrainRenderer(terrainShader, projectionMatrix);
+        renderer = new EntityRenderer(shader, instancedShader, jobs);
+        terrainRenderer = new TerrainRenderer(terrainShader);
     }
 
-    // Método para renderizar todas as entidades no mundo virtual
+    // Método para renderizar todas as entidades no mundo virtual, iluminadas por uma única luz
     public void render(Light sun, Camera camera) {
+        lights.clear();
+        lights.add(sun);
+        render(lights, camera);
+    }
+
+    // Renderiza com várias luzes (até FrameUniformBuffer.MAX_LIGHTS)
+    public void render(List<Light> lights, Camera camera) {
         // Preparar o renderer para iniciar o processo de renderização
         prepare();
-        
-        // Iniciar o shader estático (StaticShader) para processar as entidades
-        shader.start();
-        
-        // Carregar a luz do sol (sun) e a matriz de visualização da câmera (camera) no shader
-        shader.loadLight(sun);
-        shader.loadViewMatrix(camera);
-        
-        // Renderizar todas as entidades presentes no mapa "entities"
-        renderer.render(entities);
-        
-        // Parar o shader após renderização
-        shader.stop();
-        terrainShader.start();
-        terrainShader.loadLight(sun);
-        terrainShader.loadViewMatrix(camera);
-        terrainRenderer.render(terrains);
-        terrainShader.stop();
+        renderer.beginFrame();
+        ShaderProgram.resetUniformCounters();
+
+        // Projeção, câmera e luzes vão para o UBO uma vez por quadro, lido por todos os shaders
+        frameUniforms.update(projectionMatrix, camera, lights);
+
+        // Descartar o que está fora do campo de visão antes de enviar os lotes aos renderizadores
+        cullAgainstFrustum(camera);
+
+        // Nível de detalhe de cada patch dos terrenos visíveis, pelo erro projetado na tela
+        selectTerrainLevels(camera);
+
+        // Montar a fila de desenho do quadro e ordená-la por shader, textura, modelo e profundidade
+        fillRenderQueue(camera);
+        renderQueue.sort();
+
+        // Desenhar na ordem da fila, trocando shader, textura e modelo apenas quando mudam
+        queueExecutor.begin();
+        renderQueue.execute(queueExecutor);
+
+        renderQueue.clear();
         terrains.clear();
         // Limpar a lista de entidades após renderização para que esteja vazia na próxima iteração
         entities.clear();
     }
 
+    // Trocas de estado (shader, textura, modelo) feitas no último quadro
+    public int getShaderChanges() {
+        return queueExecutor.shaderChanges;
+    }
+
+    public int getTextureChanges() {
+        return queueExecutor.textureChanges;
+    }
+
+    public int getMeshChanges() {
+        return queueExecutor.meshChanges;
+    }
+
+    // Uniformes enviados e evitados (valor igual ao já guardado no programa) no último quadro
+    public int getUniformUploads() {
+        return ShaderProgram.getUniformUploads();
+    }
+
+    public int getUniformUploadsAvoided() {
+        return ShaderProgram.getUniformUploadsAvoided();
+    }
+
+    // Chamadas de estado repassadas ao OpenGL e puladas pelo GLStateCache desde o último resetGLStateCounters()
+    public long getGLCallsIssued() {
+        return glState.getIssuedCalls();
+    }
+
+    public long getGLCallsSkipped() {
+        return glState.getSkippedCalls();
+    }
+
+    public void resetGLStateCounters() {
+        glState.resetCounters();
+    }
+
+    // Coloca na fila as entidades (uma por item, ou o lote inteiro quando instanciado) e os terrenos do quadro
+    private void fillRenderQueue(Camera camera) {
+        Vector3f eye = camera.getPosition();
+        for (List<Entity> batch : entities.values()) {
+            TexturedModel model = batch.get(0).getModel();
+            RawModel rawModel = model.getRawModel();
+            int texture = renderQueue.textureKey(model.getTexture().getID());
+            int mesh = renderQueue.meshKey(rawModel.getVaoID(), rawModel.getId());
+            if (batch.size() >= renderer.getInstancingThreshold()) {
+                renderQueue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_INSTANCED,
+                        texture, mesh, 0), batch);
+                continue;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Entity entity = batch.get(i);
+                // Da frente para trás dentro do mesmo modelo, para aproveitar o teste de profundidade
+                entity.getBoundingCenter(boundingCenter);
+                float distance = Vector3f.sub(boundingCenter, eye, boundingCenter).length();
+                renderQueue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_STATIC,
+                        texture, mesh, RenderQueue.depthBucket(distance, FAR_PLANE)), entity);
+            }
+        }
+        for (int i = 0; i < terrains.size(); i++) {
+            Terrain terrain = terrains.get(i);
+            RawModel rawModel = terrain.getModel();
+            renderQueue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_TERRAIN,
+                    renderQueue.textureKey(terrain.getTexture().getID()), renderQueue.meshKey(rawModel.getVaoID(), rawModel.getId()), 0), terrain);
+        }
+    }
+
+    // Executa a RenderQueue com o OpenGL: ativa o shader, a textura e o modelo de cada item apenas quando mudam
+    private class QueueExecutor implements RenderQueue.RenderBackend {
+
+        private int shaderChanges;
+        private int textureChanges;
+        private int meshChanges;
+
+        void begin() {
+            shaderChanges = 0;
+            textureChanges = 0;
+            meshChanges = 0;
+        }
+
+        @Override
+        public void draw(long key, Object item, int changes) {
+            int shaderType = RenderQueue.getShader(key);
+            if ((changes & RenderQueue.SHADER_CHANGED) != 0) {
+                startShader(shaderType);
+                shaderChanges++;
+            }
+            if ((changes & RenderQueue.TEXTURE_CHANGED) != 0) {
+                textureChanges++;
+            }
+            if ((changes & RenderQueue.MESH_CHANGED) != 0) {
+                meshChanges++;
+            }
+            switch (shaderType) {
+            case RenderQueue.SHADER_TERRAIN: {
+                Terrain terrain = (Terrain) item;
+                if ((changes & RenderQueue.TEXTURE_CHANGED) != 0) {
+                    terrainRenderer.bindTexture(terrain.getTexture());
+                }
+                if ((changes & RenderQueue.MESH_CHANGED) != 0) {
+                    terrainRenderer.bindModel(terrain.getModel());
+                }
+                terrainRenderer.drawTerrain(terrain);
+                break;
+            }
+            case RenderQueue.SHADER_INSTANCED: {
+                @SuppressWarnings("unchecked")
+                List<Entity> batch = (List<Entity>) item;
+                bindEntityModel(batch.get(0).getModel(), changes, true);
+                entitiesCulled += renderer.drawInstanced(batch, frustumCulling ? frustum : null);
+                break;
+            }
+            default: {
+                Entity entity = (Entity) item;
+                bindEntityModel(entity.getModel(), changes, false);
+                renderer.drawEntity(entity);
+                break;
+            }
+            }
+        }
+
+        private void bindEntityModel(TexturedModel model, int changes, boolean instanced) {
+            if ((changes & RenderQueue.TEXTURE_CHANGED) != 0) {
+                renderer.bindTexture(model.getTexture(), instanced);
+            }
+            if ((changes & RenderQueue.MESH_CHANGED) != 0) {
+                renderer.bindModel(model.getRawModel(), instanced);
+            }
+        }
+
+        // Troca direto para o novo programa (sem glUseProgram(0) entre eles). Ao fim do quadro o último programa
+        // e o VAO continuam associados: o GLStateCache pula o rebind se o próximo quadro começar por eles.
+        private void startShader(int shaderType) {
+            if (shaderType == RenderQueue.SHADER_TERRAIN) {
+                terrainShader.start();
+            } else if (shaderType == RenderQueue.SHADER_INSTANCED) {
+                instancedShader.start();
+            } else {
+                shader.start();
+            }
+        }
+    }
+
+    // Quantidade de matrizes de transformação de entidades recalculadas no último quadro
+    // (entidades paradas reaproveitam a matriz em cache e não entram nesta conta)
+    public int getTransformsRebuilt() {
+        return renderer.getTransformsRebuilt();
+    }
+
+    // Liga ou desliga o frustum culling (com ele desligado todos os objetos são desenhados)
+    public void setFrustumCulling(boolean frustumCulling) {
+        this.frustumCulling = frustumCulling;
+    }
+
+    // Pool de tarefas do renderizador, também usado para trabalho de carregamento que pode ser dividido
+    // (ex.: TerrainMesh.generate)
+    public JobSystem getJobSystem() {
+        return jobs;
+    }
+
+    // Quantidade de entidades testadas contra o frustum no último quadro
+    public int getEntitiesTested() {
+        return entitiesTested;
+    }
+
+    // Quantidade de entidades descartadas (fora do campo de visão) no último quadro
+    public int getEntitiesCulled() {
+        return entitiesCulled;
+    }
+
+    // Quantidade de terrenos testados contra o frustum no último quadro
+    public int getTerrainsTested() {
+        return terrainsTested;
+    }
+
+    // Quantidade de terrenos descartados (fora do campo de visão) no último quadro
+    public int getTerrainsCulled() {
+        return terrainsCulled;
+    }
+
+    // Quantidade de triângulos de terreno desenhados no último quadro (com os níveis de detalhe escolhidos)
+    public int getTerrainTriangles() {
+        return terrainTriangles;
+    }
+
+    // Define o erro máximo, em pixels, aceito ao simplificar os terrenos (com 0 só os trechos planos são simplificados)
+    public void setTerrainPixelError(float terrainPixelError) {
+        this.terrainPixelError = terrainPixelError;
+    }
+
+    // Define a partir de quantas entidades de um mesmo modelo o lote é desenhado com instanciamento
+    public void setInstancingThreshold(int instancingThreshold) {
+        renderer.setInstancingThreshold(instancingThreshold);
+    }
+
     public void processTerrain(Terrain terrain){
         terrains.add(terrain);
     }
 
     // Método para processar uma entidade individual e adicioná-la à lista correta no mapa "entities"
+    // Envia para renderização apenas as entidades do índice espacial que tocam o frustum da câmera,
+    // descartando ramos inteiros da octree em vez de testar entidade por entidade
+    public void processVisibleEntities(EntityOctree octree, Camera camera) {
+        frustum.update(projectionMatrix, Maths.createViewMatrix(camera, Maths.getScratchMatrix()));
+        octree.queryFrustum(frustum, visibleEntities);
+        entitiesCulledByOctree += octree.size() - visibleEntities.size();
+        for (int i = 0; i < visibleEntities.size(); i++) {
+            processEntity(visibleEntities.get(i));
+        }
+        visibleEntities.clear();
+    }
+
     public void processEntity(Entity entity) {
         // Obter o modelo texturizado (TexturedModel) associado à entidade
         TexturedModel entityModel = entity.getModel();
@@ -98,12 +353,91 @@ public class MasterRenderer {
 	// Método para limpar recursos após o uso (no caso, limpar o shader)
 	public void cleanUp() {
         shader.cleanUp();
+        instancedShader.cleanUp();
+        renderer.cleanUp();
         terrainShader.cleanUp();
+        frameUniforms.cleanUp();
+        jobs.shutdown();
+    }
+
+    // Remove dos lotes as entidades e terrenos fora do frustum da câmera e atualiza os contadores do quadro
+    private void cullAgainstFrustum(Camera camera) {
+        // As entidades que a octree descartou também foram testadas contra o frustum
+        entitiesTested = entitiesCulledByOctree;
+        entitiesCulled = entitiesCulledByOctree;
+        entitiesCulledByOctree = 0;
+        terrainsTested = terrains.size();
+        terrainsCulled = 0;
+        for (List<Entity> batch : entities.values()) {
+            entitiesTested += batch.size();
+        }
+        if (!frustumCulling) {
+            return;
+        }
+        frustum.update(projectionMatrix, Maths.createViewMatrix(camera, Maths.getScratchMatrix()));
+
+        Iterator<List<Entity>> batches = entities.values().iterator();
+        while (batches.hasNext()) {
+            List<Entity> batch = batches.next();
+            // Lotes instanciados são testados em paralelo pelo EntityRenderer, junto com a montagem das matrizes
+            if (batch.size() >= renderer.getInstancingThreshold()) {
+                continue;
+            }
+            // Compacta a lista no próprio lugar, mantendo apenas as entidades visíveis
+            int visible = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Entity entity = batch.get(i);
+                if (isVisible(entity)) {
+                    batch.set(visible++, entity);
+                }
+            }
+            entitiesCulled += batch.size() - visible;
+            batch.subList(visible, batch.size()).clear();
+            if (batch.isEmpty()) {
+                batches.remove();
+            }
+        }
+
+        Iterator<Terrain> terrainIterator = terrains.iterator();
+        while (terrainIterator.hasNext()) {
+            if (!isVisible(terrainIterator.next())) {
+                terrainIterator.remove();
+                terrainsCulled++;
+            }
+        }
+    }
+
+    // Escolhe o nível de cada patch dos terrenos do quadro. pixelScale converte o erro geométrico dividido pela
+    // distância em pixels: metade da altura da tela vezes a escala y da projeção.
+    private void selectTerrainLevels(Camera camera) {
+        float pixelScale = Display.getHeight() * 0.5f * projectionMatrix.m11;
+        terrainTriangles = TerrainLod.select(terrains, camera.getPosition(), pixelScale, terrainPixelError);
+    }
+
+    // Testa a esfera envolvente da entidade contra o frustum
+    private boolean isVisible(Entity entity) {
+        if (!entity.getModel().getRawModel().hasBounds()) {
+            return true;
+        }
+        entity.getBoundingCenter(boundingCenter);
+        return frustum.testSphere(boundingCenter.x, boundingCenter.y, boundingCenter.z, entity.getBoundingRadius());
+    }
+
+    // Testa a caixa envolvente do terreno, deslocada para a posição do terreno, contra o frustum
+    private boolean isVisible(Terrain terrain) {
+        RawModel model = terrain.getModel();
+        if (!model.hasBounds()) {
+            return true;
+        }
+        Vector3f min = model.getBoundsMin();
+        Vector3f max = model.getBoundsMax();
+        return frustum.testAABB(min.x + terrain.getX(), min.y, min.z + terrain.getZ(),
+                max.x + terrain.getX(), max.y, max.z + terrain.getZ());
     }
 
     // Prepara a tela para renderização
 	public void prepare() {
-		GL11.glEnable(GL11.GL_DEPTH_TEST); // Ativa o teste de profundidade
+		glState.enable(GL11.GL_DEPTH_TEST); // Ativa o teste de profundidade
 		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT); // Limpa o buffer de cores e de profundidade
 		GL11.glClearColor(0.4f, 0.2f, 0.2f, 1); // Define a cor de fundo da tela (verde escuro)
 	}
@@ -0,0 +1,165 @@
+package renderEngine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import models.ModelData;
+import models.RawModel;
+
+/**
+	Cache binário das malhas carregadas pelo OBJLoader.
+	Na primeira leitura de "res/arquivo.obj" os arrays resultantes são gravados em "res/arquivo.mesh";
+	nas execuções seguintes o arquivo .mesh é mapeado na memória (FileChannel.map) e os buffers mapeados
+	são enviados diretamente para o Loader, sem passar pelo parse do texto.
+
+	Formato (little-endian):
+	  int  MAGIC, int VERSION
+	  long tamanho do .obj de origem, long CRC32 do .obj de origem
+	  int  nº de floats de posições, int nº de floats de texturas, int nº de floats de normais, int nº de índices
+	  float[] posições, float[] texturas, float[] normais, int[] índices
+ */
+public class MeshCache {
+
+	private static final String EXTENSION = ".mesh";
+	private static final int MAGIC = 0x4853454D; // "MESH" em little-endian
+	// Deve ser incrementada sempre que o formato ou o processamento do OBJLoader mudar, para invalidar caches antigos
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 * 4;
+
+	// Retorna o arquivo de cache correspondente a um .obj (mesmo diretório, extensão .mesh)
+	public static File getCacheFile(File source) {
+		String name = source.getName();
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0) {
+			name = name.substring(0, dot);
+		}
+		return new File(source.getParentFile(), name + EXTENSION);
+	}
+
+	// Carrega o modelo a partir do cache mapeado na memória.
+	// Retorna null quando o cache não existe, é de outra versão ou não corresponde mais ao .obj de origem.
+	public static RawModel load(File source, Loader loader) {
+		File cacheFile = getCacheFile(source);
+		if (!cacheFile.isFile() || !source.isFile()) {
+			return null;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r"); FileChannel channel = file.getChannel()) {
+			if (channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			// O cabeçalho é lido e validado antes de mapear: um cache desatualizado nunca fica mapeado, então
+			// write() pode substituí-lo logo em seguida (no Windows um arquivo mapeado não pode ser alterado)
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					return null;
+				}
+			}
+			header.flip();
+			// Validação: versão do formato, tamanho e hash do .obj de origem
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				return null;
+			}
+			long sourceLength = header.getLong();
+			long sourceHash = header.getLong();
+			if (sourceLength != source.length() || sourceHash != hashSource(source)) {
+				return null;
+			}
+			int vertexCount = header.getInt();
+			int textureCount = header.getInt();
+			int normalCount = header.getInt();
+			int indexCount = header.getInt();
+			long expectedSize = HEADER_SIZE + 4L * (vertexCount + textureCount + normalCount + indexCount);
+			if (vertexCount < 0 || textureCount < 0 || normalCount < 0 || indexCount < 0 || expectedSize != channel.size()) {
+				return null;
+			}
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, channel.size() - HEADER_SIZE);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			// Cada bloco é uma visão do arquivo mapeado; nenhum dado é copiado até o envio para a GPU
+			FloatBuffer vertices = sliceFloats(mapped, vertexCount);
+			FloatBuffer textures = sliceFloats(mapped, textureCount);
+			FloatBuffer normals = sliceFloats(mapped, normalCount);
+			IntBuffer indices = sliceInts(mapped, indexCount);
+			return loader.loadToVAO(vertices, textures, normals, indices);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// Grava o cache binário de um .obj a partir dos dados já processados.
+	public static void write(File source, ModelData data) {
+		float[] vertices = data.getVertices();
+		float[] textures = data.getTextureCoords();
+		float[] normals = data.getNormals();
+		int[] indices = data.getIndices();
+		try {
+			long sourceHash = hashSource(source);
+			int size = HEADER_SIZE + 4 * (vertices.length + textures.length + normals.length + indices.length);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION);
+			buffer.putLong(source.length()).putLong(sourceHash);
+			buffer.putInt(vertices.length).putInt(textures.length).putInt(normals.length).putInt(indices.length);
+			buffer.asFloatBuffer().put(vertices).put(textures).put(normals);
+			buffer.position(buffer.position() + 4 * (vertices.length + textures.length + normals.length));
+			buffer.asIntBuffer().put(indices);
+			buffer.rewind();
+			// Grava em um arquivo temporário e o renomeia por cima do cache antigo: o cache nunca fica pela metade
+			// e o arquivo antigo não é alterado no lugar
+			File cacheFile = getCacheFile(source);
+			File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+			try (FileOutputStream output = new FileOutputStream(tempFile); FileChannel channel = output.getChannel()) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+			try {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			// Sem cache o modelo continua funcionando; apenas será lido do texto na próxima execução
+			System.err.println("Couldn't write mesh cache for " + source);
+			e.printStackTrace();
+		}
+	}
+
+	// Calcula o CRC32 do conteúdo do .obj, usado para detectar alterações no arquivo de origem
+	public static long hashSource(File source) throws IOException {
+		CRC32 crc = new CRC32();
+		try (RandomAccessFile file = new RandomAccessFile(source, "r"); FileChannel channel = file.getChannel()) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+		return crc.getValue();
+	}
+
+	// Cria uma visão de "count" floats a partir da posição atual e avança a posição do buffer
+	private static FloatBuffer sliceFloats(ByteBuffer buffer, int count) {
+		ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		slice.limit(count * 4);
+		buffer.position(buffer.position() + count * 4);
+		return slice.asFloatBuffer();
+	}
+
+	// Cria uma visão de "count" ints a partir da posição atual e avança a posição do buffer
+	private static IntBuffer sliceInts(ByteBuffer buffer, int count) {
+		ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		slice.limit(count * 4);
+		buffer.position(buffer.position() + count * 4);
+		return slice.asIntBuffer();
+	}
+
+}
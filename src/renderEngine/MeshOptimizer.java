@@ -0,0 +1,249 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+import models.ModelData;
+
+/**
+    Otimização das malhas entre o OBJLoader e o Loader.loadToVAO.
+    1) Reordena os triângulos para aproveitar o cache de vértices pós-transformação da GPU
+       (algoritmo de Tom Forsyth, "Linear-Speed Vertex Cache Optimisation").
+    2) Reordena os vértices na ordem em que são usados pelos índices, melhorando a localidade da leitura dos VBOs.
+    Também calcula o ACMR (média de cache misses por triângulo) na CPU, para medir o ganho sem precisar da GPU.
+ */
+public class MeshOptimizer {
+
+    // Tamanho do cache LRU simulado pelo algoritmo de Forsyth
+    private static final int CACHE_SIZE = 32;
+    // Tamanho do cache FIFO usado como referência no cálculo do ACMR (valor típico de GPUs)
+    public static final int DEFAULT_ACMR_CACHE_SIZE = 16;
+
+    // Parâmetros de pontuação sugeridos por Forsyth
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRI_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    // Aplica as duas etapas de otimização e retorna uma nova malha (os arrays originais não são alterados)
+    public static ModelData optimize(ModelData data) {
+        int vertexCount = data.getVertices().length / 3;
+        int[] indices = optimizeVertexCache(data.getIndices(), vertexCount);
+        return optimizeVertexFetch(data, indices);
+    }
+
+    // Reordena os triângulos do index buffer para maximizar os acertos no cache de vértices
+    public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+        int triangleCount = indices.length / 3;
+        int[] result = new int[triangleCount * 3];
+        if (triangleCount == 0) {
+            return result;
+        }
+
+        // Lista de adjacência (vértice -> triângulos) em formato compacto: offsets + array único
+        int[] remaining = new int[vertexCount];
+        for (int index : indices) {
+            remaining[index]++;
+        }
+        int[] adjacencyOffsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyOffsets[v + 1] = adjacencyOffsets[v] + remaining[v];
+        }
+        int[] adjacency = new int[indices.length];
+        int[] fill = new int[vertexCount];
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                adjacency[adjacencyOffsets[v] + fill[v]++] = t;
+            }
+        }
+
+        // Pontuação inicial de vértices e triângulos
+        int[] cachePosition = new int[vertexCount];
+        Arrays.fill(cachePosition, -1);
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            vertexScore[v] = scoreVertex(-1, remaining[v]);
+        }
+        boolean[] added = new boolean[triangleCount];
+        float[] triangleScore = new float[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScore[t] = vertexScore[indices[t * 3]] + vertexScore[indices[t * 3 + 1]] + vertexScore[indices[t * 3 + 2]];
+        }
+
+        int[] cache = new int[CACHE_SIZE + 3];
+        int[] newCache = new int[CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int bestTriangle = findBestTriangle(triangleScore, added, 0);
+        int scanCursor = 0;
+
+        for (int output = 0; output < triangleCount; output++) {
+            if (bestTriangle < 0) {
+                // Nenhum triângulo ligado ao cache: procura o melhor entre os que ainda não foram adicionados
+                while (added[scanCursor]) {
+                    scanCursor++;
+                }
+                bestTriangle = findBestTriangle(triangleScore, added, scanCursor);
+            }
+            int t = bestTriangle;
+            added[t] = true;
+
+            // Emite o triângulo e o remove das listas de adjacência dos seus vértices
+            int newCacheCount = 0;
+            for (int k = 0; k < 3; k++) {
+                int v = indices[t * 3 + k];
+                result[output * 3 + k] = v;
+                removeTriangle(adjacency, adjacencyOffsets[v], remaining[v], t);
+                remaining[v]--;
+                if (indexOf(newCache, newCacheCount, v) < 0) {
+                    newCache[newCacheCount++] = v;
+                }
+            }
+
+            // Atualiza o cache LRU: vértices do triângulo no início, os demais empurrados para trás
+            for (int i = 0; i < cacheCount; i++) {
+                int v = cache[i];
+                if (indexOf(newCache, newCacheCount, v) < 0) {
+                    newCache[newCacheCount++] = v;
+                }
+            }
+            for (int i = 0; i < newCacheCount; i++) {
+                cachePosition[newCache[i]] = i < CACHE_SIZE ? i : -1;
+            }
+
+            // Recalcula a pontuação dos vértices afetados e dos triângulos ligados a eles,
+            // escolhendo o próximo triângulo entre eles
+            bestTriangle = -1;
+            float bestScore = -1;
+            for (int i = 0; i < newCacheCount; i++) {
+                int v = newCache[i];
+                vertexScore[v] = scoreVertex(cachePosition[v], remaining[v]);
+            }
+            for (int i = 0; i < newCacheCount; i++) {
+                int v = newCache[i];
+                int start = adjacencyOffsets[v];
+                for (int a = start; a < start + remaining[v]; a++) {
+                    int tri = adjacency[a];
+                    float score = vertexScore[indices[tri * 3]] + vertexScore[indices[tri * 3 + 1]] + vertexScore[indices[tri * 3 + 2]];
+                    triangleScore[tri] = score;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestTriangle = tri;
+                    }
+                }
+            }
+
+            // O cache passa a ter no máximo CACHE_SIZE vértices
+            cacheCount = Math.min(newCacheCount, CACHE_SIZE);
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+        }
+        return result;
+    }
+
+    // Renumera os vértices na ordem do primeiro uso pelo index buffer e reorganiza os atributos de acordo
+    public static ModelData optimizeVertexFetch(ModelData data, int[] indices) {
+        int vertexCount = data.getVertices().length / 3;
+        int[] remap = new int[vertexCount];
+        Arrays.fill(remap, -1);
+        int[] newIndices = new int[indices.length];
+        int next = 0;
+        for (int i = 0; i < indices.length; i++) {
+            int v = indices[i];
+            if (remap[v] < 0) {
+                remap[v] = next++;
+            }
+            newIndices[i] = remap[v];
+        }
+        // Vértices que não são usados por nenhum triângulo são descartados
+        float[] vertices = remapAttribute(data.getVertices(), 3, remap, next);
+        float[] textureCoords = remapAttribute(data.getTextureCoords(), 2, remap, next);
+        float[] normals = remapAttribute(data.getNormals(), 3, remap, next);
+        return new ModelData(vertices, textureCoords, normals, newIndices);
+    }
+
+    // Calcula o ACMR (cache misses por triângulo) simulando um cache FIFO de vértices do tamanho informado.
+    // 3.0 é o pior caso (nenhum reaproveitamento); malhas bem ordenadas ficam abaixo de 1.0.
+    public static float computeACMR(int[] indices, int cacheSize) {
+        int triangleCount = indices.length / 3;
+        if (triangleCount == 0) {
+            return 0;
+        }
+        int[] fifo = new int[cacheSize];
+        Arrays.fill(fifo, -1);
+        int head = 0;
+        int misses = 0;
+        for (int index : indices) {
+            if (indexOf(fifo, cacheSize, index) < 0) {
+                misses++;
+                fifo[head] = index;
+                head = (head + 1) % cacheSize;
+            }
+        }
+        return (float) misses / triangleCount;
+    }
+
+    // Pontuação de um vértice: favorece vértices recentes no cache e vértices com poucos triângulos restantes
+    private static float scoreVertex(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0) {
+            return -1;
+        }
+        float score = 0;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // Vértices do último triângulo recebem uma pontuação fixa para não favorecer tiras longas demais
+                score = LAST_TRI_SCORE;
+            } else {
+                float scaler = 1.0f / (CACHE_SIZE - 3);
+                score = (float) Math.pow(1.0f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        return score;
+    }
+
+    // Procura, a partir de "start", o triângulo ainda não adicionado com maior pontuação
+    private static int findBestTriangle(float[] triangleScore, boolean[] added, int start) {
+        int best = -1;
+        float bestScore = -Float.MAX_VALUE;
+        for (int t = start; t < triangleScore.length; t++) {
+            if (!added[t] && triangleScore[t] > bestScore) {
+                bestScore = triangleScore[t];
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    // Remove uma ocorrência do triângulo da lista de adjacência de um vértice (troca com o último elemento)
+    private static void removeTriangle(int[] adjacency, int start, int count, int triangle) {
+        for (int a = start; a < start + count; a++) {
+            if (adjacency[a] == triangle) {
+                adjacency[a] = adjacency[start + count - 1];
+                adjacency[start + count - 1] = triangle;
+                return;
+            }
+        }
+    }
+
+    private static int indexOf(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Copia os atributos de cada vértice para a nova posição definida por remap
+    private static float[] remapAttribute(float[] data, int size, int[] remap, int newVertexCount) {
+        float[] result = new float[newVertexCount * size];
+        for (int v = 0; v < remap.length; v++) {
+            if (remap[v] >= 0) {
+                System.arraycopy(data, v * size, result, remap[v] * size, size);
+            }
+        }
+        return result;
+    }
+
+}
@@ -1,144 +1,179 @@
 package renderEngine;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.List;
-
-import org.lwjgl.util.vector.Vector2f;
-import org.lwjgl.util.vector.Vector3f;
+import java.io.IOException;
+import java.nio.file.Files;
 
+import models.ModelData;
 import models.RawModel;
+import toolbox.FloatList;
+import toolbox.IntList;
+import toolbox.LongIntHashMap;
 
 public class OBJLoader {
     
     // Função responsável por carregar um modelo OBJ e retornar um RawModel.
+    // Usa o cache binário (MeshCache) quando ele existe e corresponde ao .obj atual; caso contrário
+    // lê o texto do .obj, otimiza a ordem de triângulos e vértices (MeshOptimizer) e grava o cache para as próximas execuções.
     public static RawModel loadObjModel(String fileName, Loader loader) {
-        // Inicializa o FileReader para ler o arquivo .obj.
-        FileReader fr = null;
+        File objFile = new File("res/" + fileName + ".obj");
+        RawModel cached = MeshCache.load(objFile, loader);
+        if (cached != null) {
+            return cached;
+        }
+        ModelData data = MeshOptimizer.optimize(loadObjData(fileName));
+        MeshCache.write(objFile, data);
+        return loader.loadToVAO(data.getVertices(), data.getTextureCoords(), data.getNormals(), data.getIndices());
+    }
+
+    // Função responsável por ler o texto de um arquivo OBJ e retornar seus dados em arrays (sem usar o cache).
+    // Os bytes do arquivo são percorridos diretamente pelo ObjTokenizer e os valores são acumulados em arrays
+    // primitivos, sem criar Strings, Vector2f/Vector3f ou Integer por linha.
+    public static ModelData loadObjData(String fileName) {
+        // Lê todo o conteúdo do arquivo .obj de uma só vez.
+        byte[] content;
         try {
-            fr = new FileReader(new File("res/" + fileName + ".obj"));
-        } catch (FileNotFoundException e) {
+            content = Files.readAllBytes(new File("res/" + fileName + ".obj").toPath());
+        } catch (IOException e) {
             System.err.println("Couldn't load file! ");
             e.printStackTrace();
+            content = new byte[0];
+        }
+        ObjTokenizer tokenizer = new ObjTokenizer(content);
+
+        // Listas primitivas para armazenar informações do modelo.
+        FloatList vertices = new FloatList(content.length / 32);
+        FloatList textures = new FloatList(content.length / 48);
+        FloatList normals = new FloatList(content.length / 32);
+        // Cada vértice de face é guardado como três índices (posição, textura, normal), já começando em 0.
+        IntList faces = new IntList(content.length / 8);
+
+        // Processa o arquivo linha por linha; linhas não reconhecidas (comentários, "o", "s", "usemtl"...) são ignoradas.
+        while (tokenizer.hasMore()) {
+            if (tokenizer.keyword("v")) {
+                // Processa um vértice (x, y, z).
+                vertices.add(tokenizer.nextFloat());
+                vertices.add(tokenizer.nextFloat());
+                vertices.add(tokenizer.nextFloat());
+            } else if (tokenizer.keyword("vt")) {
+                // Processa uma coordenada de textura (u, v).
+                textures.add(tokenizer.nextFloat());
+                textures.add(tokenizer.nextFloat());
+            } else if (tokenizer.keyword("vn")) {
+                // Processa um vetor normal (x, y, z).
+                normals.add(tokenizer.nextFloat());
+                normals.add(tokenizer.nextFloat());
+                normals.add(tokenizer.nextFloat());
+            } else if (tokenizer.keyword("f")) {
+                // Processa uma face (triângulo). Os vértices são lidos na ordem 1, 2, 3 mas armazenados
+                // na ordem 1, 3, 2, invertendo o sentido de rotação como o carregador sempre fez.
+                int v1 = faces.size();
+                readFaceVertex(tokenizer, faces, vertices.size() / 3, textures.size() / 2, normals.size() / 3);
+                readFaceVertex(tokenizer, faces, vertices.size() / 3, textures.size() / 2, normals.size() / 3);
+                readFaceVertex(tokenizer, faces, vertices.size() / 3, textures.size() / 2, normals.size() / 3);
+                swapFaceVertices(faces, v1 + 3, v1 + 6);
+            }
+            tokenizer.nextLine();
         }
 
-        // Inicializa o BufferedReader para ler o conteúdo do arquivo linha por linha.
-        BufferedReader reader = new BufferedReader(fr);
-        String line;
+        // Cada combinação distinta de posição/textura/normal vira um vértice único; combinações repetidas
+        // reutilizam o mesmo índice (soldagem de vértices). Vértices que compartilham a posição mas têm
+        // textura ou normal diferentes passam a ser vértices separados, em vez de se sobrescreverem.
+        int cornerCount = faces.size() / 3;
+        LongIntHashMap vertexMap = new LongIntHashMap(cornerCount);
+        FloatList outVertices = new FloatList(cornerCount * 3);
+        FloatList outTextures = new FloatList(cornerCount * 2);
+        FloatList outNormals = new FloatList(cornerCount * 3);
+        int[] indicesArray = new int[cornerCount];
+        long textureRadix = textures.size() / 2 + 1;
+        long normalRadix = normals.size() / 3 + 1;
+
+        // Processa cada vértice das faces, preenchendo os índices e os arrays de vértices, texturas e normais.
+        for (int i = 0; i < cornerCount; i++) {
+            int vertex = faces.get(i * 3);
+            int texture = faces.get(i * 3 + 1);
+            int normal = faces.get(i * 3 + 2);
+            // Chave única do trio (v, vt, vn) em base mista; ausentes (-1) viram 0
+            long key = ((long) vertex * textureRadix + (texture + 1)) * normalRadix + (normal + 1);
+            int index = vertexMap.get(key, -1);
+            if (index < 0) {
+                index = outVertices.size() / 3;
+                vertexMap.put(key, index);
+                processVertex(vertex, texture, normal, vertices, textures, normals, outVertices, outTextures, outNormals);
+            }
+            indicesArray[i] = index;
+        }
 
-        // Listas para armazenar informações do modelo.
-        List<Vector3f> vertices = new ArrayList<Vector3f>();
-        List<Vector2f> textures = new ArrayList<Vector2f>();
-        List<Vector3f> normals = new ArrayList<Vector3f>();
-        List<Integer> indices = new ArrayList<Integer>();
+        float[] verticesArray = outVertices.toArray();
+        float[] textureArray = outTextures.toArray();
+        float[] normalsArray = outNormals.toArray();
 
-        // Arrays para armazenar os dados dos vértices, texturas e normais do modelo.
-        float[] verticesArray = null;
-        float[] normalsArray = null;
-        float[] textureArray = null;
-        int[] indicesArray = null;
+        // Retorna os arrays de vértices, texturas, normais e índices do modelo.
+        return new ModelData(verticesArray, textureArray, normalsArray, indicesArray);
+    }
 
-        try {
-            // Primeiro, processa as linhas que contêm informações de vértices, texturas e normais.
-            while (true) {
-                line = reader.readLine();
-                String[] currentLine = line.split(" ");
-
-                if (line.startsWith("v ")) {
-                    // Processa um vértice (x, y, z) e o adiciona à lista de vértices.
-                    Vector3f vertex = new Vector3f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]), Float.parseFloat(currentLine[3]));
-                    vertices.add(vertex);
-                } else if (line.startsWith("vt ")) {
-                    // Processa uma coordenada de textura (u, v) e a adiciona à lista de texturas.
-                    Vector2f texture = new Vector2f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]));
-                    textures.add(texture);
-                } else if (line.startsWith("vn ")) {
-                    // Processa um vetor normal (x, y, z) e o adiciona à lista de normais.
-                    Vector3f normal = new Vector3f(Float.parseFloat(currentLine[1]), Float.parseFloat(currentLine[2]), Float.parseFloat(currentLine[3]));
-                    normals.add(normal);
-                } else if (line.startsWith("f ")) {
-                    // Quando encontra uma face (triângulo), inicializa os arrays para texturas e normais
-                    // e interrompe o loop para começar a processar as faces.
-                    textureArray = new float[vertices.size() * 2];
-                    normalsArray = new float[vertices.size() * 3];
-                    break;
-                }
+    // Lê um vértice de face no formato "v", "v/vt", "v//vn" ou "v/vt/vn" e guarda os três índices (base 0, -1 se ausente).
+    // Índices negativos do OBJ são relativos ao final da lista lida até o momento.
+    private static void readFaceVertex(ObjTokenizer tokenizer, IntList faces, int vertexCount, int textureCount, int normalCount) {
+        int vertex = toZeroBased(tokenizer.nextInt(), vertexCount);
+        int texture = -1;
+        int normal = -1;
+        if (tokenizer.consume('/')) {
+            if (tokenizer.atNumber()) {
+                texture = toZeroBased(tokenizer.nextInt(), textureCount);
             }
-
-            // Agora, processa as linhas que contêm informações sobre as faces do modelo.
-            while (line != null) {
-                if (!line.startsWith("f ")) {
-                    line = reader.readLine();
-                    continue;
-                }
-
-                String[] currentLine = line.split(" ");
-                String[] vertex1 = currentLine[1].split("/");
-                String[] vertex2 = currentLine[3].split("/");
-                String[] vertex3 = currentLine[2].split("/");
-
-                // Processa cada vértice da face e adiciona seus índices aos arrays de índices,
-                // bem como atualiza os arrays de texturas e normais correspondentes.
-                processVertex(vertex1, indices, textures, normals, textureArray, normalsArray);
-                processVertex(vertex2, indices, textures, normals, textureArray, normalsArray);
-                processVertex(vertex3, indices, textures, normals, textureArray, normalsArray);
-                line = reader.readLine();
+            if (tokenizer.consume('/')) {
+                normal = toZeroBased(tokenizer.nextInt(), normalCount);
             }
-
-            // Fecha o BufferedReader após processar o arquivo.
-            reader.close();
-
-        } catch (Exception e) {
-            e.printStackTrace();
         }
+        faces.add(vertex);
+        faces.add(texture);
+        faces.add(normal);
+    }
 
-        // Converte as listas de vértices e índices em arrays.
-        verticesArray = new float[vertices.size() * 3];
-        indicesArray = new int[indices.size()];
+    // Converte um índice do OBJ (começa em 1, ou negativo quando relativo) para um índice de array começando em 0.
+    private static int toZeroBased(int index, int count) {
+        return index < 0 ? count + index : index - 1;
+    }
 
-        int vertexPointer = 0;
-        for (Vector3f vertex : vertices) {
-            // Transforma as coordenadas dos vértices em um único array.
-            verticesArray[vertexPointer++] = vertex.x;
-            verticesArray[vertexPointer++] = vertex.y;
-            verticesArray[vertexPointer++] = vertex.z;
+    // Troca de lugar dois vértices de face (cada um ocupa três posições na lista)
+    private static void swapFaceVertices(IntList faces, int a, int b) {
+        for (int i = 0; i < 3; i++) {
+            int temp = faces.get(a + i);
+            faces.set(a + i, faces.get(b + i));
+            faces.set(b + i, temp);
         }
+    }
 
-        for (int i = 0; i < indices.size(); i++) {
-            // Transforma a lista de índices em um único array.
-            indicesArray[i] = indices.get(i);
+    // Função auxiliar que adiciona um novo vértice único (posição, textura e normal) aos arrays de saída.
+    private static void processVertex(int vertex, int texture, int normal, FloatList vertices, FloatList textures,
+    FloatList normals, FloatList outVertices, FloatList outTextures, FloatList outNormals) {
+        // Copia a posição do vértice
+        outVertices.add(vertices.get(vertex * 3));
+        outVertices.add(vertices.get(vertex * 3 + 1));
+        outVertices.add(vertices.get(vertex * 3 + 2));
+
+        // Copia as coordenadas de textura (ou (0, 0) se a face não tiver textura)
+        if (texture >= 0) {
+            // Atribui a coordenada s do vértice atual
+            outTextures.add(textures.get(texture * 2));
+            // Atribui a coordenada t (1 - y) do vértice atual (a textura é invertida no eixo y no OpenGL)
+            outTextures.add(1 - textures.get(texture * 2 + 1));
+        } else {
+            outTextures.add(0);
+            outTextures.add(0);
         }
 
-        // Retorna o RawModel criado a partir dos arrays de vértices, texturas, normais e índices.
-        return loader.loadToVAO(verticesArray, textureArray, normalsArray, indicesArray);
-    }
-
-    // Função auxiliar para processar um vértice de uma face e atualizar as listas de texturas e normais.
-    private static void processVertex(String[] vertexData, List<Integer> indices, List<Vector2f> textures,
-    List<Vector3f> normals, float[] textureArray, float[] normalsArray) {
-        // Converte o índice do vértice da string para um número inteiro e subtrai 1, pois os índices em OBJ começam em 1
-        int currentVertexPointer = Integer.parseInt(vertexData[0]) - 1;
-        // Adiciona o índice do vértice à lista de índices
-        indices.add(currentVertexPointer);
-        
-        // Obtém as coordenadas de textura com base no índice fornecido e as armazena no textureArray
-        Vector2f currentTex = textures.get(Integer.parseInt(vertexData[1]) - 1);
-        // Atribui a coordenada s do vértice atual no textureArray
-        textureArray[currentVertexPointer * 2] = currentTex.x;
-        // Atribui a coordenada t (1 - y) do vértice atual no textureArray (a textura é invertida no eixo y no OpenGL)
-        textureArray[currentVertexPointer * 2 + 1] = 1 - currentTex.y;
-        
-        // Obtém as coordenadas da normal com base no índice fornecido e as armazena no normalsArray
-        Vector3f currentNorm = normals.get(Integer.parseInt(vertexData[2]) - 1);
-        // Atribui o componente x da normal do vértice atual no normalsArray
-        normalsArray[currentVertexPointer * 3] = currentNorm.x;
-        // Atribui o componente y da normal do vértice atual no normalsArray
-        normalsArray[currentVertexPointer * 3 + 1] = currentNorm.y;
-        // Atribui o componente z da normal do vértice atual no normalsArray
-        normalsArray[currentVertexPointer * 3 + 2] = currentNorm.z;
+        // Copia a normal (ou (0, 0, 0) se a face não tiver normal)
+        if (normal >= 0) {
+            outNormals.add(normals.get(normal * 3));
+            outNormals.add(normals.get(normal * 3 + 1));
+            outNormals.add(normals.get(normal * 3 + 2));
+        } else {
+            outNormals.add(0);
+            outNormals.add(0);
+            outNormals.add(0);
+        }
     }
 
 }
@@ -0,0 +1,159 @@
+package renderEngine;
+
+/**
+	Leitor de tokens usado pelo OBJLoader. Percorre diretamente os bytes do arquivo .obj,
+	sem criar uma String por linha nem arrays de partes (String.split), e converte números
+	com um parser próprio em vez de Float.parseFloat/Integer.parseInt.
+ */
+class ObjTokenizer {
+
+	// Potências de 10 que podem ser representadas exatamente em um double
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	// Quantidade máxima de dígitos acumulados na mantissa sem estourar um long
+	private static final int MAX_MANTISSA_DIGITS = 18;
+
+	private final byte[] data;
+	private int position;
+
+	ObjTokenizer(byte[] data) {
+		this.data = data;
+	}
+
+	// Indica se ainda há conteúdo a ser lido (o arquivo pode terminar sem quebra de linha)
+	boolean hasMore() {
+		return position < data.length;
+	}
+
+	// Avança até o início da próxima linha
+	void nextLine() {
+		while (position < data.length && data[position] != '\n') {
+			position++;
+		}
+		position++;
+	}
+
+	// Verifica se a linha atual começa com a palavra-chave seguida de espaço; se sim, consome a palavra-chave
+	boolean keyword(String keyword) {
+		int length = keyword.length();
+		if (position + length >= data.length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (data[position + i] != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		if (!isSpace(data[position + length])) {
+			return false;
+		}
+		position += length;
+		return true;
+	}
+
+	// Consome o caractere informado se ele for o próximo do arquivo
+	boolean consume(char c) {
+		if (position < data.length && data[position] == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	// Verifica se o próximo caractere inicia um número (dígito ou sinal)
+	boolean atNumber() {
+		if (position >= data.length) {
+			return false;
+		}
+		byte c = data[position];
+		return isDigit(c) || c == '-' || c == '+';
+	}
+
+	// Lê o próximo número inteiro da linha
+	int nextInt() {
+		skipSpaces();
+		boolean negative = readSign();
+		int value = 0;
+		while (position < data.length && isDigit(data[position])) {
+			value = value * 10 + (data[position++] - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	// Lê o próximo número de ponto flutuante da linha (aceita sinal, parte decimal e expoente "e")
+	float nextFloat() {
+		skipSpaces();
+		boolean negative = readSign();
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		// Parte inteira
+		while (position < data.length && isDigit(data[position])) {
+			if (digits < MAX_MANTISSA_DIGITS) {
+				mantissa = mantissa * 10 + (data[position] - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+			} else {
+				exponent++;
+			}
+			position++;
+		}
+		// Parte decimal
+		if (consume('.')) {
+			while (position < data.length && isDigit(data[position])) {
+				if (digits < MAX_MANTISSA_DIGITS) {
+					mantissa = mantissa * 10 + (data[position] - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					exponent--;
+				}
+				position++;
+			}
+		}
+		// Expoente (ex.: 1.5e-3)
+		if (consume('e') || consume('E')) {
+			boolean negativeExponent = readSign();
+			int value = 0;
+			while (position < data.length && isDigit(data[position])) {
+				value = value * 10 + (data[position++] - '0');
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		double result = mantissa;
+		if (exponent > 0) {
+			result *= exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent);
+		} else if (exponent < 0) {
+			result /= -exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[-exponent] : Math.pow(10, -exponent);
+		}
+		return (float) (negative ? -result : result);
+	}
+
+	// Pula espaços e tabulações (sem passar para a próxima linha)
+	private void skipSpaces() {
+		while (position < data.length && isSpace(data[position])) {
+			position++;
+		}
+	}
+
+	// Consome um sinal opcional e retorna true se o número for negativo
+	private boolean readSign() {
+		if (consume('-')) {
+			return true;
+		}
+		consume('+');
+		return false;
+	}
+
+	private static boolean isDigit(byte c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isSpace(byte c) {
+		return c == ' ' || c == '\t';
+	}
+
+}
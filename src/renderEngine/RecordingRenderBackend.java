@@ -0,0 +1,64 @@
+package renderEngine;
+
+/**
+    RenderBackend que não desenha nada: só conta os itens e as trocas de estado que a RenderQueue pediria ao OpenGL.
+    Permite medir o efeito da ordenação da fila sem GPU (ex.: executar a fila antes e depois de sort()).
+ */
+public class RecordingRenderBackend implements RenderQueue.RenderBackend {
+
+    private int draws;
+    private int passChanges;
+    private int shaderChanges;
+    private int textureChanges;
+    private int meshChanges;
+
+    @Override
+    public void draw(long key, Object item, int changes) {
+        draws++;
+        if ((changes & RenderQueue.PASS_CHANGED) != 0) {
+            passChanges++;
+        }
+        if ((changes & RenderQueue.SHADER_CHANGED) != 0) {
+            shaderChanges++;
+        }
+        if ((changes & RenderQueue.TEXTURE_CHANGED) != 0) {
+            textureChanges++;
+        }
+        if ((changes & RenderQueue.MESH_CHANGED) != 0) {
+            meshChanges++;
+        }
+    }
+
+    public void reset() {
+        draws = 0;
+        passChanges = 0;
+        shaderChanges = 0;
+        textureChanges = 0;
+        meshChanges = 0;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getPassChanges() {
+        return passChanges;
+    }
+
+    public int getShaderChanges() {
+        return shaderChanges;
+    }
+
+    public int getTextureChanges() {
+        return textureChanges;
+    }
+
+    public int getMeshChanges() {
+        return meshChanges;
+    }
+
+    // Total de trocas de estado (passo, shader, textura e malha)
+    public int getStateChanges() {
+        return passChanges + shaderChanges + textureChanges + meshChanges;
+    }
+}
@@ -0,0 +1,247 @@
+package renderEngine;
+
+import java.util.Arrays;
+
+import toolbox.LongIntHashMap;
+
+/**
+    Fila de desenho do quadro. Cada item (entidade, lote instanciado ou terreno) entra com uma chave de 64 bits que
+    codifica, do bit mais significativo para o menos: passo (4 bits), shader (4), textura (16), malha (24) e
+    profundidade (16). Depois de sort() os itens ficam agrupados por passo, depois por shader, textura e malha,
+    e dentro do mesmo grupo ordenados da frente para trás, minimizando as trocas de estado do OpenGL.
+    A ordenação é um radix sort LSD de 8 bits por passada sobre arrays de primitivos; passadas em que todos os itens
+    têm o mesmo byte são puladas. execute() percorre a fila e informa ao RenderBackend quais estados mudaram em cada item.
+ */
+public class RenderQueue {
+
+    // Passos de renderização (bits 60-63)
+    public static final int PASS_OPAQUE = 0;
+
+    // Shaders (bits 56-59)
+    public static final int SHADER_STATIC = 0;
+    public static final int SHADER_INSTANCED = 1;
+    public static final int SHADER_TERRAIN = 2;
+
+    // Estados que podem mudar entre dois itens consecutivos (combinados em "changes" no RenderBackend)
+    public static final int PASS_CHANGED = 1;
+    public static final int SHADER_CHANGED = 2;
+    public static final int TEXTURE_CHANGED = 4;
+    public static final int MESH_CHANGED = 8;
+
+    private static final int DEPTH_BITS = 16;
+    private static final int MESH_BITS = 24;
+    private static final int TEXTURE_BITS = 16;
+    private static final int SHADER_BITS = 4;
+    private static final int MESH_SHIFT = DEPTH_BITS;
+    private static final int TEXTURE_SHIFT = MESH_SHIFT + MESH_BITS;
+    private static final int SHADER_SHIFT = TEXTURE_SHIFT + TEXTURE_BITS;
+    private static final int PASS_SHIFT = SHADER_SHIFT + SHADER_BITS;
+    public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+
+    // Executa os itens da fila, em ordem
+    public interface RenderBackend {
+        // changes: estados (PASS_CHANGED, SHADER_CHANGED...) diferentes do item anterior; o primeiro item muda todos
+        void draw(long key, Object item, int changes);
+    }
+
+    private long[] keys = new long[256];
+    private Object[] items = new Object[256];
+    private int size;
+
+    // Arrays auxiliares da ordenação (reaproveitados entre quadros)
+    private long[] sortKeys = new long[256];
+    private int[] order = new int[256];
+    private int[] sortOrder = new int[256];
+    private Object[] sortedItems = new Object[256];
+    private final int[] counts = new int[256];
+    // Índice de cada par (VAO, modelo) e de cada textura no quadro, para os campos de malha e de textura
+    private final LongIntHashMap meshIndices = new LongIntHashMap(256);
+    private final LongIntHashMap textureIndices = new LongIntHashMap(64);
+
+    // Monta a chave de ordenação. texture e mesh devem vir de textureKey() e meshKey(), que dão índices do quadro
+    // que cabem nos campos da chave. depth: 0 (perto) a MAX_DEPTH (longe), valores fora do intervalo são limitados.
+    public static long makeKey(int pass, int shader, int texture, int mesh, int depth) {
+        return ((long) (pass & 0xF) << PASS_SHIFT)
+                | ((long) (shader & 0xF) << SHADER_SHIFT)
+                | ((long) (texture & 0xFFFF) << TEXTURE_SHIFT)
+                | ((long) (mesh & 0xFFFFFF) << MESH_SHIFT)
+                | Math.max(0, Math.min(MAX_DEPTH, depth));
+    }
+
+    // Campo de malha do par (VAO, modelo): um índice sequencial, dado na primeira vez que o par aparece no quadro.
+    // Assim malhas diferentes nunca dividem o mesmo valor, por maiores que sejam os IDs (os terrenos do
+    // TerrainManager criam modelos sem parar). Os índices valem até clear().
+    public int meshKey(int vaoID, int modelId) {
+        long pair = ((long) vaoID << 32) | (modelId & 0xFFFFFFFFL);
+        int index = meshIndices.get(pair, -1);
+        if (index < 0) {
+            index = meshIndices.size();
+            meshIndices.put(pair, index);
+        }
+        return index;
+    }
+
+    // Campo de textura da textura informada: índice sequencial do quadro, como em meshKey(), para que texturas
+    // com IDs distantes não dividam o mesmo valor nos 16 bits do campo. Os índices valem até clear().
+    public int textureKey(int textureID) {
+        int index = textureIndices.get(textureID, -1);
+        if (index < 0) {
+            index = textureIndices.size();
+            textureIndices.put(textureID, index);
+        }
+        return index;
+    }
+
+    // Converte uma distância à câmera em balde de profundidade (0 a MAX_DEPTH) dentro de [0, maxDistance]
+    public static int depthBucket(float distance, float maxDistance) {
+        return (int) (Math.max(0, Math.min(1, distance / maxDistance)) * MAX_DEPTH);
+    }
+
+    public static int getPass(long key) {
+        return (int) (key >>> PASS_SHIFT) & 0xF;
+    }
+
+    public static int getShader(long key) {
+        return (int) (key >>> SHADER_SHIFT) & 0xF;
+    }
+
+    public static int getTexture(long key) {
+        return (int) (key >>> TEXTURE_SHIFT) & 0xFFFF;
+    }
+
+    public static int getMesh(long key) {
+        return (int) (key >>> MESH_SHIFT) & 0xFFFFFF;
+    }
+
+    public static int getDepth(long key) {
+        return (int) key & MAX_DEPTH;
+    }
+
+    public void add(long key, Object item) {
+        if (size == keys.length || size == items.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            items = Arrays.copyOf(items, capacity);
+        }
+        keys[size] = key;
+        items[size] = item;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public Object getItem(int index) {
+        return items[index];
+    }
+
+    // Ordena os itens pela chave (estável: itens com a mesma chave mantêm a ordem de entrada)
+    public void sort() {
+        if (size < 2) {
+            return;
+        }
+        ensureSortCapacity();
+        long[] source = keys;
+        long[] target = sortKeys;
+        int[] sourceOrder = order;
+        int[] targetOrder = sortOrder;
+        for (int i = 0; i < size; i++) {
+            sourceOrder[i] = i;
+        }
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < size; i++) {
+                counts[(int) (source[i] >>> shift) & 0xFF]++;
+            }
+            // Todos os itens com o mesmo byte: a passada não mudaria nada
+            if (counts[(int) (source[0] >>> shift) & 0xFF] == size) {
+                continue;
+            }
+            int offset = 0;
+            for (int digit = 0; digit < 256; digit++) {
+                int count = counts[digit];
+                counts[digit] = offset;
+                offset += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int position = counts[(int) (source[i] >>> shift) & 0xFF]++;
+                target[position] = source[i];
+                targetOrder[position] = sourceOrder[i];
+            }
+            long[] swapKeys = source;
+            source = target;
+            target = swapKeys;
+            int[] swapOrder = sourceOrder;
+            sourceOrder = targetOrder;
+            targetOrder = swapOrder;
+        }
+        for (int i = 0; i < size; i++) {
+            sortedItems[i] = items[sourceOrder[i]];
+        }
+        // Os arrays ordenados passam a ser os da fila
+        if (source != keys) {
+            sortKeys = keys;
+            keys = source;
+        }
+        Object[] swapItems = items;
+        items = sortedItems;
+        sortedItems = swapItems;
+        Arrays.fill(sortedItems, 0, size, null);
+    }
+
+    // Percorre a fila na ordem atual, informando ao backend quais estados mudaram em relação ao item anterior
+    public void execute(RenderBackend backend) {
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            int changes = i == 0 ? PASS_CHANGED | SHADER_CHANGED | TEXTURE_CHANGED | MESH_CHANGED : changes(previous, key);
+            backend.draw(key, items[i], changes);
+            previous = key;
+        }
+    }
+
+    // Esvazia a fila (soltando as referências aos itens)
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        meshIndices.clear();
+        textureIndices.clear();
+    }
+
+    // Estados diferentes entre duas chaves. Uma mudança em um campo mais significativo implica rebind dos seguintes
+    // (ex.: ao trocar de shader é preciso reenviar textura e malha para o novo programa).
+    public static int changes(long previous, long key) {
+        int changes = 0;
+        if (getPass(previous) != getPass(key)) {
+            changes |= PASS_CHANGED;
+        }
+        if ((changes != 0) || getShader(previous) != getShader(key)) {
+            changes |= SHADER_CHANGED;
+        }
+        if ((changes != 0) || getTexture(previous) != getTexture(key)) {
+            changes |= TEXTURE_CHANGED;
+        }
+        if ((changes != 0) || getMesh(previous) != getMesh(key)) {
+            changes |= MESH_CHANGED;
+        }
+        return changes;
+    }
+
+    private void ensureSortCapacity() {
+        if (sortKeys.length < keys.length) {
+            sortKeys = new long[keys.length];
+        }
+        if (order.length < keys.length) {
+            order = new int[keys.length];
+            sortOrder = new int[keys.length];
+        }
+        if (sortedItems.length < items.length) {
+            sortedItems = new Object[items.length];
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package renderEngine;
+
+import java.util.concurrent.locks.LockSupport;
+
+import entities.Camera;
+import entities.EntityStore;
+import entities.Light;
+import entities.SceneSnapshot;
+import toolbox.TripleBuffer;
+
+/**
+    Thread de simulação: executa a lógica do jogo em passos fixos (ticksPerSecond), independente da taxa de quadros,
+    e ao fim de cada passo publica um SceneSnapshot em um TripleBuffer sem travas.
+    A thread de renderização adquire o snapshot mais recente, interpola entre o passo anterior e o atual
+    (getAlpha) e desenha, sem nunca esperar pela simulação; um passo lento atrasa só a simulação, não os quadros.
+    A simulação não faz chamadas OpenGL e é a única dona das entidades, câmera e luz que recebe.
+ */
+public class SimulationThread extends Thread {
+
+    // Lógica executada a cada passo da simulação
+    public interface Step {
+        void update(float stepSeconds);
+    }
+
+    private final EntityStore store;
+    private final Camera camera;
+    private final Light light;
+    private final Step step;
+    private final long stepNanos;
+    private final TripleBuffer<SceneSnapshot> snapshots =
+            new TripleBuffer<SceneSnapshot>(new SceneSnapshot(), new SceneSnapshot(), new SceneSnapshot());
+
+    private volatile boolean running = true;
+
+    public SimulationThread(EntityStore store, Camera camera, Light light, int ticksPerSecond, Step step) {
+        super("simulation");
+        this.store = store;
+        this.camera = camera;
+        this.light = light;
+        this.step = step;
+        this.stepNanos = 1000000000L / ticksPerSecond;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        float stepSeconds = stepNanos / 1e9f;
+        SceneSnapshot last = null;
+        long tick = 0;
+        long nextTick = System.nanoTime();
+        while (running) {
+            step.update(stepSeconds);
+            SceneSnapshot snapshot = snapshots.getBack();
+            snapshot.capture(last, store, camera, light, tick++, System.nanoTime());
+            snapshots.publish();
+            last = snapshot;
+
+            nextTick += stepNanos;
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (-wait > stepNanos * 4) {
+                // Muito atrasada (ex.: pausa do processo): recomeça a contagem em vez de executar vários passos seguidos
+                nextTick = System.nanoTime();
+            }
+        }
+    }
+
+    // Renderização: passa a usar o snapshot mais recente, se houver um novo, e o retorna (null antes do primeiro passo)
+    public SceneSnapshot acquireSnapshot() {
+        snapshots.acquire();
+        SceneSnapshot snapshot = snapshots.getFront();
+        return snapshot.getTimeNanos() == 0 ? null : snapshot;
+    }
+
+    // Fator de interpolação entre o passo anterior e o atual do snapshot, para o instante "now" (System.nanoTime).
+    // A renderização fica um passo atrás da simulação: o passo atual é alcançado um stepNanos depois de capturado.
+    public float getAlpha(SceneSnapshot snapshot, long now) {
+        float alpha = (now - snapshot.getTimeNanos()) / (float) stepNanos;
+        return Math.max(0, Math.min(1, alpha));
+    }
+
+    public long getStepNanos() {
+        return stepNanos;
+    }
+
+    // Pede para a simulação parar ao fim do passo atual
+    public void requestStop() {
+        running = false;
+    }
+}
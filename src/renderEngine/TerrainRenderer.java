@@ -1,64 +1,68 @@
 package renderEngine;
 
-import java.util.List;
-
 import models.RawModel;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 
 import shaders.TerrainShader;
 import terrains.Terrain;
+import terrains.TerrainLod;
 import textures.ModelTexture;
 import toolbox.Maths;
 
 public class TerrainRenderer {
 
 	private TerrainShader shader;
+	private GLStateCache glState = GLStateCache.getDefault();
+	// Reutilizados a cada terreno desenhado para não alocar durante a renderização
+	private final Vector3f terrainPosition = new Vector3f();
+	private final Matrix4f transformationMatrix = new Matrix4f();
 
-	public TerrainRenderer(TerrainShader shader, Matrix4f projectionMatrix) {
+	// A matriz de projeção chega ao shader pelo FrameUniformBuffer, atualizado pelo MasterRenderer a cada quadro
+	public TerrainRenderer(TerrainShader shader) {
 		this.shader = shader;
-		shader.start();
-		shader.loadProjectionMatrix(projectionMatrix);
-		shader.stop();
 	}
 
-	public void render(List<Terrain> terrains) {
-		for (Terrain terrain : terrains) {
-			prepareTerrain(terrain);
-			loadModelMatrix(terrain);
-			GL11.glDrawElements(GL11.GL_TRIANGLES, terrain.getModel().getVertexCount(),
-					GL11.GL_UNSIGNED_INT, 0);
-			unbindTexturedModel();
-		}
-	}
+	// Chamados pelo MasterRenderer na ordem da RenderQueue: textura e modelo só são reenviados quando mudam
 
-	private void prepareTerrain(Terrain terrain) {
-		RawModel rawModel = terrain.getModel();
-		GL30.glBindVertexArray(rawModel.getVaoID());
-		GL20.glEnableVertexAttribArray(0);
-		GL20.glEnableVertexAttribArray(1);
-		GL20.glEnableVertexAttribArray(2);
-		ModelTexture texture = terrain.getTexture();
+	void bindTexture(ModelTexture texture) {
 		shader.loadShineVariables(texture.getShineDamper(), texture.getReflectivity());
-		GL13.glActiveTexture(GL13.GL_TEXTURE0);
-		GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture.getID());
+		glState.bindTexture(0, texture.getID());
+	}
+
+	void bindModel(RawModel rawModel) {
+		glState.bindVertexArray(rawModel.getVaoID());
+		glState.enableVertexAttribArrays(EntityRenderer.MODEL_ATTRIBUTES);
+		shader.loadPositionDequantization(rawModel.getPositionOffset(), rawModel.getPositionScale());
+	}
+
+	// Com TerrainLod, um desenho por patch com a variante escolhida no quadro (TerrainLod.select); os índices da
+	// variante são relativos ao canto do patch, somado ao baseVertex do modelo
+	void drawTerrain(Terrain terrain) {
+		loadModelMatrix(terrain);
+		RawModel model = terrain.getModel();
+		TerrainLod lod = terrain.getLod();
+		if (lod == null) {
+			GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, model.getVertexCount(),
+					model.getIndexType(), model.getIndexOffset(), model.getBaseVertex());
+			return;
+		}
+		for (int patch = 0; patch < lod.getPatchCount(); patch++) {
+			GL32.glDrawElementsBaseVertex(GL11.GL_TRIANGLES, lod.getIndexCount(patch), model.getIndexType(),
+					model.getIndexOffset() + (long) lod.getIndexOffset(patch) * model.getIndexSize(), model.getBaseVertex() + lod.getBaseVertex(patch));
+		}
 	}
 
-	private void unbindTexturedModel() {
-		GL20.glDisableVertexAttribArray(0);
-		GL20.glDisableVertexAttribArray(1);
-		GL20.glDisableVertexAttribArray(2);
-		GL30.glBindVertexArray(0);
+	void unbindTexturedModel() {
+		glState.bindVertexArray(0);
 	}
 
 	private void loadModelMatrix(Terrain terrain) {
-		Matrix4f transformationMatrix = Maths.createTransformationMatrix(
-				new Vector3f(terrain.getX(), 0, terrain.getZ()), 0, 0, 0, 1);
+		terrainPosition.set(terrain.getX(), 0, terrain.getZ());
+		Maths.createTransformationMatrix(terrainPosition, 0, 0, 0, 1, transformationMatrix);
 		shader.loadTransformationMatrix(transformationMatrix);
 	}
 
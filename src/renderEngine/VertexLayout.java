@@ -0,0 +1,53 @@
+package renderEngine;
+
+import java.nio.FloatBuffer;
+
+// Formas de organizar os atributos dos vértices nos VBOs de um modelo carregado pelo Loader.
+public enum VertexLayout {
+
+    // Um VBO para cada atributo (posições, coordenadas de textura e normais)
+    SEPARATE,
+
+    // Um único VBO com posição, coordenada de textura e normal de cada vértice lado a lado:
+    // x, y, z, u, v, nx, ny, nz | x, y, z, u, v, nx, ny, nz | ...
+    INTERLEAVED,
+
+    // Um único VBO intercalado e compactado (ver VertexQuantizer): posições em 16 bits relativas à caixa envolvente,
+    // texturas em half float, normais em 10-10-10-2 e índices em 8/16 bits quando possível. 16 bytes por vértice.
+    QUANTIZED;
+
+    // Quantidade de floats por vértice no formato intercalado
+    public static final int INTERLEAVED_FLOATS = 3 + 2 + 3;
+    // Distância em bytes entre dois vértices consecutivos no formato intercalado
+    public static final int INTERLEAVED_STRIDE = INTERLEAVED_FLOATS * 4;
+    // Deslocamento em bytes de cada atributo dentro de um vértice intercalado
+    public static final int POSITION_OFFSET = 0;
+    public static final int TEXTURE_OFFSET = 3 * 4;
+    public static final int NORMAL_OFFSET = (3 + 2) * 4;
+
+    // Junta os arrays separados de posições, coordenadas de textura e normais em um único array intercalado.
+    // Não depende do OpenGL, então pode ser usado e verificado sem um contexto gráfico.
+    public static float[] interleave(float[] positions, float[] textureCoords, float[] normals) {
+        FloatBuffer data = FloatBuffer.allocate(positions.length / 3 * INTERLEAVED_FLOATS);
+        interleave(FloatBuffer.wrap(positions), FloatBuffer.wrap(textureCoords), FloatBuffer.wrap(normals), data);
+        return data.array();
+    }
+
+    // Mesma função, lendo o conteúdo restante dos buffers (sem alterar suas posições) e escrevendo em dest a partir
+    // da posição atual. Permite intercalar buffers mapeados de um arquivo direto num buffer de envio à GPU.
+    public static void interleave(FloatBuffer positions, FloatBuffer textureCoords, FloatBuffer normals, FloatBuffer dest) {
+        int vertexCount = positions.remaining() / 3;
+        if (textureCoords.remaining() != vertexCount * 2 || normals.remaining() != vertexCount * 3) {
+            throw new IllegalArgumentException("Attribute arrays describe different vertex counts: " + vertexCount
+                    + " positions, " + textureCoords.remaining() / 2 + " texture coords, " + normals.remaining() / 3 + " normals");
+        }
+        int p = positions.position();
+        int t = textureCoords.position();
+        int n = normals.position();
+        for (int i = 0; i < vertexCount; i++, p += 3, t += 2, n += 3) {
+            dest.put(positions.get(p)).put(positions.get(p + 1)).put(positions.get(p + 2));
+            dest.put(textureCoords.get(t)).put(textureCoords.get(t + 1));
+            dest.put(normals.get(n)).put(normals.get(n + 1)).put(normals.get(n + 2));
+        }
+    }
+}
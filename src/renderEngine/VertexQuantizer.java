@@ -0,0 +1,172 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+	Codificadores (na CPU) do formato quantizado de vértices (VertexLayout.QUANTIZED):
+	- posições em 16 bits sem sinal normalizados, relativos à caixa envolvente (AABB) do modelo;
+	- coordenadas de textura em half float (16 bits);
+	- normais compactadas em 10-10-10-2 com sinal (GL_INT_2_10_10_10_REV);
+	- índices em 8 ou 16 bits quando o número de vértices permite.
+	Não depende do OpenGL (apenas das constantes), então pode ser verificado sem um contexto gráfico.
+ */
+public class VertexQuantizer {
+
+	// Bytes por vértice: posição (3 x 16 bits + 16 bits de alinhamento), textura (2 x 16 bits), normal (32 bits)
+	public static final int VERTEX_SIZE = 8 + 4 + 4;
+	public static final int POSITION_OFFSET = 0;
+	public static final int TEXTURE_OFFSET = 8;
+	public static final int NORMAL_OFFSET = 12;
+
+	private static final int UNORM16_MAX = 0xFFFF;
+	private static final int SNORM10_MAX = 511;
+
+	// Calcula a caixa envolvente das posições: retorna {minX, minY, minZ, tamanhoX, tamanhoY, tamanhoZ}.
+	// Eixos sem variação recebem tamanho 1 para evitar divisão por zero.
+	public static float[] computeBounds(float[] positions) {
+		float[] bounds = new float[6];
+		if (positions.length < 3) {
+			bounds[3] = bounds[4] = bounds[5] = 1;
+			return bounds;
+		}
+		for (int axis = 0; axis < 3; axis++) {
+			float min = positions[axis];
+			float max = positions[axis];
+			for (int i = axis; i < positions.length; i += 3) {
+				min = Math.min(min, positions[i]);
+				max = Math.max(max, positions[i]);
+			}
+			bounds[axis] = min;
+			bounds[axis + 3] = max > min ? max - min : 1;
+		}
+		return bounds;
+	}
+
+	// Monta o buffer de vértices quantizados (VERTEX_SIZE bytes por vértice) na ordem nativa de bytes, pronto para o VBO
+	public static ByteBuffer quantizeVertices(float[] positions, float[] textureCoords, float[] normals, float[] bounds) {
+		int vertexCount = positions.length / 3;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(vertexCount * VERTEX_SIZE).order(ByteOrder.nativeOrder());
+		for (int i = 0; i < vertexCount; i++) {
+			buffer.putShort(encodeUnorm16(positions[i * 3], bounds[0], bounds[3]));
+			buffer.putShort(encodeUnorm16(positions[i * 3 + 1], bounds[1], bounds[4]));
+			buffer.putShort(encodeUnorm16(positions[i * 3 + 2], bounds[2], bounds[5]));
+			buffer.putShort((short) 0);
+			buffer.putShort(floatToHalf(textureCoords[i * 2]));
+			buffer.putShort(floatToHalf(textureCoords[i * 2 + 1]));
+			buffer.putInt(packNormal(normals[i * 3], normals[i * 3 + 1], normals[i * 3 + 2]));
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	// Escolhe o menor tipo de índice capaz de endereçar todos os vértices
+	public static int chooseIndexType(int vertexCount) {
+		if (vertexCount <= 0xFF + 1) {
+			return GL11.GL_UNSIGNED_BYTE;
+		} else if (vertexCount <= 0xFFFF + 1) {
+			return GL11.GL_UNSIGNED_SHORT;
+		}
+		return GL11.GL_UNSIGNED_INT;
+	}
+
+	// Monta o index buffer no tipo informado (GL_UNSIGNED_BYTE, GL_UNSIGNED_SHORT ou GL_UNSIGNED_INT)
+	public static ByteBuffer packIndices(int[] indices, int indexType) {
+		int size = indexType == GL11.GL_UNSIGNED_BYTE ? 1 : indexType == GL11.GL_UNSIGNED_SHORT ? 2 : 4;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(indices.length * size).order(ByteOrder.nativeOrder());
+		for (int index : indices) {
+			if (size == 1) {
+				buffer.put((byte) index);
+			} else if (size == 2) {
+				buffer.putShort((short) index);
+			} else {
+				buffer.putInt(index);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	// Converte um valor dentro de [min, min + extent] para 16 bits sem sinal (0 a 65535)
+	public static short encodeUnorm16(float value, float min, float extent) {
+		float normalized = (value - min) / extent;
+		normalized = Math.max(0, Math.min(1, normalized));
+		return (short) Math.round(normalized * UNORM16_MAX);
+	}
+
+	// Operação inversa de encodeUnorm16 (a mesma conversão feita pela GPU com normalized = true)
+	public static float decodeUnorm16(short value, float min, float extent) {
+		return min + ((value & 0xFFFF) / (float) UNORM16_MAX) * extent;
+	}
+
+	// Compacta uma normal em 32 bits: x nos bits 0-9, y nos bits 10-19, z nos bits 20-29 (10 bits com sinal cada), w = 0
+	public static int packNormal(float x, float y, float z) {
+		return (encodeSnorm10(x)) | (encodeSnorm10(y) << 10) | (encodeSnorm10(z) << 20);
+	}
+
+	// Operação inversa de packNormal: retorna {x, y, z}
+	public static float[] unpackNormal(int packed) {
+		return new float[] { decodeSnorm10(packed), decodeSnorm10(packed >> 10), decodeSnorm10(packed >> 20) };
+	}
+
+	// Converte um float de 32 bits para half float de 16 bits (arredondando para o mais próximo)
+	public static short floatToHalf(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int magnitude = bits & 0x7FFFFFFF;
+		int rounded = magnitude + 0x1000;
+		if (rounded >= 0x47800000) {
+			// Valor grande demais, infinito ou NaN
+			if (magnitude >= 0x7F800000) {
+				return (short) (sign | 0x7C00 | ((bits & 0x007FFFFF) >>> 13));
+			}
+			if (magnitude >= 0x47800000) {
+				return (short) (sign | 0x7C00);
+			}
+			return (short) (sign | 0x7BFF);
+		}
+		if (rounded >= 0x38800000) {
+			// Valor normal: reajusta o expoente e descarta os 13 bits menos significativos da mantissa
+			return (short) (sign | ((rounded - 0x38000000) >>> 13));
+		}
+		if (magnitude < 0x33000000) {
+			// Pequeno demais até para um subnormal: vira zero
+			return (short) sign;
+		}
+		// Valor subnormal em half float
+		int exponent = magnitude >>> 23;
+		return (short) (sign | ((((magnitude & 0x7FFFFF) | 0x800000) + (0x800000 >>> (exponent - 102))) >>> (126 - exponent)));
+	}
+
+	// Converte um half float de 16 bits de volta para float de 32 bits
+	public static float halfToFloat(short half) {
+		int bits = half & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x3FF;
+		if (exponent == 0) {
+			// Zero ou subnormal
+			float value = mantissa / 1024f / 16384f;
+			return sign != 0 ? -value : value;
+		}
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+	}
+
+	// Converte um valor em [-1, 1] para 10 bits com sinal (complemento de dois)
+	private static int encodeSnorm10(float value) {
+		value = Math.max(-1, Math.min(1, value));
+		return Math.round(value * SNORM10_MAX) & 0x3FF;
+	}
+
+	// Lê 10 bits com sinal (os 10 bits menos significativos) e converte de volta para [-1, 1]
+	private static float decodeSnorm10(int bits) {
+		int value = (bits << 22) >> 22;
+		return Math.max(-1, value / (float) SNORM10_MAX);
+	}
+
+}
@@ -0,0 +1,25 @@
+package shaders;
+
+// Variante instanciada do StaticShader: a matriz de transformação chega como atributo por instância
+// (lido de um VBO com divisor 1) em vez de um uniform carregado entidade por entidade.
+public class InstancedShader extends StaticShader {
+
+	// Caminho para o arquivo contendo o código-fonte do vertex shader instanciado
+	private static final String VERTEX_FILE = "src/shaders/instancedVertexShader.txt";
+	// O fragment shader é o mesmo do StaticShader
+	private static final String FRAGMENT_FILE = "src/shaders/fragmentShader.txt";
+
+	// Primeiro atributo ocupado pela matriz da instância (um mat4 ocupa 4 atributos seguidos: 3, 4, 5 e 6)
+	public static final int MODEL_MATRIX_ATTRIBUTE = 3;
+
+	public InstancedShader() {
+		super(VERTEX_FILE, FRAGMENT_FILE); // Chama o construtor do StaticShader com os caminhos dos shaders instanciados
+	}
+
+	@Override
+	protected void bindAttributes() {
+		super.bindAttributes(); // Vincula posição, coordenadas de textura e normais (atributos 0, 1 e 2)
+		super.bindAttribute(MODEL_MATRIX_ATTRIBUTE, "modelMatrix"); // Vincula a matriz da instância ao atributo "modelMatrix" do shader
+	}
+
+}
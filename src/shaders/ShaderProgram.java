@@ -4,13 +4,18 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
 import org.lwjgl.util.vector.Matrix4f;
 import org.lwjgl.util.vector.Vector3f;
 
+import renderEngine.GLStateCache;
+import toolbox.LongIntHashMap;
+
 public abstract class ShaderProgram {
 	
 	// ID do programa de shader.
@@ -20,6 +25,25 @@ public abstract class ShaderProgram {
 	//ID do shader de fragmentos.
 	private int fragmentShaderID;
 	private static FloatBuffer matrixBuffer = BufferUtils.createFloatBuffer(16);
+
+	// Tamanhos aceitos por loadUniforms: float, vec2, vec3, vec4 e mat4
+	public static final int MATRIX_SIZE = 16;
+	private static final int SLOT_SIZE = MATRIX_SIZE;
+
+	// Cópia do último valor enviado para cada uniforme deste programa (os valores ficam guardados no programa,
+	// mesmo quando outro programa é ativado), para pular o envio quando o valor não mudou.
+	// Localização -> índice do slot; cada slot ocupa SLOT_SIZE floats em uniformValues.
+	private final LongIntHashMap uniformSlots = new LongIntHashMap(16);
+	private float[] uniformValues = new float[16 * SLOT_SIZE];
+	// Quantos floats foram enviados em cada slot (0 enquanto o uniforme nunca foi enviado)
+	private int[] uniformSizes = new int[16];
+	private int uniformSlotCount;
+	// Valores a enviar (matriz em ordem de colunas), reaproveitado a cada chamada
+	private final float[] pendingValues = new float[SLOT_SIZE];
+
+	// Envios de uniformes feitos e evitados (valor igual ao anterior) por todos os shaders desde resetUniformCounters()
+	private static int uniformUploads;
+	private static int uniformUploadsAvoided;
 	
 	//O construtor recebe os nomes de arquivos dos shaders de vértices e fragmentos como parâmetros.
 	public ShaderProgram(String vertexFile,String fragmentFile){
@@ -72,6 +96,15 @@ public abstract class ShaderProgram {
 	// Ele é responsável por obter todas as localizações das variáveis uniformes no shader.
 	protected abstract void getAllUniformLocations();
 
+	// Liga o uniform block do shader (declarado com layout std140) ao ponto de ligação onde está o seu UBO.
+	// Blocos que o shader não declara (ou que o compilador removeu por não serem usados) são ignorados.
+	protected void bindUniformBlock(String blockName, int bindingPoint) {
+		int blockIndex = GL31.glGetUniformBlockIndex(programID, blockName);
+		if (blockIndex != GL31.GL_INVALID_INDEX) {
+			GL31.glUniformBlockBinding(programID, blockIndex, bindingPoint);
+		}
+	}
+
 	// O método getUniformLocation é usado para obter a localização (ID) de uma variável uniforme no shader pelo seu nome.
 	protected int getUniformLocation (String uniformName) {
 		return GL20.glGetUniformLocation(programID, uniformName);
@@ -79,12 +112,13 @@ public abstract class ShaderProgram {
 	
 	public void start(){
 		// Ativa o programa de shader identificado pelo programID. Isso significa que o programa de shader será usado durante o processo de renderização e substituirá os shaders previamente ativos.
-		GL20.glUseProgram(programID);
+		// Passa pelo GLStateCache: se o programa já estiver ativo, nenhuma chamada é feita ao OpenGL.
+		GLStateCache.getDefault().useProgram(programID);
 	}
 	
 	public void stop(){
 		// Desativa qualquer programa de shader atualmente ativo. Isso restaura o estado padrão do OpenGL, onde não há programa de shader em uso.
-		GL20.glUseProgram(0);
+		GLStateCache.getDefault().useProgram(0);
 	}
 	
 	public void cleanUp(){
@@ -114,7 +148,8 @@ public abstract class ShaderProgram {
 	//   - location: O endereço da variável uniforme no shader onde o valor float será carregado.
 	//   - value: O valor float que será carregado na variável uniforme.
 	protected void loadFloat(int location, float value) {
-		GL20.glUniform1f(location, value);
+		pendingValues[0] = value;
+		loadPending(location, 1);
 	}
 
 	// Função para carregar um vetor de tipo Vector3f (provavelmente uma classe que representa um vetor 3D)
@@ -123,7 +158,10 @@ public abstract class ShaderProgram {
 	//   - location: O endereço da variável uniforme no shader onde os valores do vetor serão carregados.
 	//   - vector: O objeto Vector3f contendo os valores x, y e z do vetor a ser carregado.
 	protected void loadVector(int location, Vector3f vector) {
-		GL20.glUniform3f(location, vector.x, vector.y, vector.z);
+		pendingValues[0] = vector.x;
+		pendingValues[1] = vector.y;
+		pendingValues[2] = vector.z;
+		loadPending(location, 3);
 	}
 
 	// Função para carregar um valor booleano (true ou false) para uma variável uniforme no shader.
@@ -136,7 +174,7 @@ public abstract class ShaderProgram {
 		if (value) {
 			toLoad = 1;
 		}
-		GL20.glUniform1f(location, toLoad);
+		loadFloat(location, toLoad);
 	}
 
 	// Função para carregar uma matriz 4x4 (Matrix4f) para uma variável uniforme no shader.
@@ -144,12 +182,107 @@ public abstract class ShaderProgram {
 	//   - location: O endereço da variável uniforme no shader onde a matriz será carregada.
 	//   - matrix: O objeto Matrix4f contendo os elementos da matriz 4x4 a ser carregada.
 	protected void loadMatrix(int location, Matrix4f matrix) {
-		// Armazena a matriz no buffer para enviá-la ao shader.
-		matrix.store(matrixBuffer);
-		// Prepara o buffer para ser lido, definindo a posição para o início do buffer e a limitação para o fim dos dados.
-		matrixBuffer.flip();
-		// Envia a matriz (buffer) para a variável uniforme no shader.
-		GL20.glUniformMatrix4(location, false, matrixBuffer);
+		// Copia a matriz em ordem de colunas (a mesma de Matrix4f.store) para compará-la com o último valor enviado.
+		float[] values = pendingValues;
+		values[0] = matrix.m00; values[1] = matrix.m01; values[2] = matrix.m02; values[3] = matrix.m03;
+		values[4] = matrix.m10; values[5] = matrix.m11; values[6] = matrix.m12; values[7] = matrix.m13;
+		values[8] = matrix.m20; values[9] = matrix.m21; values[10] = matrix.m22; values[11] = matrix.m23;
+		values[12] = matrix.m30; values[13] = matrix.m31; values[14] = matrix.m32; values[15] = matrix.m33;
+		loadPending(location, MATRIX_SIZE);
+	}
+
+	// Carrega vários uniformes de uma vez a partir de um array de floats contínuo.
+	// Parâmetros:
+	//   - locations: as localizações dos uniformes, na ordem em que os valores aparecem em "values".
+	//   - sizes: quantos floats cada uniforme consome (1 a 4 para float/vec2/vec3/vec4, MATRIX_SIZE para mat4 em ordem de colunas).
+	//   - values: os valores de todos os uniformes, um após o outro.
+	// Cada uniforme só é enviado se o valor mudou desde o último envio.
+	protected void loadUniforms(int[] locations, int[] sizes, float[] values) {
+		int offset = 0;
+		for (int i = 0; i < locations.length; i++) {
+			int size = sizes[i];
+			System.arraycopy(values, offset, pendingValues, 0, size);
+			loadPending(locations[i], size);
+			offset += size;
+		}
+	}
+
+	// Envios de uniformes feitos desde o último resetUniformCounters()
+	public static int getUniformUploads() {
+		return uniformUploads;
+	}
+
+	// Envios de uniformes evitados (valor igual ao já guardado no programa) desde o último resetUniformCounters()
+	public static int getUniformUploadsAvoided() {
+		return uniformUploadsAvoided;
+	}
+
+	// Zera os contadores; chamado no início de cada quadro
+	public static void resetUniformCounters() {
+		uniformUploads = 0;
+		uniformUploadsAvoided = 0;
+	}
+
+	// Envia os "size" primeiros valores de pendingValues ao uniforme, se forem diferentes do último valor enviado
+	private void loadPending(int location, int size) {
+		if (size < 1 || (size > 4 && size != MATRIX_SIZE)) {
+			throw new IllegalArgumentException("Unsupported uniform size: " + size);
+		}
+		if (location < 0) {
+			// Uniforme inexistente (ou removido pelo compilador do shader): o OpenGL ignoraria a chamada
+			return;
+		}
+		int slot = uniformSlot(location);
+		int base = slot * SLOT_SIZE;
+		float[] cached = uniformValues;
+		boolean changed = uniformSizes[slot] != size;
+		uniformSizes[slot] = size;
+		for (int i = 0; i < size; i++) {
+			if (Float.floatToIntBits(cached[base + i]) != Float.floatToIntBits(pendingValues[i])) {
+				changed = true;
+				cached[base + i] = pendingValues[i];
+			}
+		}
+		if (!changed) {
+			uniformUploadsAvoided++;
+			return;
+		}
+		uniformUploads++;
+		switch (size) {
+		case 1:
+			GL20.glUniform1f(location, cached[base]);
+			break;
+		case 2:
+			GL20.glUniform2f(location, cached[base], cached[base + 1]);
+			break;
+		case 3:
+			GL20.glUniform3f(location, cached[base], cached[base + 1], cached[base + 2]);
+			break;
+		case 4:
+			GL20.glUniform4f(location, cached[base], cached[base + 1], cached[base + 2], cached[base + 3]);
+			break;
+		case MATRIX_SIZE:
+			matrixBuffer.clear();
+			matrixBuffer.put(cached, base, MATRIX_SIZE);
+			matrixBuffer.flip();
+			GL20.glUniformMatrix4(location, false, matrixBuffer);
+			break;
+		}
+	}
+
+	// Slot da cópia do uniforme, criado no primeiro envio
+	private int uniformSlot(int location) {
+		int slot = uniformSlots.get(location, -1);
+		if (slot != -1) {
+			return slot;
+		}
+		slot = uniformSlotCount++;
+		if (uniformSizes.length < uniformSlotCount) {
+			uniformSizes = Arrays.copyOf(uniformSizes, uniformSizes.length * 2);
+			uniformValues = Arrays.copyOf(uniformValues, uniformSizes.length * SLOT_SIZE);
+		}
+		uniformSlots.put(location, slot);
+		return slot;
 	}
 
 	protected void bindAttribute(int attribute, String variableName){
@@ -1,10 +1,9 @@
 package shaders;
 
 import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
 
-import entities.Camera;
-import entities.Light;
-import toolbox.Maths;
+import renderEngine.FrameUniformBuffer;
 
 public class TerrainShader extends ShaderProgram {
     
@@ -15,12 +14,16 @@ public class TerrainShader extends ShaderProgram {
 	
 	// Localização das variáveis uniformes no shader
 	private int location_transformationMatrix; // Matriz de transformação
-	private int location_projectionMatrix; // Matriz de projeção
-	private int location_viewMatrix; // Matriz de visualização (câmera)
-	private int location_lightPosition; // Posição da luz no espaço 3D
-	private int location_lightColour; // Cor da luz
 	private int location_shineDamper; // Representa a localização do fator de brilho (shine damper) no shader.
 	private int location_reflectivity; // Representa a localização do fator de reflexividade (reflectivity) no shader.
+	private int location_positionOffset; // Deslocamento das posições de modelos quantizados
+	private int location_positionScale; // Escala das posições de modelos quantizados
+
+	// Brilho e refletividade, carregados juntos com loadUniforms (atribuído em getAllUniformLocations,
+	// que roda antes dos inicializadores desta classe)
+	private static final int[] SHINE_SIZES = { 1, 1 };
+	private int[] shineLocations;
+	private final float[] shineValues = new float[2];
 
 	public TerrainShader() {
 		super(VERTEX_FILE, FRAGMENT_FILE); // Chama o construtor da classe ShaderProgram com os caminhos dos shaders
@@ -36,29 +39,34 @@ public class TerrainShader extends ShaderProgram {
 
 	@Override
 	protected void getAllUniformLocations() {
+		// Projeção, visão, posição da câmera e luzes vêm do bloco FrameData, compartilhado por todos os shaders
+		super.bindUniformBlock(FrameUniformBuffer.BLOCK_NAME, FrameUniformBuffer.BINDING_POINT);
 		// Obtém a localização da variável "transformationMatrix" no shader
 		location_transformationMatrix = super.getUniformLocation("transformationMatrix");
-		// Obtém a localização da variável "projectionMatrix" no shader
-		location_projectionMatrix = super.getUniformLocation("projectionMatrix");
-		// Obtém a localização da variável "viewMatrix" no shader
-		location_viewMatrix = super.getUniformLocation("viewMatrix");
-		// Obtém a localização da variável "lightPosition" no shader
-		location_lightPosition = super.getUniformLocation("lightPosition");
-		// Obtém a localização da variável "lightColour" no shader
-		location_lightColour = super.getUniformLocation("lightColour");
 		// Obtém a localização da variável "shineDamper" no shader
 		location_shineDamper = super.getUniformLocation("shineDamper");
 		// Obtém a localização da variável "reflectivity" no shader
 		location_reflectivity = super.getUniformLocation("reflectivity");
+		shineLocations = new int[] { location_shineDamper, location_reflectivity };
+		// Obtém a localização das variáveis "positionOffset" e "positionScale" no shader
+		location_positionOffset = super.getUniformLocation("positionOffset");
+		location_positionScale = super.getUniformLocation("positionScale");
 	}
 	
 	// Método para carregar os valores de amortecimento (damper) e refletividade (reflectivity)
 	// nas variáveis de uniforme correspondentes no shader OpenGL.
 	public void loadShineVariables(float damper, float reflectivity) {
-		// Carrega o valor de amortecimento na variável de uniforme "shineDamper" do shader.
-		super.loadFloat(location_shineDamper, damper);
-		// Carrega o valor de refletividade na variável de uniforme "reflectivity" do shader.
-		super.loadFloat(location_reflectivity, reflectivity);
+		// Carrega os valores de amortecimento ("shineDamper") e de refletividade ("reflectivity") no shader;
+		// só são enviados se mudaram desde o último material
+		shineValues[0] = damper;
+		shineValues[1] = reflectivity;
+		super.loadUniforms(shineLocations, SHINE_SIZES, shineValues);
+	}
+
+	// Carrega a transformação que leva as posições do modelo (quantizadas ou não) de volta às coordenadas originais
+	public void loadPositionDequantization(Vector3f offset, Vector3f scale) {
+		super.loadVector(location_positionOffset, offset);
+		super.loadVector(location_positionScale, scale);
 	}
 
 	public void loadTransformationMatrix(Matrix4f matrix){
@@ -66,20 +74,4 @@ public class TerrainShader extends ShaderProgram {
 		super.loadMatrix(location_transformationMatrix, matrix); // Carrega a matriz 4x4 de transformação no shader, representando a posição e orientação do objeto no espaço 3D
 	}
 
-	public void loadLight(Light light) {
-		super.loadVector(location_lightPosition, light.getPosition()); // Carrega a posição da luz no espaço 3D no shader
-		super.loadVector(location_lightColour, light.getColour()); // Carrega a cor da luz no shader
-	}
-	
-	public void loadViewMatrix(Camera camera){
-		// Cria a matriz de visualização com base nas informações da câmera e carrega-a no shader
-		Matrix4f viewMatrix = Maths.createViewMatrix(camera); // Cria uma matriz 4x4 que representa a visão da câmera no mundo 3D
-		super.loadMatrix(location_viewMatrix, viewMatrix); // Carrega a matriz de visualização no shader, definindo a posição e orientação da câmera
-	}
-	
-	public void loadProjectionMatrix(Matrix4f projection){
-		// Carrega a matriz de projeção no shader usando a localização obtida anteriormente
-		super.loadMatrix(location_projectionMatrix, projection); // Carrega a matriz de projeção no shader, definindo a perspectiva da cena
-	}
-
 }
@@ -0,0 +1,147 @@
+package terrains;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+	Índices de um pedaço (patch) quadrado de terreno com patchQuads x patchQuads quadrados, em cada nível de
+	detalhe (geomipmapping) e em cada variante de costura com os vizinhos. No nível L são usados só os vértices a
+	cada 2^L da grade. Quando um vizinho está um nível mais grosso, os vértices ímpares da borda em comum são
+	trocados por um vértice par vizinho da mesma borda e os triângulos que ficam degenerados são descartados: a borda
+	passa a ter exatamente os vértices do vizinho e não sobram vértices soltos no meio das arestas dele (T-junctions),
+	que abririam rachaduras entre os patches.
+
+	Os índices são relativos ao canto do patch, com as linhas da grade do terreno (rowStride vértices por linha):
+	o mesmo conjunto serve para todos os patches, somando o vértice do canto no baseVertex do glDrawElementsBaseVertex.
+	Todas as variantes ficam em um único int[] (getIndices), enviado uma vez como index buffer do terreno.
+ */
+public class GeomipmapIndices {
+
+	// Bordas do patch que encostam em um vizinho mais grosso (bits da máscara de costura)
+	public static final int NORTH = 1; // z = 0
+	public static final int EAST = 2;  // x = patchQuads
+	public static final int SOUTH = 4; // z = patchQuads
+	public static final int WEST = 8;  // x = 0
+	public static final int MASK_COUNT = 16;
+
+	// Tabelas já montadas, por tamanho de linha e de patch (iguais para todos os terrenos com a mesma grade)
+	private static final Map<Long, GeomipmapIndices> CACHE = new HashMap<Long, GeomipmapIndices>();
+
+	private final int rowStride;
+	private final int patchQuads;
+	private final int levelCount;
+	private final int[] indices;
+	// Início e quantidade de índices de cada variante, em [level * MASK_COUNT + mask]
+	private final int[] offsets;
+	private final int[] counts;
+
+	// patchQuads precisa ser uma potência de 2
+	public GeomipmapIndices(int rowStride, int patchQuads) {
+		this.rowStride = rowStride;
+		this.patchQuads = patchQuads;
+		this.levelCount = Integer.numberOfTrailingZeros(patchQuads) + 1;
+		this.offsets = new int[levelCount * MASK_COUNT];
+		this.counts = new int[levelCount * MASK_COUNT];
+		int capacity = 0;
+		for (int level = 0; level < levelCount; level++) {
+			int cells = patchQuads >> level;
+			capacity += MASK_COUNT * cells * cells * 6;
+		}
+		int[] table = new int[capacity];
+		int pointer = 0;
+		for (int level = 0; level < levelCount; level++) {
+			for (int mask = 0; mask < MASK_COUNT; mask++) {
+				int slot = level * MASK_COUNT + mask;
+				// O nível mais grosso não tem vizinho mais grosso que ele: todas as máscaras usam a variante 0
+				if (level == levelCount - 1 && mask != 0) {
+					offsets[slot] = offsets[level * MASK_COUNT];
+					counts[slot] = counts[level * MASK_COUNT];
+					continue;
+				}
+				offsets[slot] = pointer;
+				pointer = buildVariant(table, pointer, level, mask);
+				counts[slot] = pointer - offsets[slot];
+			}
+		}
+		this.indices = new int[pointer];
+		System.arraycopy(table, 0, indices, 0, pointer);
+	}
+
+	// Tabela compartilhada para a grade com rowStride vértices por linha e patches de patchQuads quadrados
+	public static synchronized GeomipmapIndices get(int rowStride, int patchQuads) {
+		Long key = ((long) rowStride << 32) | patchQuads;
+		GeomipmapIndices table = CACHE.get(key);
+		if (table == null) {
+			table = new GeomipmapIndices(rowStride, patchQuads);
+			CACHE.put(key, table);
+		}
+		return table;
+	}
+
+	public int[] getIndices() {
+		return indices;
+	}
+
+	public int getPatchQuads() {
+		return patchQuads;
+	}
+
+	public int getLevelCount() {
+		return levelCount;
+	}
+
+	// Posição (em índices) da variante dentro de getIndices()
+	public int getOffset(int level, int mask) {
+		return offsets[level * MASK_COUNT + mask];
+	}
+
+	public int getCount(int level, int mask) {
+		return counts[level * MASK_COUNT + mask];
+	}
+
+	// Dois triângulos por quadrado de lado 2^level, na mesma ordem e diagonal da malha completa (TerrainMesh),
+	// com os vértices das bordas marcadas em mask ajustados ao vizinho mais grosso
+	private int buildVariant(int[] table, int pointer, int level, int mask) {
+		int step = 1 << level;
+		for (int z = 0; z < patchQuads; z += step) {
+			for (int x = 0; x < patchQuads; x += step) {
+				int topLeft = vertex(x, z, step, mask);
+				int topRight = vertex(x + step, z, step, mask);
+				int bottomLeft = vertex(x, z + step, step, mask);
+				int bottomRight = vertex(x + step, z + step, step, mask);
+				pointer = addTriangle(table, pointer, topLeft, bottomLeft, topRight);
+				pointer = addTriangle(table, pointer, topRight, bottomLeft, bottomRight);
+			}
+		}
+		return pointer;
+	}
+
+	// Índice do vértice (x, z) do patch. Nas bordas costuradas, os vértices ímpares do nível vão para o par anterior
+	// (norte e oeste) ou para o seguinte (sul e leste): com a diagonal dos quadrados, assim nenhum canto fica com
+	// um triângulo de área zero
+	private int vertex(int x, int z, int step, int mask) {
+		boolean oddX = ((x / step) & 1) != 0;
+		boolean oddZ = ((z / step) & 1) != 0;
+		if (oddX && z == 0 && (mask & NORTH) != 0) {
+			x -= step;
+		} else if (oddX && z == patchQuads && (mask & SOUTH) != 0) {
+			x += step;
+		}
+		if (oddZ && x == 0 && (mask & WEST) != 0) {
+			z -= step;
+		} else if (oddZ && x == patchQuads && (mask & EAST) != 0) {
+			z += step;
+		}
+		return z * rowStride + x;
+	}
+
+	private static int addTriangle(int[] table, int pointer, int a, int b, int c) {
+		if (a == b || b == c || a == c) {
+			return pointer;
+		}
+		table[pointer++] = a;
+		table[pointer++] = b;
+		table[pointer++] = c;
+		return pointer;
+	}
+}
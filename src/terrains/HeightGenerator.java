@@ -0,0 +1,67 @@
+package terrains;
+
+/**
+	Gera alturas procedurais (ruído de valor com várias oitavas) a partir de uma semente.
+	A altura depende só da semente e da posição do vértice na grade do mundo, então é determinística
+	e terrenos vizinhos gerados separadamente se encaixam sem emendas nas bordas.
+ */
+public class HeightGenerator {
+
+	private static final int OCTAVES = 3;
+	private static final float ROUGHNESS = 0.3f;
+
+	private final long seed;
+	private final float amplitude;
+	// Distância (em vértices da grade) entre dois valores aleatórios da primeira oitava
+	private final float featureSize;
+
+	public HeightGenerator(long seed, float amplitude, float featureSize) {
+		this.seed = seed;
+		this.amplitude = amplitude;
+		this.featureSize = featureSize;
+	}
+
+	// Altura do vértice (x, z) da grade do mundo, entre -amplitude e amplitude
+	public float generateHeight(int x, int z) {
+		float total = 0;
+		float frequency = 1 / featureSize;
+		float octaveAmplitude = amplitude;
+		for (int octave = 0; octave < OCTAVES; octave++) {
+			total += getInterpolatedNoise(x * frequency, z * frequency, octave) * octaveAmplitude;
+			frequency *= 2;
+			octaveAmplitude *= ROUGHNESS;
+		}
+		return total;
+	}
+
+	// Ruído suavizado entre os quatro valores aleatórios inteiros em volta de (x, z)
+	private float getInterpolatedNoise(float x, float z, int octave) {
+		int intX = (int) Math.floor(x);
+		int intZ = (int) Math.floor(z);
+		float fracX = x - intX;
+		float fracZ = z - intZ;
+		float v1 = getNoise(intX, intZ, octave);
+		float v2 = getNoise(intX + 1, intZ, octave);
+		float v3 = getNoise(intX, intZ + 1, octave);
+		float v4 = getNoise(intX + 1, intZ + 1, octave);
+		float i1 = interpolate(v1, v2, fracX);
+		float i2 = interpolate(v3, v4, fracX);
+		return interpolate(i1, i2, fracZ);
+	}
+
+	// Interpolação por cosseno: suave nas extremidades, sem as quinas da interpolação linear
+	private static float interpolate(float a, float b, float blend) {
+		float f = (float) (1f - Math.cos(blend * Math.PI)) * 0.5f;
+		return a * (1f - f) + b * f;
+	}
+
+	// Valor pseudoaleatório entre -1 e 1 para o ponto inteiro (x, z); sem estado, então pode ser chamado de várias threads
+	private float getNoise(int x, int z, int octave) {
+		long hash = seed + x * 0x9E3779B97F4A7C15L + z * 0xC2B2AE3D27D4EB4FL + octave * 0x165667B19E3779F9L;
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		hash = hash ^ (hash >>> 31);
+		// 24 bits altos -> [0, 1) -> [-1, 1)
+		return (hash >>> 40) / (float) (1 << 24) * 2 - 1;
+	}
+}
@@ -0,0 +1,161 @@
+package terrains;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+	Alturas dos vértices de um terreno em uma grade quadrada (vertexCount x vertexCount), guardadas em um único
+	float[] por linhas (z) e colunas (x). Em volta da grade há uma borda de um vértice: com ela, as normais por
+	diferença central não precisam de casos especiais nas bordas e, nos terrenos procedurais, a borda vem do
+	gerador, então as normais dos dois lados da divisa entre terrenos vizinhos são iguais.
+ */
+public class HeightMap {
+
+	// Cor máxima de um pixel RGB, usada para converter a imagem em alturas
+	private static final float MAX_PIXEL_COLOUR = 256 * 256 * 256;
+
+	private final int vertexCount;
+	// Largura de uma linha de heights, incluindo a borda
+	private final int stride;
+	private final float[] heights;
+
+	// Terreno plano (altura 0)
+	public HeightMap(int vertexCount) {
+		this.vertexCount = vertexCount;
+		this.stride = vertexCount + 2;
+		this.heights = new float[stride * stride];
+	}
+
+	// Alturas lidas de uma imagem em res/ (um vértice por linha da imagem): quanto mais clara a cor,
+	// mais alto, de -maxHeight (preto) a maxHeight (branco). A borda repete os vértices da beirada.
+	public static HeightMap fromImage(String fileName, float maxHeight) {
+		BufferedImage image = null;
+		try {
+			image = ImageIO.read(new File("res/" + fileName + ".png"));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		// ImageIO retorna null quando nenhum leitor reconhece o arquivo
+		if (image == null) {
+			System.err.println("Couldn't read height map res/" + fileName + ".png");
+			System.exit(-1);
+		}
+		int vertexCount = image.getHeight();
+		HeightMap map = new HeightMap(vertexCount);
+		for (int z = 0; z < vertexCount; z++) {
+			for (int x = 0; x < vertexCount; x++) {
+				int pixelX = x * (image.getWidth() - 1) / Math.max(1, vertexCount - 1);
+				float colour = image.getRGB(pixelX, z) & 0xFFFFFF;
+				map.setHeight(x, z, (colour / MAX_PIXEL_COLOUR * 2 - 1) * maxHeight);
+			}
+		}
+		map.copyEdgesToBorder();
+		return map;
+	}
+
+	// Alturas procedurais do terreno (gridX, gridZ): o vértice (x, z) é o vértice
+	// (gridX * (vertexCount - 1) + x, gridZ * (vertexCount - 1) + z) da grade do mundo
+	public static HeightMap generate(HeightGenerator generator, int vertexCount, int gridX, int gridZ) {
+		HeightMap map = new HeightMap(vertexCount);
+		map.generateRows(generator, gridX, gridZ, -1, vertexCount + 1);
+		return map;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	// Altura do vértice (x, z), com x e z entre -1 e vertexCount (a borda incluída)
+	public float getHeight(int x, int z) {
+		return heights[(z + 1) * stride + x + 1];
+	}
+
+	public void setHeight(int x, int z, float height) {
+		heights[(z + 1) * stride + x + 1] = height;
+	}
+
+	// Altura no ponto (gridX, gridZ) da grade, em unidades de vértices (0 a vertexCount - 1), interpolada no
+	// triângulo que contém o ponto com coordenadas baricêntricas. Os triângulos seguem os índices do Terrain
+	// (a diagonal de cada quadrado vai do canto (1, 0) ao (0, 1)). Fora da grade a altura é 0. Não aloca.
+	public float getInterpolatedHeight(float gridX, float gridZ) {
+		// Fora da grade (ou NaN): 0. Dentro, a conversão para int já arredonda para baixo, sem Math.floor
+		int last = vertexCount - 1;
+		if (!(gridX >= 0 && gridZ >= 0 && gridX <= last && gridZ <= last)) {
+			return 0;
+		}
+		// A beirada final (gridX ou gridZ igual a last) usa o último quadrado
+		int cellX = Math.min((int) gridX, last - 1);
+		int cellZ = Math.min((int) gridZ, last - 1);
+		float x = gridX - cellX;
+		float z = gridZ - cellZ;
+		int index = (cellZ + 1) * stride + cellX + 1;
+		float topRight = heights[index + 1];
+		float bottomLeft = heights[index + stride];
+		if (x <= 1 - z) {
+			// Triângulo (0, 0), (1, 0), (0, 1)
+			float topLeft = heights[index];
+			return topLeft + (topRight - topLeft) * x + (bottomLeft - topLeft) * z;
+		}
+		// Triângulo (1, 0), (1, 1), (0, 1)
+		float bottomRight = heights[index + stride + 1];
+		return bottomRight + (bottomLeft - bottomRight) * (1 - x) + (topRight - bottomRight) * (1 - z);
+	}
+
+	// Normais suaves por diferença central: para cada vértice, a inclinação em x e em z vem dos vizinhos dos dois
+	// lados. cellSize é a distância entre vértices no mundo. normals recebe 3 floats por vértice, na ordem da grade.
+	public void computeNormals(float cellSize, float[] normals) {
+		computeNormals(cellSize, normals, 0, vertexCount);
+	}
+
+	// Normais só das linhas de firstZ (inclusive) a lastZ (exclusive); cada linha depende apenas das alturas,
+	// então faixas diferentes podem ser calculadas em paralelo
+	public void computeNormals(float cellSize, float[] normals, int firstZ, int lastZ) {
+		int pointer = firstZ * vertexCount * 3;
+		for (int z = firstZ; z < lastZ; z++) {
+			int index = (z + 1) * stride + 1;
+			for (int x = 0; x < vertexCount; x++, index++) {
+				float heightL = heights[index - 1];
+				float heightR = heights[index + 1];
+				float heightD = heights[index - stride];
+				float heightU = heights[index + stride];
+				float nx = heightL - heightR;
+				float ny = 2 * cellSize;
+				float nz = heightD - heightU;
+				float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+				normals[pointer++] = nx / length;
+				normals[pointer++] = ny / length;
+				normals[pointer++] = nz / length;
+			}
+		}
+	}
+
+	// Gera as linhas de firstZ (inclusive) a lastZ (exclusive), entre -1 e vertexCount + 1, incluindo a borda de cada linha
+	void generateRows(HeightGenerator generator, int gridX, int gridZ, int firstZ, int lastZ) {
+		int originX = gridX * (vertexCount - 1);
+		int originZ = gridZ * (vertexCount - 1);
+		for (int z = firstZ; z < lastZ; z++) {
+			int index = (z + 1) * stride;
+			for (int x = -1; x <= vertexCount; x++) {
+				heights[index++] = generator.generateHeight(originX + x, originZ + z);
+			}
+		}
+	}
+
+	// Borda igual aos vértices da beirada (normais das bordas calculadas só com o próprio terreno)
+	private void copyEdgesToBorder() {
+		for (int i = 0; i < vertexCount; i++) {
+			setHeight(-1, i, getHeight(0, i));
+			setHeight(vertexCount, i, getHeight(vertexCount - 1, i));
+			setHeight(i, -1, getHeight(i, 0));
+			setHeight(i, vertexCount, getHeight(i, vertexCount - 1));
+		}
+		setHeight(-1, -1, getHeight(0, 0));
+		setHeight(vertexCount, -1, getHeight(vertexCount - 1, 0));
+		setHeight(-1, vertexCount, getHeight(0, vertexCount - 1));
+		setHeight(vertexCount, vertexCount, getHeight(vertexCount - 1, vertexCount - 1));
+	}
+}
@@ -7,18 +7,65 @@ import textures.ModelTexture;
 public class Terrain {
 	
 	private static final float SIZE = 800;
-	private static final int VERTEX_COUNT = 128;
+	// 128 quadrados por lado: 8 x 8 patches de TerrainLod.PATCH_QUADS
+	private static final int VERTEX_COUNT = 129;
 	
 	private float x;
 	private float z;
 	private RawModel model;
 	private ModelTexture texture;
+	// Alturas dos vértices, usadas na malha e nas consultas de altura (getHeightOfTerrain)
+	private HeightMap heightMap;
+	// Níveis de detalhe dos patches; null quando o terreno é desenhado com a malha completa
+	private TerrainLod lod;
 	
+	// Terreno plano
 	public Terrain(int gridX, int gridZ, Loader loader, ModelTexture texture){
+		this(gridX, gridZ, loader, texture, new HeightMap(VERTEX_COUNT));
+	}
+
+	// Terreno com relevo: as alturas podem vir de uma imagem (HeightMap.fromImage) ou de um HeightGenerator (HeightMap.generate)
+	public Terrain(int gridX, int gridZ, Loader loader, ModelTexture texture, HeightMap heightMap){
+		this(gridX, gridZ, loader, texture, TerrainMesh.build(heightMap, SIZE, null));
+	}
+
+	// Terreno com a malha já montada (TerrainMesh.generate/build, que podem rodar em paralelo e fora da thread do
+	// OpenGL): aqui só acontece o envio para a GPU
+	public Terrain(int gridX, int gridZ, Loader loader, ModelTexture texture, TerrainMesh mesh){
 		this.texture = texture;
 		this.x = gridX * SIZE;
 		this.z = gridZ * SIZE;
-		this.model = generateTerrain(loader);
+		this.heightMap = mesh.getHeightMap();
+		this.lod = mesh.getLod();
+		// Com níveis de detalhe, o index buffer guarda as variantes de todos os níveis (compartilhadas pelos patches)
+		// no lugar da malha completa
+		int[] indices = lod != null ? lod.getIndices().getIndices() : mesh.getIndices();
+		this.model = loader.loadToVAO(mesh.getVertices(), mesh.getTextureCoords(), mesh.getNormals(), indices);
+	}
+
+	// Tamanho de um terreno no mundo (os terrenos vizinhos ficam a cada SIZE unidades em x e z)
+	public static float getSize() {
+		return SIZE;
+	}
+
+	// Quantidade padrão de vértices por lado (terrenos planos e gerados)
+	public static int getDefaultVertexCount() {
+		return VERTEX_COUNT;
+	}
+
+	// Altura do terreno no ponto (worldX, worldZ) do mundo, interpolada no triângulo da malha que contém o ponto.
+	// Retorna 0 fora do terreno. Não aloca, então pode ser chamado muitas vezes por quadro.
+	public float getHeightOfTerrain(float worldX, float worldZ) {
+		float gridSquareSize = SIZE / (heightMap.getVertexCount() - 1);
+		return heightMap.getInterpolatedHeight((worldX - x) / gridSquareSize, (worldZ - z) / gridSquareSize);
+	}
+
+	public HeightMap getHeightMap() {
+		return heightMap;
+	}
+
+	public TerrainLod getLod() {
+		return lod;
 	}
 	
 	public float getX() {
@@ -43,42 +90,4 @@ public class Terrain {
 		return texture;
 	}
 
-	private RawModel generateTerrain(Loader loader){
-		int count = VERTEX_COUNT * VERTEX_COUNT;
-		float[] vertices = new float[count * 3];
-		float[] normals = new float[count * 3];
-		float[] textureCoords = new float[count*2];
-		int[] indices = new int[6*(VERTEX_COUNT-1)*(VERTEX_COUNT-1)];
-		int vertexPointer = 0;
-		for(int i=0;i<VERTEX_COUNT;i++){
-			for(int j=0;j<VERTEX_COUNT;j++){
-				vertices[vertexPointer*3] = (float)j/((float)VERTEX_COUNT - 1) * SIZE;
-				vertices[vertexPointer*3+1] = 0;
-				vertices[vertexPointer*3+2] = (float)i/((float)VERTEX_COUNT - 1) * SIZE;
-				normals[vertexPointer*3] = 0;
-				normals[vertexPointer*3+1] = 1;
-				normals[vertexPointer*3+2] = 0;
-				textureCoords[vertexPointer*2] = (float)j/((float)VERTEX_COUNT - 1);
-				textureCoords[vertexPointer*2+1] = (float)i/((float)VERTEX_COUNT - 1);
-				vertexPointer++;
-			}
-		}
-		int pointer = 0;
-		for(int gz=0;gz<VERTEX_COUNT-1;gz++){
-			for(int gx=0;gx<VERTEX_COUNT-1;gx++){
-				int topLeft = (gz*VERTEX_COUNT)+gx;
-				int topRight = topLeft + 1;
-				int bottomLeft = ((gz+1)*VERTEX_COUNT)+gx;
-				int bottomRight = bottomLeft + 1;
-				indices[pointer++] = topLeft;
-				indices[pointer++] = bottomLeft;
-				indices[pointer++] = topRight;
-				indices[pointer++] = topRight;
-				indices[pointer++] = bottomLeft;
-				indices[pointer++] = bottomRight;
-			}
-		}
-		return loader.loadToVAO(vertices, textureCoords, normals, indices);
-	}
-
 }
\ No newline at end of file
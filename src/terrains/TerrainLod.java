@@ -0,0 +1,290 @@
+package terrains;
+
+import java.util.List;
+
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+	Nível de detalhe de um terreno por geomipmapping: a grade é dividida em patches de PATCH_QUADS x PATCH_QUADS
+	quadrados e cada patch é desenhado, a cada quadro, com um dos níveis de GeomipmapIndices (no nível L, um
+	vértice a cada 2^L). O erro geométrico de cada nível (a maior diferença de altura entre a malha completa e a
+	malha do nível) é calculado uma vez a partir do HeightMap; por quadro, cada patch usa o nível mais grosso cujo
+	erro projetado na tela, na distância da câmera até o patch, fica abaixo de maxPixelError pixels.
+
+	Patches vizinhos (inclusive em terrenos vizinhos) ficam no máximo um nível de distância um do outro; o patch mais
+	fino usa a variante costurada na borda com o mais grosso, então não há rachaduras entre eles.
+	Não faz chamadas OpenGL: pode ser montado fora da thread do OpenGL (TerrainMesh) e testado sem janela.
+ */
+public class TerrainLod {
+
+	// Quadrados por lado de um patch (17 x 17 vértices): a grade do terreno precisa de um múltiplo disso
+	public static final int PATCH_QUADS = 16;
+
+	// Direções dos vizinhos (mesma ordem dos bits de GeomipmapIndices)
+	private static final int NORTH = 0;
+	private static final int EAST = 1;
+	private static final int SOUTH = 2;
+	private static final int WEST = 3;
+	private static final int[] STITCH_BITS = { GeomipmapIndices.NORTH, GeomipmapIndices.EAST,
+			GeomipmapIndices.SOUTH, GeomipmapIndices.WEST };
+	// Sem vizinho nessa direção: não limita o nível
+	private static final int NO_NEIGHBOUR = Integer.MAX_VALUE / 2;
+
+	private final GeomipmapIndices indices;
+	private final int vertexCount;
+	private final int patchesPerSide;
+	private final int levelCount;
+	// Lado do terreno e de um patch no mundo
+	private final float size;
+	private final float patchSize;
+	// Erro geométrico de cada nível de cada patch, em [patch * levelCount + level]
+	private final float[] errors;
+	private final float[] minHeights;
+	private final float[] maxHeights;
+
+	// Estado do último quadro (select)
+	private final int[] levels;
+	private final int[] stitchMasks;
+	private final TerrainLod[] neighbours = new TerrainLod[4];
+	private int triangleCount;
+
+	// heightMap precisa de uma grade suportada (supports); size é o lado do terreno no mundo
+	public TerrainLod(HeightMap heightMap, float size) {
+		this.vertexCount = heightMap.getVertexCount();
+		this.indices = GeomipmapIndices.get(vertexCount, PATCH_QUADS);
+		this.patchesPerSide = (vertexCount - 1) / PATCH_QUADS;
+		this.levelCount = indices.getLevelCount();
+		this.size = size;
+		this.patchSize = size / patchesPerSide;
+		int patchCount = patchesPerSide * patchesPerSide;
+		this.errors = new float[patchCount * levelCount];
+		this.minHeights = new float[patchCount];
+		this.maxHeights = new float[patchCount];
+		this.levels = new int[patchCount];
+		this.stitchMasks = new int[patchCount];
+		for (int patch = 0; patch < patchCount; patch++) {
+			measurePatch(heightMap, patch);
+		}
+	}
+
+	// Se a grade de vertexCount vértices por lado pode ser dividida em patches
+	public static boolean supports(int vertexCount) {
+		return vertexCount > PATCH_QUADS && (vertexCount - 1) % PATCH_QUADS == 0;
+	}
+
+	// Escolhe os níveis de todos os terrenos do quadro e retorna a quantidade de triângulos que serão desenhados.
+	// pixelScale converte um erro a uma unidade de distância em pixels (metade da altura da tela vezes o m11 da
+	// projeção). Terrenos sem TerrainLod entram na conta com a malha completa.
+	public static int select(List<Terrain> terrains, Vector3f camera, float pixelScale, float maxPixelError) {
+		int triangles = 0;
+		for (int i = 0; i < terrains.size(); i++) {
+			Terrain terrain = terrains.get(i);
+			TerrainLod lod = terrain.getLod();
+			if (lod == null) {
+				triangles += terrain.getModel().getVertexCount() / 3;
+				continue;
+			}
+			lod.linkNeighbours(terrain, terrains);
+			lod.selectLevels(camera.x - terrain.getX(), camera.y, camera.z - terrain.getZ(), pixelScale, maxPixelError);
+		}
+		// Só diminui níveis, então termina: no pior caso uma passada por nível
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < terrains.size(); i++) {
+				TerrainLod lod = terrains.get(i).getLod();
+				if (lod != null && lod.limitToNeighbours()) {
+					changed = true;
+				}
+			}
+		}
+		for (int i = 0; i < terrains.size(); i++) {
+			TerrainLod lod = terrains.get(i).getLod();
+			if (lod != null) {
+				triangles += lod.updateStitching();
+			}
+		}
+		return triangles;
+	}
+
+	public GeomipmapIndices getIndices() {
+		return indices;
+	}
+
+	public int getPatchCount() {
+		return levels.length;
+	}
+
+	public int getLevel(int patch) {
+		return levels[patch];
+	}
+
+	public int getStitchMask(int patch) {
+		return stitchMasks[patch];
+	}
+
+	// Posição (em índices) e quantidade de índices do patch no nível e costura escolhidos no último quadro
+	public int getIndexOffset(int patch) {
+		return indices.getOffset(levels[patch], stitchMasks[patch]);
+	}
+
+	public int getIndexCount(int patch) {
+		return indices.getCount(levels[patch], stitchMasks[patch]);
+	}
+
+	// Vértice do canto do patch na grade do terreno (somado aos índices pelo glDrawElementsBaseVertex)
+	public int getBaseVertex(int patch) {
+		int patchX = patch % patchesPerSide;
+		int patchZ = patch / patchesPerSide;
+		return (patchZ * vertexCount + patchX) * PATCH_QUADS;
+	}
+
+	// Triângulos do terreno no último quadro
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	// Nível mais grosso cujo erro na tela fica abaixo do limite. A câmera está nas coordenadas do terreno.
+	void selectLevels(float cameraX, float cameraY, float cameraZ, float pixelScale, float maxPixelError) {
+		for (int patch = 0; patch < levels.length; patch++) {
+			// Distância da câmera até o ponto mais próximo da caixa do patch
+			float minX = (patch % patchesPerSide) * patchSize;
+			float minZ = (patch / patchesPerSide) * patchSize;
+			float dx = Math.max(0, Math.max(minX - cameraX, cameraX - (minX + patchSize)));
+			float dy = Math.max(0, Math.max(minHeights[patch] - cameraY, cameraY - maxHeights[patch]));
+			float dz = Math.max(0, Math.max(minZ - cameraZ, cameraZ - (minZ + patchSize)));
+			float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+			int level = 0;
+			while (level + 1 < levelCount && errors[patch * levelCount + level + 1] * pixelScale <= maxPixelError * distance) {
+				level++;
+			}
+			levels[patch] = level;
+		}
+	}
+
+	// Guarda os terrenos da lista que encostam neste (mesma grade de patches), para costurar as divisas
+	private void linkNeighbours(Terrain self, List<Terrain> terrains) {
+		for (int direction = 0; direction < 4; direction++) {
+			neighbours[direction] = null;
+		}
+		for (int i = 0; i < terrains.size(); i++) {
+			Terrain other = terrains.get(i);
+			TerrainLod lod = other.getLod();
+			if (lod == null || lod == this || lod.vertexCount != vertexCount || lod.size != size) {
+				continue;
+			}
+			float offsetX = other.getX() - self.getX();
+			float offsetZ = other.getZ() - self.getZ();
+			if (offsetX == 0 && offsetZ == -size) {
+				neighbours[NORTH] = lod;
+			} else if (offsetX == size && offsetZ == 0) {
+				neighbours[EAST] = lod;
+			} else if (offsetX == 0 && offsetZ == size) {
+				neighbours[SOUTH] = lod;
+			} else if (offsetX == -size && offsetZ == 0) {
+				neighbours[WEST] = lod;
+			}
+		}
+	}
+
+	// Diminui os níveis que estão mais de um acima de algum vizinho. Retorna se algum mudou.
+	boolean limitToNeighbours() {
+		boolean changed = false;
+		for (int patch = 0; patch < levels.length; patch++) {
+			int limit = NO_NEIGHBOUR;
+			for (int direction = 0; direction < 4; direction++) {
+				limit = Math.min(limit, getNeighbourLevel(patch, direction) + 1);
+			}
+			if (levels[patch] > limit) {
+				levels[patch] = limit;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	// Costura as bordas dos patches com vizinho mais grosso e retorna a quantidade de triângulos do terreno
+	int updateStitching() {
+		int indexCount = 0;
+		for (int patch = 0; patch < levels.length; patch++) {
+			int mask = 0;
+			for (int direction = 0; direction < 4; direction++) {
+				int neighbourLevel = getNeighbourLevel(patch, direction);
+				if (neighbourLevel != NO_NEIGHBOUR && neighbourLevel > levels[patch]) {
+					mask |= STITCH_BITS[direction];
+				}
+			}
+			stitchMasks[patch] = mask;
+			indexCount += indices.getCount(levels[patch], mask);
+		}
+		triangleCount = indexCount / 3;
+		return triangleCount;
+	}
+
+	// Nível do patch vizinho na direção (no próprio terreno ou no terreno vizinho), ou NO_NEIGHBOUR
+	private int getNeighbourLevel(int patch, int direction) {
+		int patchX = patch % patchesPerSide;
+		int patchZ = patch / patchesPerSide;
+		int last = patchesPerSide - 1;
+		switch (direction) {
+		case NORTH:
+			return patchZ > 0 ? levels[patch - patchesPerSide] : levelAt(neighbours[NORTH], patchX, last);
+		case EAST:
+			return patchX < last ? levels[patch + 1] : levelAt(neighbours[EAST], 0, patchZ);
+		case SOUTH:
+			return patchZ < last ? levels[patch + patchesPerSide] : levelAt(neighbours[SOUTH], patchX, 0);
+		default:
+			return patchX > 0 ? levels[patch - 1] : levelAt(neighbours[WEST], last, patchZ);
+		}
+	}
+
+	private static int levelAt(TerrainLod lod, int patchX, int patchZ) {
+		return lod == null ? NO_NEIGHBOUR : lod.levels[patchZ * lod.patchesPerSide + patchX];
+	}
+
+	// Alturas mínima e máxima do patch e o erro de cada nível: a maior diferença, nos vértices do patch, entre a
+	// altura real e a altura nos triângulos do nível (mesma diagonal da malha). O erro nunca diminui com o nível.
+	private void measurePatch(HeightMap heightMap, int patch) {
+		int originX = (patch % patchesPerSide) * PATCH_QUADS;
+		int originZ = (patch / patchesPerSide) * PATCH_QUADS;
+		float min = Float.POSITIVE_INFINITY;
+		float max = Float.NEGATIVE_INFINITY;
+		for (int z = 0; z <= PATCH_QUADS; z++) {
+			for (int x = 0; x <= PATCH_QUADS; x++) {
+				float height = heightMap.getHeight(originX + x, originZ + z);
+				min = Math.min(min, height);
+				max = Math.max(max, height);
+			}
+		}
+		minHeights[patch] = min;
+		maxHeights[patch] = max;
+		float previous = 0;
+		for (int level = 1; level < levelCount; level++) {
+			int step = 1 << level;
+			float error = previous;
+			for (int z = 0; z <= PATCH_QUADS; z++) {
+				for (int x = 0; x <= PATCH_QUADS; x++) {
+					int cellX = Math.min(x / step * step, PATCH_QUADS - step);
+					int cellZ = Math.min(z / step * step, PATCH_QUADS - step);
+					float approximation = interpolate(heightMap, originX + cellX, originZ + cellZ, step,
+							(float) (x - cellX) / step, (float) (z - cellZ) / step);
+					error = Math.max(error, Math.abs(heightMap.getHeight(originX + x, originZ + z) - approximation));
+				}
+			}
+			errors[patch * levelCount + level] = error;
+			previous = error;
+		}
+	}
+
+	// Altura no ponto (fx, fz), entre 0 e 1, do quadrado de lado step com canto em (x, z)
+	private static float interpolate(HeightMap heightMap, int x, int z, int step, float fx, float fz) {
+		float topRight = heightMap.getHeight(x + step, z);
+		float bottomLeft = heightMap.getHeight(x, z + step);
+		if (fx <= 1 - fz) {
+			float topLeft = heightMap.getHeight(x, z);
+			return topLeft + (topRight - topLeft) * fx + (bottomLeft - topLeft) * fz;
+		}
+		float bottomRight = heightMap.getHeight(x + step, z + step);
+		return bottomRight + (bottomLeft - bottomRight) * (1 - fx) + (topRight - bottomRight) * (1 - fz);
+	}
+}
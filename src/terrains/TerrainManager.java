@@ -0,0 +1,321 @@
+package terrains;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import renderEngine.Loader;
+import textures.ModelTexture;
+import toolbox.JobSystem;
+
+/**
+	Mundo de terrenos sem fim em volta da câmera: mantém na GPU os terrenos (tiles) até "radius" tiles de distância
+	da câmera (getTerrains, desenhados a cada quadro) e gera com antecedência o anel seguinte. A ordem de geração
+	segue a distância até a posição prevista da câmera (extrapolada pelo movimento dos últimos quadros), então os
+	tiles no caminho da câmera ficam prontos primeiro.
+
+	As malhas são montadas por threads próprias (TerrainMesh.generate, sem OpenGL); update, chamado uma vez por
+	quadro na thread do OpenGL, envia para a GPU os tiles prontos até gastar o orçamento de tempo do quadro e
+	libera os mais antigos (LRU) quando há mais que maxResidentTiles na GPU, nunca os do anel em volta da câmera.
+	Todos os métodos, exceto o trabalho das threads de geração, devem ser chamados na thread do OpenGL.
+ */
+public class TerrainManager {
+
+	// Quantos quadros à frente a posição da câmera é extrapolada para ordenar a geração
+	private static final float LOOKAHEAD_FRAMES = 30;
+	private static final long DEFAULT_UPLOAD_BUDGET_NANOS = 2000000;
+
+	private final Loader loader;
+	private final ModelTexture texture;
+	private final HeightGenerator generator;
+	// Tiles desenhados: até radius tiles da câmera em x e em z; o anel seguinte é gerado antes de ser necessário
+	private final int radius;
+	private final int maxInFlight;
+	private int maxResidentTiles;
+	private long uploadBudgetNanos = DEFAULT_UPLOAD_BUDGET_NANOS;
+
+	private final ExecutorService workers;
+	// Tiles na GPU, do usado há mais tempo para o mais recente (LinkedHashMap em ordem de acesso)
+	private final LinkedHashMap<Long, Terrain> resident = new LinkedHashMap<Long, Terrain>(64, 0.75f, true);
+	// Tiles pedidos às threads e ainda não enviados à GPU
+	private final Set<Long> requested = new HashSet<Long>();
+	// Malhas prontas, entregues pelas threads de geração
+	private final ConcurrentLinkedQueue<GeneratedTile> generated = new ConcurrentLinkedQueue<GeneratedTile>();
+
+	// Reutilizados a cada quadro para não alocar
+	private final List<Terrain> terrains = new ArrayList<Terrain>();
+	private final long[] candidates;
+	private final float[] candidateDistances;
+	private final Vector3f lastPosition = new Vector3f();
+	private boolean hasLastPosition;
+
+	// Contadores do último update
+	private int generationQueueDepth;
+	private int tilesUploaded;
+	private int tilesEvicted;
+	private long uploadNanos;
+
+	// Malha gerada por uma thread, esperando o envio na thread do OpenGL
+	private static class GeneratedTile {
+
+		final int gridX;
+		final int gridZ;
+		TerrainMesh mesh;
+
+		GeneratedTile(int gridX, int gridZ) {
+			this.gridX = gridX;
+			this.gridZ = gridZ;
+		}
+	}
+
+	public TerrainManager(Loader loader, ModelTexture texture, HeightGenerator generator, int radius, int generatorThreads) {
+		this.loader = loader;
+		this.texture = texture;
+		this.generator = generator;
+		this.radius = radius;
+		this.maxInFlight = Math.max(1, generatorThreads) * 2;
+		int keepSide = 2 * (radius + 1) + 1;
+		this.candidates = new long[keepSide * keepSide];
+		this.candidateDistances = new float[keepSide * keepSide];
+		// Por padrão, além do anel mantido, mais um anel fica em cache para a câmera que volta
+		int cacheSide = keepSide + 2;
+		this.maxResidentTiles = cacheSide * cacheSide;
+		this.workers = Executors.newFixedThreadPool(Math.max(1, generatorThreads), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "terrain-generator");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// Gera e envia já os tiles desenhados em volta da posição, na thread atual com a ajuda do JobSystem
+	// (ex.: antes do primeiro quadro, para posicionar entidades com getHeightOfTerrain)
+	public void preload(Vector3f cameraPosition, JobSystem jobs) {
+		int centerX = getTileCoordinate(cameraPosition.x);
+		int centerZ = getTileCoordinate(cameraPosition.z);
+		for (int gridZ = centerZ - radius; gridZ <= centerZ + radius; gridZ++) {
+			for (int gridX = centerX - radius; gridX <= centerX + radius; gridX++) {
+				long key = getKey(gridX, gridZ);
+				if (!resident.containsKey(key) && !requested.contains(key)) {
+					TerrainMesh mesh = TerrainMesh.generate(generator, Terrain.getDefaultVertexCount(), gridX, gridZ,
+							Terrain.getSize(), jobs);
+					resident.put(key, new Terrain(gridX, gridZ, loader, texture, mesh));
+				}
+			}
+		}
+		collectTerrains(centerX, centerZ);
+	}
+
+	// Uma vez por quadro, antes de desenhar: envia os tiles prontos, atualiza a lista de desenho, libera os
+	// tiles antigos e pede os que faltam em volta da câmera
+	public void update(Vector3f cameraPosition) {
+		int centerX = getTileCoordinate(cameraPosition.x);
+		int centerZ = getTileCoordinate(cameraPosition.z);
+		uploadGenerated(centerX, centerZ);
+		collectTerrains(centerX, centerZ);
+		evict(centerX, centerZ);
+		requestTiles(cameraPosition, centerX, centerZ);
+		lastPosition.set(cameraPosition);
+		hasLastPosition = true;
+	}
+
+	// Tiles a desenhar neste quadro (para MasterRenderer.processTerrain)
+	public List<Terrain> getTerrains() {
+		return terrains;
+	}
+
+	// Altura do terreno no ponto do mundo, ou 0 se o tile dele não estiver carregado
+	public float getHeightOfTerrain(float worldX, float worldZ) {
+		Terrain terrain = resident.get(getKey(getTileCoordinate(worldX), getTileCoordinate(worldZ)));
+		return terrain == null ? 0 : terrain.getHeightOfTerrain(worldX, worldZ);
+	}
+
+	// Tempo máximo, por quadro, gasto enviando tiles para a GPU (pelo menos um tile é enviado por quadro)
+	public void setUploadBudgetNanos(long uploadBudgetNanos) {
+		this.uploadBudgetNanos = uploadBudgetNanos;
+	}
+
+	// Quantidade de tiles mantidos na GPU antes de liberar os usados há mais tempo (no mínimo o anel em volta da câmera)
+	public void setMaxResidentTiles(int maxResidentTiles) {
+		this.maxResidentTiles = Math.max(maxResidentTiles, candidates.length);
+	}
+
+	// Tiles na GPU
+	public int getResidentTiles() {
+		return resident.size();
+	}
+
+	// Tiles em volta da câmera que ainda não foram gerados (na fila ou sendo gerados) no último update
+	public int getGenerationQueueDepth() {
+		return generationQueueDepth;
+	}
+
+	// Tiles já gerados esperando o envio para a GPU
+	public int getPendingUploads() {
+		return generated.size();
+	}
+
+	// Tempo gasto enviando tiles para a GPU no último update, em nanossegundos
+	public long getUploadNanos() {
+		return uploadNanos;
+	}
+
+	public int getTilesUploaded() {
+		return tilesUploaded;
+	}
+
+	public int getTilesEvicted() {
+		return tilesEvicted;
+	}
+
+	// Para as threads de geração e libera todos os tiles da GPU
+	public void cleanUp() {
+		workers.shutdownNow();
+		for (Terrain terrain : resident.values()) {
+			loader.unloadModel(terrain.getModel());
+		}
+		resident.clear();
+		requested.clear();
+		generated.clear();
+		terrains.clear();
+	}
+
+	// Envia os tiles prontos até acabar o orçamento. Tiles que saíram do anel enquanto eram gerados e gerações que
+	// falharam são descartados.
+	private void uploadGenerated(int centerX, int centerZ) {
+		long start = System.nanoTime();
+		tilesUploaded = 0;
+		GeneratedTile tile;
+		while ((tile = generated.peek()) != null) {
+			// Pelo menos um tile por quadro, mesmo que ele sozinho passe do orçamento, para a fila sempre andar
+			if (tilesUploaded > 0 && System.nanoTime() - start >= uploadBudgetNanos) {
+				break;
+			}
+			generated.poll();
+			long key = getKey(tile.gridX, tile.gridZ);
+			requested.remove(key);
+			// Geração que falhou (o tile volta a ser pedido em requestTiles) ou tile que saiu do anel
+			if (tile.mesh == null || getRingDistance(tile.gridX, tile.gridZ, centerX, centerZ) > radius + 1) {
+				continue;
+			}
+			resident.put(key, new Terrain(tile.gridX, tile.gridZ, loader, texture, tile.mesh));
+			tilesUploaded++;
+		}
+		uploadNanos = System.nanoTime() - start;
+	}
+
+	// Tiles carregados até radius tiles da câmera; o acesso pelo get também os marca como usados para o LRU
+	private void collectTerrains(int centerX, int centerZ) {
+		terrains.clear();
+		for (int gridZ = centerZ - radius; gridZ <= centerZ + radius; gridZ++) {
+			for (int gridX = centerX - radius; gridX <= centerX + radius; gridX++) {
+				Terrain terrain = resident.get(getKey(gridX, gridZ));
+				if (terrain != null) {
+					terrains.add(terrain);
+				}
+			}
+		}
+	}
+
+	// Libera os tiles usados há mais tempo enquanto houver mais que maxResidentTiles, exceto os do anel mantido
+	private void evict(int centerX, int centerZ) {
+		tilesEvicted = 0;
+		Iterator<Map.Entry<Long, Terrain>> iterator = resident.entrySet().iterator();
+		while (resident.size() > maxResidentTiles && iterator.hasNext()) {
+			Terrain terrain = iterator.next().getValue();
+			int gridX = getTileCoordinate(terrain.getX());
+			int gridZ = getTileCoordinate(terrain.getZ());
+			if (getRingDistance(gridX, gridZ, centerX, centerZ) <= radius + 1) {
+				continue;
+			}
+			loader.unloadModel(terrain.getModel());
+			iterator.remove();
+			tilesEvicted++;
+		}
+	}
+
+	// Pede às threads os tiles que faltam no anel mantido, do mais próximo da posição prevista para o mais longe,
+	// sem passar de maxInFlight pedidos ao mesmo tempo
+	private void requestTiles(Vector3f cameraPosition, int centerX, int centerZ) {
+		float predictedX = cameraPosition.x;
+		float predictedZ = cameraPosition.z;
+		if (hasLastPosition) {
+			predictedX += (cameraPosition.x - lastPosition.x) * LOOKAHEAD_FRAMES;
+			predictedZ += (cameraPosition.z - lastPosition.z) * LOOKAHEAD_FRAMES;
+		}
+		float size = Terrain.getSize();
+		int count = 0;
+		int keepRadius = radius + 1;
+		for (int gridZ = centerZ - keepRadius; gridZ <= centerZ + keepRadius; gridZ++) {
+			for (int gridX = centerX - keepRadius; gridX <= centerX + keepRadius; gridX++) {
+				long key = getKey(gridX, gridZ);
+				if (resident.containsKey(key) || requested.contains(key)) {
+					continue;
+				}
+				float dx = (gridX + 0.5f) * size - predictedX;
+				float dz = (gridZ + 0.5f) * size - predictedZ;
+				// Inserção ordenada: no máximo algumas dezenas de candidatos
+				float distance = dx * dx + dz * dz;
+				int position = count++;
+				while (position > 0 && candidateDistances[position - 1] > distance) {
+					candidates[position] = candidates[position - 1];
+					candidateDistances[position] = candidateDistances[position - 1];
+					position--;
+				}
+				candidates[position] = key;
+				candidateDistances[position] = distance;
+			}
+		}
+		int submitted = 0;
+		int inFlight = requested.size() - generated.size();
+		while (submitted < count && inFlight < maxInFlight) {
+			submit(candidates[submitted++]);
+			inFlight++;
+		}
+		generationQueueDepth = count - submitted + inFlight;
+	}
+
+	private void submit(long key) {
+		final GeneratedTile tile = new GeneratedTile((int) (key >> 32), (int) key);
+		requested.add(key);
+		workers.execute(new Runnable() {
+			@Override
+			public void run() {
+				// Uma falha também é entregue (mesh null), para o pedido ser liberado e o tile pedido de novo
+				try {
+					tile.mesh = TerrainMesh.generate(generator, Terrain.getDefaultVertexCount(), tile.gridX, tile.gridZ,
+							Terrain.getSize(), null);
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				} finally {
+					generated.add(tile);
+				}
+			}
+		});
+	}
+
+	private static int getTileCoordinate(float world) {
+		return (int) Math.floor(world / Terrain.getSize());
+	}
+
+	// Distância em tiles (a maior entre x e z): os anéis são quadrados
+	private static int getRingDistance(int gridX, int gridZ, int centerX, int centerZ) {
+		return Math.max(Math.abs(gridX - centerX), Math.abs(gridZ - centerZ));
+	}
+
+	private static long getKey(int gridX, int gridZ) {
+		return ((long) gridX << 32) | (gridZ & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,136 @@
+package terrains;
+
+import toolbox.JobSystem;
+
+/**
+	Dados da malha de um terreno (posições, normais, coordenadas de textura e índices) montados na CPU, sem OpenGL.
+	A montagem é dividida em faixas de linhas da grade distribuídas pelo JobSystem (ForkJoinPool): cada faixa
+	escreve só nas suas posições dos arrays, com as mesmas contas da versão sequencial, então o resultado é
+	idêntico com qualquer número de threads. Pode ser feita fora da thread do OpenGL; só o envio
+	(new Terrain(..., mesh), que chama Loader.loadToVAO) precisa acontecer nela.
+ */
+public class TerrainMesh {
+
+	// Quantidade aproximada de vértices por faixa: faixas menores só aumentam o custo de distribuir as tarefas
+	private static final int VERTICES_PER_BAND = 16384;
+
+	private final HeightMap heightMap;
+	private final float[] vertices;
+	private final float[] normals;
+	private final float[] textureCoords;
+	private final int[] indices;
+	// Níveis de detalhe por patch (null quando a grade não pode ser dividida em patches)
+	private TerrainLod lod;
+
+	private TerrainMesh(HeightMap heightMap) {
+		this.heightMap = heightMap;
+		int vertexCount = heightMap.getVertexCount();
+		int count = vertexCount * vertexCount;
+		this.vertices = new float[count * 3];
+		this.normals = new float[count * 3];
+		this.textureCoords = new float[count * 2];
+		this.indices = new int[6 * (vertexCount - 1) * (vertexCount - 1)];
+	}
+
+	// Gera as alturas com o HeightGenerator e monta a malha do terreno (gridX, gridZ) de lado "size".
+	// jobs pode ser null para fazer tudo na thread atual.
+	public static TerrainMesh generate(final HeightGenerator generator, int vertexCount, final int gridX, final int gridZ,
+			float size, JobSystem jobs) {
+		final HeightMap heightMap = new HeightMap(vertexCount);
+		// Linhas de -1 a vertexCount (a borda incluída): a faixa [from, to) cobre as linhas [from - 1, to - 1)
+		runBands(jobs, vertexCount + 2, rowsPerBand(vertexCount), new JobSystem.RangeJob() {
+			@Override
+			public void run(int chunk, int from, int to) {
+				heightMap.generateRows(generator, gridX, gridZ, from - 1, to - 1);
+			}
+		});
+		return build(heightMap, size, jobs);
+	}
+
+	// Monta a malha a partir de alturas já prontas. jobs pode ser null para fazer tudo na thread atual.
+	public static TerrainMesh build(HeightMap heightMap, final float size, JobSystem jobs) {
+		final TerrainMesh mesh = new TerrainMesh(heightMap);
+		final int vertexCount = heightMap.getVertexCount();
+		runBands(jobs, vertexCount, rowsPerBand(vertexCount), new JobSystem.RangeJob() {
+			@Override
+			public void run(int chunk, int from, int to) {
+				mesh.buildRows(size, from, to);
+			}
+		});
+		if (TerrainLod.supports(vertexCount)) {
+			mesh.lod = new TerrainLod(heightMap, size);
+		}
+		return mesh;
+	}
+
+	public HeightMap getHeightMap() {
+		return heightMap;
+	}
+
+	public float[] getVertices() {
+		return vertices;
+	}
+
+	public float[] getNormals() {
+		return normals;
+	}
+
+	public float[] getTextureCoords() {
+		return textureCoords;
+	}
+
+	// Índices da malha completa (dois triângulos por quadrado)
+	public int[] getIndices() {
+		return indices;
+	}
+
+	public TerrainLod getLod() {
+		return lod;
+	}
+
+	// Vértices, normais e coordenadas de textura das linhas [firstZ, lastZ) e os índices dos quadrados que começam nelas
+	private void buildRows(float size, int firstZ, int lastZ) {
+		int vertexCount = heightMap.getVertexCount();
+		heightMap.computeNormals(size / (vertexCount - 1), normals, firstZ, lastZ);
+		int vertexPointer = firstZ * vertexCount;
+		for (int i = firstZ; i < lastZ; i++) {
+			for (int j = 0; j < vertexCount; j++) {
+				vertices[vertexPointer * 3] = (float) j / ((float) vertexCount - 1) * size;
+				vertices[vertexPointer * 3 + 1] = heightMap.getHeight(j, i);
+				vertices[vertexPointer * 3 + 2] = (float) i / ((float) vertexCount - 1) * size;
+				textureCoords[vertexPointer * 2] = (float) j / ((float) vertexCount - 1);
+				textureCoords[vertexPointer * 2 + 1] = (float) i / ((float) vertexCount - 1);
+				vertexPointer++;
+			}
+		}
+		int pointer = firstZ * (vertexCount - 1) * 6;
+		for (int gz = firstZ; gz < Math.min(lastZ, vertexCount - 1); gz++) {
+			for (int gx = 0; gx < vertexCount - 1; gx++) {
+				int topLeft = (gz * vertexCount) + gx;
+				int topRight = topLeft + 1;
+				int bottomLeft = ((gz + 1) * vertexCount) + gx;
+				int bottomRight = bottomLeft + 1;
+				indices[pointer++] = topLeft;
+				indices[pointer++] = bottomLeft;
+				indices[pointer++] = topRight;
+				indices[pointer++] = topRight;
+				indices[pointer++] = bottomLeft;
+				indices[pointer++] = bottomRight;
+			}
+		}
+	}
+
+	private static int rowsPerBand(int vertexCount) {
+		return Math.max(1, VERTICES_PER_BAND / vertexCount);
+	}
+
+	private static void runBands(JobSystem jobs, int rows, int rowsPerBand, JobSystem.RangeJob job) {
+		if (jobs != null) {
+			jobs.parallelFor(rows, rowsPerBand, job);
+			return;
+		}
+		for (int from = 0; from < rows; from += rowsPerBand) {
+			job.run(from / rowsPerBand, from, Math.min(rows, from + rowsPerBand));
+		}
+	}
+}
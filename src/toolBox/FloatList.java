@@ -0,0 +1,48 @@
+package toolbox;
+
+import java.util.Arrays;
+
+// Lista de floats primitivos que cresce conforme necessário (sem criar um objeto Float por elemento).
+public class FloatList {
+
+    private float[] data;
+    private int size;
+
+    public FloatList() {
+        this(16);
+    }
+
+    public FloatList(int initialCapacity) {
+        data = new float[Math.max(initialCapacity, 1)];
+    }
+
+    // Adiciona um valor no final da lista, dobrando a capacidade do array quando ele está cheio
+    public void add(float value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public float get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, float value) {
+        data[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Esvazia a lista mantendo o array alocado para reutilização
+    public void clear() {
+        size = 0;
+    }
+
+    // Retorna uma cópia exata (do tamanho da lista) dos valores armazenados
+    public float[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
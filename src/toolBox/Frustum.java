@@ -0,0 +1,64 @@
+package toolbox;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+/**
+    Frustum de visão (os 6 planos que limitam o que a câmera enxerga), extraído da matriz projeção * visualização
+    pelo método de Gribb e Hartmann. Cada plano é guardado como (a, b, c, d) normalizado, com a normal apontando
+    para dentro: a*x + b*y + c*z + d >= 0 para pontos dentro do frustum.
+ */
+public class Frustum {
+
+    private static final int PLANE_COUNT = 6;
+
+    private final float[] planes = new float[PLANE_COUNT * 4];
+    private final Matrix4f clip = new Matrix4f();
+
+    // Recalcula os planos a partir das matrizes de projeção e de visualização do quadro atual
+    public void update(Matrix4f projection, Matrix4f view) {
+        Matrix4f.mul(projection, view, clip);
+        // Na Matrix4f do LWJGL, mCL é a coluna C e a linha L; os planos combinam a linha 3 com as linhas 0, 1 e 2
+        setPlane(0, clip.m03 + clip.m00, clip.m13 + clip.m10, clip.m23 + clip.m20, clip.m33 + clip.m30); // Esquerda
+        setPlane(1, clip.m03 - clip.m00, clip.m13 - clip.m10, clip.m23 - clip.m20, clip.m33 - clip.m30); // Direita
+        setPlane(2, clip.m03 + clip.m01, clip.m13 + clip.m11, clip.m23 + clip.m21, clip.m33 + clip.m31); // Baixo
+        setPlane(3, clip.m03 - clip.m01, clip.m13 - clip.m11, clip.m23 - clip.m21, clip.m33 - clip.m31); // Cima
+        setPlane(4, clip.m03 + clip.m02, clip.m13 + clip.m12, clip.m23 + clip.m22, clip.m33 + clip.m32); // Perto
+        setPlane(5, clip.m03 - clip.m02, clip.m13 - clip.m12, clip.m23 - clip.m22, clip.m33 - clip.m32); // Longe
+    }
+
+    // Verifica se uma esfera (centro x, y, z e raio) está, ao menos em parte, dentro do frustum
+    public boolean testSphere(float x, float y, float z, float radius) {
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            if (planes[i] * x + planes[i + 1] * y + planes[i + 2] * z + planes[i + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Verifica se uma caixa alinhada aos eixos (AABB) está, ao menos em parte, dentro do frustum.
+    // Para cada plano testa apenas o canto da caixa mais à frente na direção da normal.
+    public boolean testAABB(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        for (int i = 0; i < PLANE_COUNT * 4; i += 4) {
+            float a = planes[i];
+            float b = planes[i + 1];
+            float c = planes[i + 2];
+            float x = a >= 0 ? maxX : minX;
+            float y = b >= 0 ? maxY : minY;
+            float z = c >= 0 ? maxZ : minZ;
+            if (a * x + b * y + c * z + planes[i + 3] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Guarda o plano normalizado (normal de comprimento 1), para que as distâncias fiquem em unidades do mundo
+    private void setPlane(int plane, float a, float b, float c, float d) {
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        planes[plane * 4] = a / length;
+        planes[plane * 4 + 1] = b / length;
+        planes[plane * 4 + 2] = c / length;
+        planes[plane * 4 + 3] = d / length;
+    }
+}
@@ -0,0 +1,48 @@
+package toolbox;
+
+import java.util.Arrays;
+
+// Lista de ints primitivos que cresce conforme necessário (sem criar um objeto Integer por elemento).
+public class IntList {
+
+    private int[] data;
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(int initialCapacity) {
+        data = new int[Math.max(initialCapacity, 1)];
+    }
+
+    // Adiciona um valor no final da lista, dobrando a capacidade do array quando ele está cheio
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public int get(int index) {
+        return data[index];
+    }
+
+    public void set(int index, int value) {
+        data[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Esvazia a lista mantendo o array alocado para reutilização
+    public void clear() {
+        size = 0;
+    }
+
+    // Retorna uma cópia exata (do tamanho da lista) dos valores armazenados
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
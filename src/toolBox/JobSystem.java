@@ -0,0 +1,93 @@
+package toolbox;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+    Sistema de tarefas para o trabalho de cada quadro que pode ser dividido entre núcleos (culling, matrizes das instâncias...).
+    O intervalo [0, count) é cortado em blocos de tamanho fixo ("chunks"); os blocos são distribuídos entre as threads
+    de um ForkJoinPool por divisão recursiva, e threads ociosas roubam blocos das ocupadas (work stealing).
+    Como o corte depende só de count e chunkSize, o bloco c sempre cobre [c * chunkSize, min(count, (c + 1) * chunkSize)):
+    cada tarefa pode escrever na sua própria fatia de um buffer sem sincronização.
+    Não usa OpenGL: pode ser executado fora da thread do contexto.
+ */
+public class JobSystem {
+
+    // Trabalho executado para cada bloco do intervalo
+    public interface RangeJob {
+        void run(int chunk, int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+
+    // Usa uma thread por núcleo disponível
+    public JobSystem() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public JobSystem(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    // Quantidade de threads do pool
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Quantidade de blocos em que parallelFor divide "count" elementos
+    public static int chunkCount(int count, int chunkSize) {
+        return (count + chunkSize - 1) / chunkSize;
+    }
+
+    // Executa job em todos os blocos de [0, count) e só retorna quando todos terminarem
+    public void parallelFor(int count, int chunkSize, RangeJob job) {
+        int chunks = chunkCount(count, chunkSize);
+        if (chunks == 0) {
+            return;
+        }
+        if (chunks == 1 || pool.getParallelism() == 1) {
+            // Sem ganho em distribuir: executa na thread atual
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                job.run(chunk, chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize));
+            }
+            return;
+        }
+        pool.invoke(new ChunkTask(job, count, chunkSize, 0, chunks));
+    }
+
+    // Encerra as threads do pool
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Divide o intervalo de blocos ao meio até sobrar um bloco por tarefa
+    private static class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RangeJob job;
+        private final int count;
+        private final int chunkSize;
+        private final int firstChunk;
+        private final int endChunk;
+
+        ChunkTask(RangeJob job, int count, int chunkSize, int firstChunk, int endChunk) {
+            this.job = job;
+            this.count = count;
+            this.chunkSize = chunkSize;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk == 1) {
+                job.run(firstChunk, firstChunk * chunkSize, Math.min(count, (firstChunk + 1) * chunkSize));
+                return;
+            }
+            int middle = (firstChunk + endChunk) >>> 1;
+            invokeAll(new ChunkTask(job, count, chunkSize, firstChunk, middle),
+                    new ChunkTask(job, count, chunkSize, middle, endChunk));
+        }
+    }
+}
@@ -7,53 +7,127 @@ import entities.Camera;
 
 public class Maths {
 
+    private static final ThreadLocal<Matrix4f> SCRATCH_MATRIX = new ThreadLocal<Matrix4f>() {
+        @Override
+        protected Matrix4f initialValue() {
+            return new Matrix4f();
+        }
+    };
+
     // Cria uma matriz de transformação com base nos parâmetros de posição, rotação e escala
+    // (aloca uma nova matriz; em código executado a cada quadro prefira a versão com "dest")
     public static Matrix4f createTransformationMatrix(Vector3f translation, float rx, float ry,
             float rz, float scale) {
-        Matrix4f matrix = new Matrix4f();
-        
-        // Inicializa a matriz como uma matriz identidade (todos os elementos são 0 exceto a diagonal principal, que é 1)
-        matrix.setIdentity();
-        
-        // Realiza uma translação na matriz usando os valores de posição (translation) passados como parâmetros
-        Matrix4f.translate(translation, matrix, matrix);
-        
-        // Realiza rotações na matriz nos eixos X, Y e Z, usando os ângulos passados como parâmetros
-        // As rotações são realizadas em relação ao sistema de coordenadas da matriz (local)
-        Matrix4f.rotate((float) Math.toRadians(rx), new Vector3f(1, 0, 0), matrix, matrix);
-        Matrix4f.rotate((float) Math.toRadians(ry), new Vector3f(0, 1, 0), matrix, matrix);
-        Matrix4f.rotate((float) Math.toRadians(rz), new Vector3f(0, 0, 1), matrix, matrix);
-        
-        // Realiza uma escala na matriz, ajustando os valores nos eixos X, Y e Z, usando o valor passado como parâmetro (scale)
-        Matrix4f.scale(new Vector3f(scale, scale, scale), matrix, matrix);
-        
-        // Retorna a matriz de transformação final
-        return matrix;
+        return createTransformationMatrix(translation, rx, ry, rz, scale, new Matrix4f());
+    }
+
+    // Versão sem alocação: escreve em "dest" a matriz de transformação (translação * rotX * rotY * rotZ * escala),
+    // montada diretamente na forma fechada em vez de multiplicar matriz por matriz. Retorna "dest".
+    public static Matrix4f createTransformationMatrix(Vector3f translation, float rx, float ry,
+            float rz, float scale, Matrix4f dest) {
+        double ax = Math.toRadians(rx);
+        double ay = Math.toRadians(ry);
+        double az = Math.toRadians(rz);
+        float sx = (float) Math.sin(ax);
+        float cx = (float) Math.cos(ax);
+        float sy = (float) Math.sin(ay);
+        float cy = (float) Math.cos(ay);
+        float sz = (float) Math.sin(az);
+        float cz = (float) Math.cos(az);
+
+        // Campos mCL: C = coluna, L = linha. As colunas 0..2 são os eixos rotacionados e escalados
+        dest.m00 = cy * cz * scale;
+        dest.m01 = (cx * sz + sx * sy * cz) * scale;
+        dest.m02 = (sx * sz - cx * sy * cz) * scale;
+        dest.m03 = 0;
+        dest.m10 = -cy * sz * scale;
+        dest.m11 = (cx * cz - sx * sy * sz) * scale;
+        dest.m12 = (sx * cz + cx * sy * sz) * scale;
+        dest.m13 = 0;
+        dest.m20 = sy * scale;
+        dest.m21 = -sx * cy * scale;
+        dest.m22 = cx * cy * scale;
+        dest.m23 = 0;
+        // A coluna 3 é a translação
+        dest.m30 = translation.x;
+        dest.m31 = translation.y;
+        dest.m32 = translation.z;
+        dest.m33 = 1;
+        return dest;
+    }
+
+    // Mesma matriz de transformação, escrita em ordem de colunas (como Matrix4f.store e o GLSL) em dest[offset .. offset + 15].
+    // Usada pelos laços sobre arrays de primitivos (EntityStore), sem objetos intermediários.
+    public static void storeTransformationMatrix(float x, float y, float z, float rx, float ry, float rz, float scale,
+            float[] dest, int offset) {
+        double ax = Math.toRadians(rx);
+        double ay = Math.toRadians(ry);
+        double az = Math.toRadians(rz);
+        float sx = (float) Math.sin(ax);
+        float cx = (float) Math.cos(ax);
+        float sy = (float) Math.sin(ay);
+        float cy = (float) Math.cos(ay);
+        float sz = (float) Math.sin(az);
+        float cz = (float) Math.cos(az);
+
+        dest[offset] = cy * cz * scale;
+        dest[offset + 1] = (cx * sz + sx * sy * cz) * scale;
+        dest[offset + 2] = (sx * sz - cx * sy * cz) * scale;
+        dest[offset + 3] = 0;
+        dest[offset + 4] = -cy * sz * scale;
+        dest[offset + 5] = (cx * cz - sx * sy * sz) * scale;
+        dest[offset + 6] = (sx * cz + cx * sy * sz) * scale;
+        dest[offset + 7] = 0;
+        dest[offset + 8] = sy * scale;
+        dest[offset + 9] = -sx * cy * scale;
+        dest[offset + 10] = cx * cy * scale;
+        dest[offset + 11] = 0;
+        dest[offset + 12] = x;
+        dest[offset + 13] = y;
+        dest[offset + 14] = z;
+        dest[offset + 15] = 1;
     }
 
     // Cria uma matriz de visualização (view matrix) com base nos parâmetros da câmera
+    // (aloca uma nova matriz; em código executado a cada quadro prefira a versão com "dest")
     public static Matrix4f createViewMatrix(Camera camera) {
-        Matrix4f viewMatrix = new Matrix4f();
-        
-        // Inicializa a matriz de visualização como uma matriz identidade
-        viewMatrix.setIdentity();
-        
-        // Realiza rotações inversas (negativas) na matriz de visualização para simular a rotação da câmera
-        // As rotações são realizadas nos eixos X e Y, usando os ângulos de pitch e yaw da câmera
-        Matrix4f.rotate((float) Math.toRadians(camera.getPitch()), new Vector3f(1, 0, 0), viewMatrix, viewMatrix);
-        Matrix4f.rotate((float) Math.toRadians(camera.getYaw()), new Vector3f(0, 1, 0), viewMatrix, viewMatrix);
-        
-        // Obtém a posição da câmera
-        Vector3f cameraPos = camera.getPosition();
-        
-        // Cria um vetor com a posição negativa da câmera (inverte os valores dos eixos para simular o movimento da câmera)
-        Vector3f negativeCameraPos = new Vector3f(-cameraPos.x, -cameraPos.y, -cameraPos.z);
-        
-        // Realiza uma translação inversa (negativa) na matriz de visualização para simular o movimento da câmera
-        // Move a cena na direção oposta à posição da câmera
-        Matrix4f.translate(negativeCameraPos, viewMatrix, viewMatrix);
-        
-        // Retorna a matriz de visualização final
-        return viewMatrix;
+        return createViewMatrix(camera, new Matrix4f());
+    }
+
+    // Versão sem alocação: escreve em "dest" a matriz de visualização (rotX(pitch) * rotY(yaw) * translação(-posição))
+    // na forma fechada. Retorna "dest".
+    public static Matrix4f createViewMatrix(Camera camera, Matrix4f dest) {
+        double pitch = Math.toRadians(camera.getPitch());
+        double yaw = Math.toRadians(camera.getYaw());
+        float sx = (float) Math.sin(pitch);
+        float cx = (float) Math.cos(pitch);
+        float sy = (float) Math.sin(yaw);
+        float cy = (float) Math.cos(yaw);
+        Vector3f position = camera.getPosition();
+
+        dest.m00 = cy;
+        dest.m01 = sx * sy;
+        dest.m02 = -cx * sy;
+        dest.m03 = 0;
+        dest.m10 = 0;
+        dest.m11 = cx;
+        dest.m12 = sx;
+        dest.m13 = 0;
+        dest.m20 = sy;
+        dest.m21 = -sx * cy;
+        dest.m22 = cx * cy;
+        dest.m23 = 0;
+        // Translação = rotação aplicada à posição negativa da câmera
+        dest.m30 = -(dest.m00 * position.x + dest.m10 * position.y + dest.m20 * position.z);
+        dest.m31 = -(dest.m01 * position.x + dest.m11 * position.y + dest.m21 * position.z);
+        dest.m32 = -(dest.m02 * position.x + dest.m12 * position.y + dest.m22 * position.z);
+        dest.m33 = 1;
+        return dest;
+    }
+
+    // Matriz temporária própria de cada thread, para quem precisa de uma matriz só durante uma chamada
+    // (o conteúdo é sobrescrito pelo próximo uso na mesma thread)
+    public static Matrix4f getScratchMatrix() {
+        return SCRATCH_MATRIX.get();
     }
 }
@@ -0,0 +1,148 @@
+package toolbox;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+    Escreve valores em um ByteBuffer seguindo as regras de alinhamento do layout std140 dos uniform blocks do GLSL:
+    float/int ocupam 4 bytes alinhados em 4; vec2 8 bytes alinhados em 8; vec3 12 bytes e vec4 16 bytes, ambos
+    alinhados em 16; mat4 são 4 colunas vec4 (64 bytes). Elementos de arrays e structs começam e terminam alinhados
+    em 16 (beginStruct/endStruct, putFloatArray). Não faz chamadas OpenGL: o mesmo código que monta o bloco para a
+    GPU pode ser usado para conferir os deslocamentos.
+    A ordem dos bytes é a do ByteBuffer (use ByteOrder.nativeOrder() para enviar ao OpenGL).
+ */
+public class Std140Writer {
+
+    public static final int SCALAR_SIZE = 4;
+    public static final int VEC4_SIZE = 16;
+    public static final int MAT4_SIZE = 64;
+
+    private ByteBuffer buffer;
+    // Deslocamento (em bytes) a partir do início do bloco; o bloco começa na posição do buffer em reset()
+    private int offset;
+    private int start;
+
+    public Std140Writer(ByteBuffer buffer) {
+        reset(buffer);
+    }
+
+    // Recomeça a escrita do bloco a partir da posição atual do buffer
+    public void reset(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.start = buffer.position();
+        this.offset = 0;
+    }
+
+    // Deslocamento atual, em bytes, a partir do início do bloco
+    public int getOffset() {
+        return offset;
+    }
+
+    public Std140Writer putFloat(float value) {
+        align(SCALAR_SIZE);
+        buffer.putFloat(start + offset, value);
+        offset += SCALAR_SIZE;
+        return this;
+    }
+
+    public Std140Writer putInt(int value) {
+        align(SCALAR_SIZE);
+        buffer.putInt(start + offset, value);
+        offset += SCALAR_SIZE;
+        return this;
+    }
+
+    public Std140Writer putVec2(float x, float y) {
+        align(2 * SCALAR_SIZE);
+        putComponents(x, y);
+        return this;
+    }
+
+    // vec3 é alinhado como vec4, mas só ocupa 12 bytes: um float ou int pode vir logo depois, no mesmo bloco de 16
+    public Std140Writer putVec3(float x, float y, float z) {
+        align(VEC4_SIZE);
+        putComponents(x, y);
+        buffer.putFloat(start + offset, z);
+        offset += SCALAR_SIZE;
+        return this;
+    }
+
+    public Std140Writer putVec3(Vector3f vector) {
+        return putVec3(vector.x, vector.y, vector.z);
+    }
+
+    public Std140Writer putVec4(float x, float y, float z, float w) {
+        align(VEC4_SIZE);
+        putComponents(x, y);
+        putComponents(z, w);
+        return this;
+    }
+
+    // Matriz 4x4 em ordem de colunas (cada coluna é um vec4)
+    public Std140Writer putMat4(Matrix4f matrix) {
+        align(VEC4_SIZE);
+        putComponents(matrix.m00, matrix.m01);
+        putComponents(matrix.m02, matrix.m03);
+        putComponents(matrix.m10, matrix.m11);
+        putComponents(matrix.m12, matrix.m13);
+        putComponents(matrix.m20, matrix.m21);
+        putComponents(matrix.m22, matrix.m23);
+        putComponents(matrix.m30, matrix.m31);
+        putComponents(matrix.m32, matrix.m33);
+        return this;
+    }
+
+    // float[] do GLSL: cada elemento ocupa 16 bytes (só os 4 primeiros são usados)
+    public Std140Writer putFloatArray(float[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            align(VEC4_SIZE);
+            buffer.putFloat(start + offset, values[i]);
+            offset += VEC4_SIZE;
+        }
+        return this;
+    }
+
+    // Início de uma struct (ou de um elemento de um array de structs): alinhado em 16
+    public Std140Writer beginStruct() {
+        align(VEC4_SIZE);
+        return this;
+    }
+
+    // Fim de uma struct: o tamanho é arredondado para múltiplo de 16 (os bytes de preenchimento ficam zerados)
+    public Std140Writer endStruct() {
+        align(VEC4_SIZE);
+        return this;
+    }
+
+    // Pula "count" bytes preenchendo com zero (ex.: elementos não usados de um array)
+    public Std140Writer skip(int count) {
+        fill(offset + count);
+        return this;
+    }
+
+    // Avança até o próximo múltiplo de "alignment", zerando os bytes de preenchimento
+    public Std140Writer align(int alignment) {
+        fill((offset + alignment - 1) / alignment * alignment);
+        return this;
+    }
+
+    // Ajusta a posição do buffer para depois do último byte escrito do bloco (pronto para flip())
+    public void finish() {
+        buffer.position(start + offset);
+    }
+
+    private void putComponents(float x, float y) {
+        buffer.putFloat(start + offset, x);
+        buffer.putFloat(start + offset + SCALAR_SIZE, y);
+        offset += 2 * SCALAR_SIZE;
+    }
+
+    private void fill(int target) {
+        while (offset < target) {
+            buffer.put(start + offset, (byte) 0);
+            offset++;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package toolbox;
+
+/**
+    Monta, em lote, as matrizes de transformação de várias entidades a partir de arrays de estrutura SoA
+    (os mesmos do EntityStore: posições e rotações com 3 floats por entidade, uma escala por entidade,
+    matrizes com 16 floats em ordem de colunas).
+    Na inicialização é escolhida a implementação SIMD (toolbox.simd.VectorTransformBatch, Java Vector API) se ela
+    foi compilada e o módulo jdk.incubator.vector estiver disponível (java --add-modules jdk.incubator.vector);
+    caso contrário é usada a implementação escalar, que chama Maths.storeTransformationMatrix entidade por entidade.
+ */
+public abstract class TransformBatch {
+
+    private static final String VECTOR_IMPLEMENTATION = "toolbox.simd.VectorTransformBatch";
+
+    private static final TransformBatch SCALAR = new Scalar();
+    private static final TransformBatch SELECTED = select();
+
+    // Implementação escolhida na inicialização
+    public static TransformBatch get() {
+        return SELECTED;
+    }
+
+    // Implementação escalar, sempre disponível (útil para comparar resultados e desempenho)
+    public static TransformBatch scalar() {
+        return SCALAR;
+    }
+
+    // Escreve em matrices as matrizes das entidades de índice [from, to)
+    public abstract void build(float[] positions, float[] rotations, float[] scales, float[] matrices, int from, int to);
+
+    // Nome da implementação, para logs e estatísticas
+    public abstract String getName();
+
+    private static TransformBatch select() {
+        try {
+            return (TransformBatch) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            // Pacote SIMD não compilado
+            return SCALAR;
+        } catch (LinkageError e) {
+            // Compilado, mas executando sem o módulo jdk.incubator.vector
+            return SCALAR;
+        }
+    }
+
+    private static class Scalar extends TransformBatch {
+
+        @Override
+        public void build(float[] positions, float[] rotations, float[] scales, float[] matrices, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int p = i * 3;
+                Maths.storeTransformationMatrix(positions[p], positions[p + 1], positions[p + 2],
+                        rotations[p], rotations[p + 1], rotations[p + 2], scales[i], matrices, i * 16);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "escalar";
+        }
+    }
+}
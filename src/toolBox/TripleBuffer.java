@@ -0,0 +1,62 @@
+package toolbox;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+    Buffer triplo sem travas (lock-free) para passar dados de uma thread produtora para uma consumidora.
+    Há três objetos: um pertence ao produtor (onde ele escreve), um ao consumidor (onde ele lê) e um fica no meio.
+    Publicar troca o objeto do produtor com o do meio; adquirir troca o do consumidor com o do meio, se houver algo novo.
+    Nenhuma das threads espera pela outra e nenhuma vê um objeto sendo escrito: enquanto pertence a uma thread,
+    o objeto só é tocado por ela. O consumidor sempre recebe o dado mais recente publicado (os intermediários são pulados).
+    Só funciona com exatamente um produtor e um consumidor.
+ */
+public class TripleBuffer<T> {
+
+    // O estado compartilhado guarda o índice do objeto do meio e um bit que indica se ele ainda não foi lido
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] slots;
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // Índices acessados só pela thread dona
+    private int back = 0;
+    private int front = 2;
+
+    // Os três objetos devem ser distintos; o terceiro é o primeiro a ser lido pelo consumidor
+    public TripleBuffer(T first, T second, T third) {
+        if (first == second || second == third || first == third) {
+            throw new IllegalArgumentException("TripleBuffer precisa de 3 objetos distintos");
+        }
+        this.slots = new Object[] { first, second, third };
+    }
+
+    // Produtor: objeto onde o próximo dado deve ser escrito
+    public T getBack() {
+        return slot(back);
+    }
+
+    // Produtor: publica o objeto de getBack() e recebe outro para escrever
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Consumidor: passa a ler o último objeto publicado, se houver um novo. Retorna true se trocou.
+    public boolean acquire() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    // Consumidor: objeto em leitura (o último adquirido)
+    public T getFront() {
+        return slot(front);
+    }
+
+    // Os slots só recebem objetos T (construtor)
+    @SuppressWarnings("unchecked")
+    private T slot(int index) {
+        return (T) slots[index];
+    }
+}
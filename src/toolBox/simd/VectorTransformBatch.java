@@ -0,0 +1,99 @@
+package toolbox.simd;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import toolbox.Maths;
+import toolbox.TransformBatch;
+
+/**
+    Implementação SIMD do TransformBatch com a Java Vector API (módulo incubado jdk.incubator.vector).
+    Cada bloco processa SPECIES.length() entidades de uma vez: os ângulos são copiados para arrays contíguos
+    (um por eixo), senos, cossenos e as 9 componentes de rotação e escala são calculados por lane, e o resultado
+    é intercalado de volta nas matrizes de 16 floats. Gather/scatter com passo 3 e 16 foram evitados de propósito:
+    além de lentos, derrubavam o C2 do JDK 17 com vetores de 16 lanes (AVX-512).
+    As entidades que sobram no fim do intervalo são montadas pelo caminho escalar.
+    Precisa ser compilada e executada com --add-modules jdk.incubator.vector; sem isso TransformBatch usa o escalar.
+ */
+public class VectorTransformBatch extends TransformBatch {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final float DEGREES_TO_RADIANS = (float) (Math.PI / 180);
+
+    // Arrays temporários de cada thread: 3 blocos de ângulos seguidos de 9 blocos de componentes, LANES floats cada
+    private static final ThreadLocal<float[]> SCRATCH = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[12 * LANES];
+        }
+    };
+
+    @Override
+    public void build(float[] positions, float[] rotations, float[] scales, float[] matrices, int from, int to) {
+        float[] scratch = SCRATCH.get();
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += LANES) {
+            // Separa os ângulos intercalados (x, y, z por entidade) em um bloco contíguo por eixo
+            for (int lane = 0, r = i * 3; lane < LANES; lane++, r += 3) {
+                scratch[lane] = rotations[r];
+                scratch[LANES + lane] = rotations[r + 1];
+                scratch[2 * LANES + lane] = rotations[r + 2];
+            }
+            FloatVector ax = FloatVector.fromArray(SPECIES, scratch, 0).mul(DEGREES_TO_RADIANS);
+            FloatVector ay = FloatVector.fromArray(SPECIES, scratch, LANES).mul(DEGREES_TO_RADIANS);
+            FloatVector az = FloatVector.fromArray(SPECIES, scratch, 2 * LANES).mul(DEGREES_TO_RADIANS);
+            FloatVector sx = ax.lanewise(VectorOperators.SIN);
+            FloatVector cx = ax.lanewise(VectorOperators.COS);
+            FloatVector sy = ay.lanewise(VectorOperators.SIN);
+            FloatVector cy = ay.lanewise(VectorOperators.COS);
+            FloatVector sz = az.lanewise(VectorOperators.SIN);
+            FloatVector cz = az.lanewise(VectorOperators.COS);
+            FloatVector scale = FloatVector.fromArray(SPECIES, scales, i);
+
+            // Mesma forma fechada de Maths.storeTransformationMatrix, uma componente da matriz por bloco
+            FloatVector sxsy = sx.mul(sy);
+            FloatVector cxsy = cx.mul(sy);
+            cy.mul(cz).mul(scale).intoArray(scratch, 3 * LANES);
+            cx.mul(sz).add(sxsy.mul(cz)).mul(scale).intoArray(scratch, 4 * LANES);
+            sx.mul(sz).sub(cxsy.mul(cz)).mul(scale).intoArray(scratch, 5 * LANES);
+            cy.mul(sz).mul(scale).neg().intoArray(scratch, 6 * LANES);
+            cx.mul(cz).sub(sxsy.mul(sz)).mul(scale).intoArray(scratch, 7 * LANES);
+            sx.mul(cz).add(cxsy.mul(sz)).mul(scale).intoArray(scratch, 8 * LANES);
+            sy.mul(scale).intoArray(scratch, 9 * LANES);
+            sx.mul(cy).mul(scale).neg().intoArray(scratch, 10 * LANES);
+            cx.mul(cy).mul(scale).intoArray(scratch, 11 * LANES);
+
+            // Intercala os blocos de volta em matrizes de 16 floats (ordem de colunas)
+            for (int lane = 0, p = i * 3, o = i * 16; lane < LANES; lane++, p += 3, o += 16) {
+                matrices[o] = scratch[3 * LANES + lane];
+                matrices[o + 1] = scratch[4 * LANES + lane];
+                matrices[o + 2] = scratch[5 * LANES + lane];
+                matrices[o + 3] = 0;
+                matrices[o + 4] = scratch[6 * LANES + lane];
+                matrices[o + 5] = scratch[7 * LANES + lane];
+                matrices[o + 6] = scratch[8 * LANES + lane];
+                matrices[o + 7] = 0;
+                matrices[o + 8] = scratch[9 * LANES + lane];
+                matrices[o + 9] = scratch[10 * LANES + lane];
+                matrices[o + 10] = scratch[11 * LANES + lane];
+                matrices[o + 11] = 0;
+                matrices[o + 12] = positions[p];
+                matrices[o + 13] = positions[p + 1];
+                matrices[o + 14] = positions[p + 2];
+                matrices[o + 15] = 1;
+            }
+        }
+        for (; i < to; i++) {
+            int p = i * 3;
+            Maths.storeTransformationMatrix(positions[p], positions[p + 1], positions[p + 2],
+                    rotations[p], rotations[p + 1], rotations[p + 2], scales[i], matrices, i * 16);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "SIMD (" + LANES + " lanes)";
+    }
+}
@@ -0,0 +1,106 @@
+package entities;
+
+import models.RawModel;
+import models.TexturedModel;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import toolbox.TripleBuffer;
+
+/**
+    Confere a passagem da cena da simulação para a renderização: três SceneSnapshot circulam por um TripleBuffer,
+    cada passo é capturado de um EntityStore de simulação e aplicado com applyTo num EntityStore de renderização.
+    Com alpha 0, 0.5 e 1 a posição, a rotação e a escala ficam no passo anterior, no meio e no passo atual; a câmera
+    é interpolada do mesmo jeito e a luz é copiada. Entidades paradas não são marcadas de novo, entidades criadas
+    depois do primeiro passo não são interpoladas e a troca de modelo chega à renderização.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl_util.jar entities.SceneSnapshotCheck
+ */
+public class SceneSnapshotCheck {
+
+    public static void main(String[] args) {
+        EntityStore simulation = new EntityStore();
+        EntityStore render = new EntityStore();
+        Entity still = new Entity(simulation, null, new Vector3f(1, 2, 3), 0, 45, 0, 1);
+        Entity moving = new Entity(simulation, null, new Vector3f(0, 0, 0), 0, 0, 0, 1);
+        Entity renderStill = new Entity(render, null, new Vector3f(), 0, 0, 0, 0);
+        Entity renderMoving = new Entity(render, null, new Vector3f(), 0, 0, 0, 0);
+        Camera camera = new Camera();
+        Camera renderCamera = new Camera();
+        Light light = new Light(new Vector3f(0, 100, 0), new Vector3f(1, 1, 1));
+        Light renderLight = new Light(new Vector3f(), new Vector3f());
+
+        TripleBuffer<SceneSnapshot> buffer = new TripleBuffer<SceneSnapshot>(new SceneSnapshot(), new SceneSnapshot(), new SceneSnapshot());
+        SceneSnapshot last = null;
+        int stillVersion = -1;
+        for (long tick = 0; tick < 10; tick++) {
+            // Simulação: move uma entidade e a câmera, captura e publica
+            if (tick > 0) {
+                moving.increasePosition(2, 0, -4);
+                moving.increaseRotation(0, 10, 0);
+                moving.setScale(moving.getScale() + 0.5f);
+                camera.getPosition().translate(1, 0, 0);
+                camera.setYaw(camera.getYaw() + 6);
+            }
+            light.getPosition().y = 100 + tick;
+            SceneSnapshot snapshot = buffer.getBack();
+            snapshot.capture(last, simulation, camera, light, tick, tick * 1000);
+            buffer.publish();
+            last = snapshot;
+
+            // Renderização: adquire o passo mais recente e aplica três valores de alpha
+            check(buffer.acquire(), "passo " + tick + " não chegou", null);
+            SceneSnapshot front = buffer.getFront();
+            check(front.getTick() == tick && front.getTimeNanos() == tick * 1000, "passo adquirido", front.getTick());
+            check(front.getEntityCount() == 2, "entidades no snapshot", front.getEntityCount());
+            float previous = tick == 0 ? 0 : tick - 1;
+            for (float alpha : new float[] { 0, 0.5f, 1 }) {
+                front.applyTo(render, alpha);
+                front.applyTo(renderCamera, alpha);
+                front.applyTo(renderLight);
+                float step = previous + (tick - previous) * alpha;
+                String what = "passo " + tick + " alpha " + alpha;
+                checkVector(renderMoving.getPosition(), 2 * step, 0, -4 * step, what + ": posição");
+                check(renderMoving.getRotY() == 10 * step, what + ": rotação", renderMoving.getRotY());
+                check(renderMoving.getScale() == 1 + 0.5f * step, what + ": escala", renderMoving.getScale());
+                checkVector(renderStill.getPosition(), 1, 2, 3, what + ": entidade parada");
+                check(renderStill.getRotY() == 45 && renderStill.getScale() == 1, what + ": entidade parada", renderStill.getRotY());
+                checkVector(renderCamera.getPosition(), step, 5, 0, what + ": câmera");
+                check(renderCamera.getYaw() == 6 * step, what + ": yaw da câmera", renderCamera.getYaw());
+                check(renderLight.getPosition().y == 100 + tick, what + ": luz", renderLight.getPosition().y);
+            }
+            // A entidade parada só é marcada na primeira aplicação
+            if (tick == 0) {
+                stillVersion = renderStill.getTransformVersion();
+            }
+            check(renderStill.getTransformVersion() == stillVersion, "entidade parada marcada de novo no passo " + tick,
+                    renderStill.getTransformVersion());
+        }
+
+        // Uma entidade criada agora não tem passo anterior: qualquer alpha dá a posição atual
+        TexturedModel model = new TexturedModel(new RawModel(0, 3), null);
+        new Entity(simulation, model, new Vector3f(50, 0, 50), 0, 0, 0, 2);
+        Entity renderAdded = new Entity(render, null, new Vector3f(), 0, 0, 0, 0);
+        still.setModel(model);
+        SceneSnapshot snapshot = buffer.getBack();
+        snapshot.capture(last, simulation, camera, light, 10, 10000);
+        buffer.publish();
+        check(buffer.acquire() && buffer.getFront().getEntityCount() == 3, "entidade nova no snapshot", buffer.getFront().getEntityCount());
+        buffer.getFront().applyTo(render, 0);
+        checkVector(renderAdded.getPosition(), 50, 0, 50, "entidade nova com alpha 0");
+        check(renderAdded.getScale() == 2 && renderAdded.getModel() == model, "entidade nova", renderAdded.getScale());
+        check(renderStill.getModel() == model, "troca de modelo", renderStill.getModel());
+        checkVector(renderMoving.getPosition(), 18, 0, -36, "entidade em movimento parada no último passo");
+
+        System.out.println("SceneSnapshotCheck: ok");
+    }
+
+    private static void checkVector(Vector3f vector, float x, float y, float z, String what) {
+        check(vector.x == x && vector.y == y && vector.z == z, what, vector);
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package renderEngine;
+
+/**
+    Confere o FrameClock com uma fonte de tempo falsa: delta de cada quadro, limite de MAX_DELTA_SECONDS,
+    percentis (posto mais próximo), máximo e o buffer circular dos últimos quadros.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin renderEngine.FrameClockCheck
+ */
+public class FrameClockCheck {
+
+    // Relógio controlado pela verificação
+    private static class FakeTime implements FrameClock.TimeSource {
+        long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        void advanceMillis(long millis) {
+            now += millis * 1000000L;
+        }
+    }
+
+    public static void main(String[] args) {
+        FakeTime time = new FakeTime();
+        FrameClock clock = new FrameClock(time, 100);
+        check(clock.getPercentileMillis(50) == 0 && clock.getMaxMillis() == 0, "sem quadros", clock.getStatistics());
+
+        // 100 quadros de 1 a 100 ms, fora de ordem
+        for (int i = 0; i < 100; i++) {
+            long millis = (i * 37) % 100 + 1;
+            time.advanceMillis(millis);
+            clock.tick();
+            check(Math.abs(clock.getDeltaSeconds() - millis / 1000f) < 1e-6f, "delta do quadro " + i, clock.getDeltaSeconds());
+        }
+        check(clock.getFrameCount() == 100, "quadros", clock.getFrameCount());
+        check(clock.getPercentileMillis(50) == 50, "p50", clock.getPercentileMillis(50));
+        check(clock.getPercentileMillis(95) == 95, "p95", clock.getPercentileMillis(95));
+        check(clock.getPercentileMillis(99) == 99, "p99", clock.getPercentileMillis(99));
+        check(clock.getPercentileMillis(100) == 100, "p100", clock.getPercentileMillis(100));
+        check(clock.getPercentileMillis(0) == 1, "p0", clock.getPercentileMillis(0));
+        check(clock.getMaxMillis() == 100, "máximo", clock.getMaxMillis());
+
+        // Um quadro longo entra inteiro nas estatísticas, mas o delta fica limitado
+        time.advanceMillis(2000);
+        clock.tick();
+        check(clock.getDeltaSeconds() == FrameClock.MAX_DELTA_SECONDS, "delta limitado", clock.getDeltaSeconds());
+        check(clock.getMaxMillis() == 2000, "máximo com quadro longo", clock.getMaxMillis());
+
+        // O histórico guarda só os últimos 100 quadros: depois de 100 quadros de 5 ms, o quadro longo sai
+        for (int i = 0; i < 100; i++) {
+            time.advanceMillis(5);
+            clock.tick();
+        }
+        check(clock.getMaxMillis() == 5 && clock.getPercentileMillis(99) == 5, "histórico circular", clock.getMaxMillis());
+        check(clock.getFrameCount() == 201, "quadros no total", clock.getFrameCount());
+
+        System.out.println("FrameClockCheck: ok");
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+import entities.Light;
+import toolbox.Std140Writer;
+
+/**
+    Confere se FrameUniformBuffer.write coloca cada membro do bloco FrameData nos deslocamentos que o GLSL espera
+    no layout std140 (os mesmos declarados nas constantes *_OFFSET e no bloco dos shaders).
+    Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl_util.jar renderEngine.FrameUniformBufferCheck
+ */
+public class FrameUniformBufferCheck {
+
+    public static void main(String[] args) {
+        // Deslocamentos calculados à mão a partir das regras do std140
+        check(FrameUniformBuffer.PROJECTION_OFFSET == 0, "projectionMatrix", FrameUniformBuffer.PROJECTION_OFFSET);
+        check(FrameUniformBuffer.VIEW_OFFSET == 64, "viewMatrix", FrameUniformBuffer.VIEW_OFFSET);
+        check(FrameUniformBuffer.INVERSE_VIEW_OFFSET == 128, "inverseViewMatrix", FrameUniformBuffer.INVERSE_VIEW_OFFSET);
+        check(FrameUniformBuffer.CAMERA_POSITION_OFFSET == 192, "cameraPosition", FrameUniformBuffer.CAMERA_POSITION_OFFSET);
+        // O int cabe no espaço que sobra depois do vec3
+        check(FrameUniformBuffer.LIGHT_COUNT_OFFSET == 204, "lightCount", FrameUniformBuffer.LIGHT_COUNT_OFFSET);
+        check(FrameUniformBuffer.LIGHTS_OFFSET == 208, "lights", FrameUniformBuffer.LIGHTS_OFFSET);
+        // struct Light { vec3 position; vec3 colour; }: dois vec3 alinhados em 16
+        check(FrameUniformBuffer.LIGHT_STRIDE == 32, "stride de Light", FrameUniformBuffer.LIGHT_STRIDE);
+        check(FrameUniformBuffer.SIZE == 336, "tamanho do bloco", FrameUniformBuffer.SIZE);
+
+        ByteBuffer buffer = ByteBuffer.allocate(FrameUniformBuffer.SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        // Buffer com lixo, como o reutilizado a cada quadro: o preenchimento e as luzes não usadas devem ser zerados
+        while (buffer.hasRemaining()) {
+            buffer.put((byte) 0x7F);
+        }
+        buffer.clear();
+        Std140Writer writer = new Std140Writer(buffer);
+        Matrix4f projection = new Matrix4f();
+        projection.m23 = -1;
+        Matrix4f view = new Matrix4f();
+        view.m30 = 3;
+        Matrix4f inverseView = new Matrix4f();
+        inverseView.m30 = -3;
+        List<Light> lights = new ArrayList<Light>();
+        lights.add(new Light(new Vector3f(1, 2, 3), new Vector3f(0.5f, 0.6f, 0.7f)));
+        lights.add(new Light(new Vector3f(4, 5, 6), new Vector3f(1, 1, 1)));
+        FrameUniformBuffer.write(writer, projection, view, inverseView, new Vector3f(7, 8, 9), lights);
+
+        // O escritor deve terminar exatamente no fim do bloco
+        check(writer.getOffset() == FrameUniformBuffer.SIZE, "bytes escritos", writer.getOffset());
+        // Matrizes por colunas: m23 é o quarto float da terceira coluna, m30 o primeiro da quarta
+        check(buffer.getFloat(FrameUniformBuffer.PROJECTION_OFFSET + 2 * 16 + 12) == -1, "projectionMatrix.m23",
+                buffer.getFloat(FrameUniformBuffer.PROJECTION_OFFSET + 2 * 16 + 12));
+        check(buffer.getFloat(FrameUniformBuffer.VIEW_OFFSET + 48) == 3, "viewMatrix.m30",
+                buffer.getFloat(FrameUniformBuffer.VIEW_OFFSET + 48));
+        check(buffer.getFloat(FrameUniformBuffer.INVERSE_VIEW_OFFSET + 48) == -3, "inverseViewMatrix.m30",
+                buffer.getFloat(FrameUniformBuffer.INVERSE_VIEW_OFFSET + 48));
+        check(buffer.getFloat(FrameUniformBuffer.CAMERA_POSITION_OFFSET + 8) == 9, "cameraPosition.z",
+                buffer.getFloat(FrameUniformBuffer.CAMERA_POSITION_OFFSET + 8));
+        check(buffer.getInt(FrameUniformBuffer.LIGHT_COUNT_OFFSET) == 2, "lightCount",
+                buffer.getInt(FrameUniformBuffer.LIGHT_COUNT_OFFSET));
+        check(buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET) == 1, "lights[0].position.x",
+                buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET));
+        check(buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + 16 + 8) == 0.7f, "lights[0].colour.b",
+                buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + 16 + 8));
+        check(buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + FrameUniformBuffer.LIGHT_STRIDE + 4) == 5,
+                "lights[1].position.y", buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + FrameUniformBuffer.LIGHT_STRIDE + 4));
+        // Luzes não usadas são zeradas
+        check(buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + 2 * FrameUniformBuffer.LIGHT_STRIDE) == 0,
+                "lights[2]", buffer.getFloat(FrameUniformBuffer.LIGHTS_OFFSET + 2 * FrameUniformBuffer.LIGHT_STRIDE));
+
+        System.out.println("FrameUniformBufferCheck: ok (" + FrameUniformBuffer.SIZE + " bytes)");
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package renderEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+    Confere o FreeListAllocator: first-fit, coalescência dos blocos livres, compactação e crescimento, primeiro em
+    casos pequenos e depois em uma sequência longa de operações sorteadas comparada com um mapa de ocupação
+    unidade por unidade.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin renderEngine.FreeListAllocatorCheck
+ */
+public class FreeListAllocatorCheck {
+
+    public static void main(String[] args) {
+        checkFirstFit();
+        checkCoalescing();
+        checkCompact();
+        checkGrow();
+        checkRandomOperations(new Random(1), 5000);
+        System.out.println("FreeListAllocatorCheck: ok");
+    }
+
+    private static void checkFirstFit() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        check(allocator.allocate(30) == 0, "primeiro bloco", 0);
+        check(allocator.allocate(30) == 30, "segundo bloco", 30);
+        check(allocator.allocate(50) == -1, "bloco maior que o espaço livre", -1);
+        check(allocator.allocate(40) == 60, "bloco que ocupa o resto", 60);
+        check(allocator.getFreeSpace() == 0, "espaço livre", allocator.getFreeSpace());
+        allocator.free(0);
+        // O primeiro buraco em que cabe é usado, mesmo que não seja o menor
+        check(allocator.allocate(10) == 0, "first-fit", 0);
+        check(allocator.getSize(0) == 10, "tamanho do bloco", allocator.getSize(0));
+        check(allocator.getSize(5) == 0, "tamanho fora do início de um bloco", allocator.getSize(5));
+        expectIllegalArgument(allocator, 0);
+        try {
+            allocator.free(5);
+            throw new AssertionError("free de um início inexistente deveria falhar");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void checkCoalescing() {
+        FreeListAllocator allocator = new FreeListAllocator(40);
+        int a = allocator.allocate(10);
+        int b = allocator.allocate(10);
+        int c = allocator.allocate(10);
+        allocator.allocate(10);
+        allocator.free(a);
+        allocator.free(c);
+        check(allocator.getFreeBlockCount() == 2, "blocos livres separados", allocator.getFreeBlockCount());
+        check(allocator.getLargestFreeBlock() == 10, "maior bloco livre", allocator.getLargestFreeBlock());
+        check(allocator.getFragmentation() == 0.5f, "fragmentação", allocator.getFragmentation());
+        // Liberar o bloco do meio junta os três em um só
+        allocator.free(b);
+        check(allocator.getFreeBlockCount() == 1, "blocos livres após juntar", allocator.getFreeBlockCount());
+        check(allocator.getLargestFreeBlock() == 30, "bloco livre após juntar", allocator.getLargestFreeBlock());
+        check(allocator.getFragmentation() == 0, "fragmentação após juntar", allocator.getFragmentation());
+        check(allocator.allocate(30) == 0, "alocação no bloco juntado", 0);
+    }
+
+    private static void checkCompact() {
+        FreeListAllocator allocator = new FreeListAllocator(100);
+        int[] starts = new int[5];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = allocator.allocate(10 + i);
+        }
+        allocator.free(starts[1]);
+        allocator.free(starts[3]);
+        Map<Integer, Integer> moves = allocator.compact();
+        // Os blocos restantes ficam juntos no início, na mesma ordem
+        check(moves.size() == 3, "blocos movidos", moves);
+        check(moves.get(starts[0]) == 0 && moves.get(starts[2]) == 10 && moves.get(starts[4]) == 22, "novos inícios", moves);
+        check(allocator.getSize(0) == 10 && allocator.getSize(10) == 12 && allocator.getSize(22) == 14, "tamanhos após compactar",
+                allocator.getSize(22));
+        check(allocator.getFreeBlockCount() == 1 && allocator.getLargestFreeBlock() == 64, "espaço livre após compactar",
+                allocator.getLargestFreeBlock());
+        allocator.allocate(64);
+        allocator.compact();
+        check(allocator.getFreeBlockCount() == 0, "compactar sem espaço livre", allocator.getFreeBlockCount());
+    }
+
+    private static void checkGrow() {
+        FreeListAllocator allocator = new FreeListAllocator(20);
+        allocator.allocate(15);
+        // O espaço novo se junta ao bloco livre do final
+        allocator.grow(40);
+        check(allocator.getCapacity() == 40, "capacidade", allocator.getCapacity());
+        check(allocator.getFreeBlockCount() == 1 && allocator.getLargestFreeBlock() == 25, "bloco livre do final",
+                allocator.getLargestFreeBlock());
+        check(allocator.allocate(25) == 15, "alocação no espaço novo", 15);
+        // Sem bloco livre no final, o espaço novo vira um bloco novo
+        allocator.grow(50);
+        check(allocator.getLargestFreeBlock() == 10 && allocator.allocate(10) == 40, "bloco novo após crescer",
+                allocator.getLargestFreeBlock());
+        // Capacidade menor ou igual não muda nada
+        allocator.grow(30);
+        check(allocator.getCapacity() == 50 && allocator.getFreeSpace() == 0, "grow com capacidade menor", allocator.getCapacity());
+        // Alocador vazio
+        FreeListAllocator empty = new FreeListAllocator(0);
+        check(empty.allocate(1) == -1, "alocador vazio", -1);
+        empty.grow(8);
+        check(empty.allocate(8) == 0, "alocador vazio após crescer", 0);
+    }
+
+    // Operações sorteadas comparadas com um mapa de ocupação (uma posição por unidade)
+    private static void checkRandomOperations(Random random, int operations) {
+        FreeListAllocator allocator = new FreeListAllocator(1000);
+        List<Boolean> occupied = new ArrayList<Boolean>();
+        for (int i = 0; i < 1000; i++) {
+            occupied.add(false);
+        }
+        // Início -> tamanho dos blocos alocados
+        TreeMap<Integer, Integer> blocks = new TreeMap<Integer, Integer>();
+        for (int operation = 0; operation < operations; operation++) {
+            int choice = random.nextInt(100);
+            if (choice < 55) {
+                int size = 1 + random.nextInt(random.nextBoolean() ? 8 : 80);
+                int expected = firstFit(occupied, size);
+                int start = allocator.allocate(size);
+                check(start == expected, "allocate(" + size + ") na operação " + operation, start + " (esperado " + expected + ")");
+                if (start >= 0) {
+                    for (int i = start; i < start + size; i++) {
+                        occupied.set(i, true);
+                    }
+                    blocks.put(start, size);
+                }
+            } else if (choice < 97) {
+                if (blocks.isEmpty()) {
+                    continue;
+                }
+                List<Integer> starts = new ArrayList<Integer>(blocks.keySet());
+                int start = starts.get(random.nextInt(starts.size()));
+                int size = blocks.remove(start);
+                allocator.free(start);
+                for (int i = start; i < start + size; i++) {
+                    occupied.set(i, false);
+                }
+            } else if (choice < 99) {
+                Map<Integer, Integer> moves = allocator.compact();
+                TreeMap<Integer, Integer> moved = new TreeMap<Integer, Integer>();
+                for (int i = 0; i < occupied.size(); i++) {
+                    occupied.set(i, false);
+                }
+                for (Map.Entry<Integer, Integer> block : blocks.entrySet()) {
+                    int start = moves.get(block.getKey());
+                    moved.put(start, block.getValue());
+                    for (int i = start; i < start + block.getValue(); i++) {
+                        occupied.set(i, true);
+                    }
+                }
+                blocks = moved;
+            } else {
+                int extra = 1 + random.nextInt(100);
+                allocator.grow(allocator.getCapacity() + extra);
+                for (int i = 0; i < extra; i++) {
+                    occupied.add(false);
+                }
+            }
+            checkState(allocator, occupied, blocks, operation);
+        }
+    }
+
+    // Início do primeiro trecho livre com pelo menos "size" unidades, ou -1
+    private static int firstFit(List<Boolean> occupied, int size) {
+        int run = 0;
+        for (int i = 0; i < occupied.size(); i++) {
+            run = occupied.get(i) ? 0 : run + 1;
+            if (run == size) {
+                return i - size + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static void checkState(FreeListAllocator allocator, List<Boolean> occupied, Map<Integer, Integer> blocks, int operation) {
+        int used = 0;
+        int freeRuns = 0;
+        int largest = 0;
+        int run = 0;
+        for (int i = 0; i < occupied.size(); i++) {
+            if (occupied.get(i)) {
+                used++;
+                run = 0;
+            } else {
+                if (run == 0) {
+                    freeRuns++;
+                }
+                run++;
+                largest = Math.max(largest, run);
+            }
+        }
+        String when = " após a operação " + operation;
+        check(allocator.getCapacity() == occupied.size(), "capacidade" + when, allocator.getCapacity());
+        check(allocator.getUsedSpace() == used, "espaço usado" + when, allocator.getUsedSpace());
+        // Blocos livres vizinhos sempre juntos: um bloco por trecho livre
+        check(allocator.getFreeBlockCount() == freeRuns, "blocos livres" + when, allocator.getFreeBlockCount());
+        check(allocator.getLargestFreeBlock() == largest, "maior bloco livre" + when, allocator.getLargestFreeBlock());
+        for (Map.Entry<Integer, Integer> block : blocks.entrySet()) {
+            check(allocator.getSize(block.getKey()) == block.getValue(), "tamanho do bloco " + block.getKey() + when,
+                    allocator.getSize(block.getKey()));
+        }
+    }
+
+    private static void expectIllegalArgument(FreeListAllocator allocator, int size) {
+        try {
+            allocator.allocate(size);
+            throw new AssertionError("allocate(" + size + ") deveria falhar");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package renderEngine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+    Confere o GLStateCache com um backend falso que guarda o estado "real" do OpenGL: depois de cada operação
+    sorteada (programa, VAO, atributos, texturas, capacidades, invalidate, VAO apagado) o estado real deve ser o
+    pedido, e chamadas que não mudam nada não devem chegar ao backend.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl.jar renderEngine.GLStateCacheCheck
+ */
+public class GLStateCacheCheck {
+
+    // Estado do "OpenGL" visto pelo backend
+    private static class FakeGL implements GLStateCache.GLBackend {
+        int program;
+        int vao;
+        int activeUnit;
+        final int[] textures = new int[16];
+        final Map<Integer, Integer> attributes = new HashMap<Integer, Integer>(); // VAO -> bits ativos
+        final Map<Integer, Boolean> capabilities = new HashMap<Integer, Boolean>();
+        int cullFace;
+        boolean depthMask = true;
+        int calls;
+
+        @Override
+        public void useProgram(int program) {
+            this.program = program;
+            calls++;
+        }
+
+        @Override
+        public void bindVertexArray(int vao) {
+            this.vao = vao;
+            calls++;
+        }
+
+        @Override
+        public void setVertexAttribArray(int index, boolean enabled) {
+            int bits = attributes(vao);
+            attributes.put(vao, enabled ? bits | (1 << index) : bits & ~(1 << index));
+            calls++;
+        }
+
+        @Override
+        public void activeTexture(int unit) {
+            activeUnit = unit;
+            calls++;
+        }
+
+        @Override
+        public void bindTexture(int target, int texture) {
+            textures[activeUnit] = texture;
+            calls++;
+        }
+
+        @Override
+        public void setCapability(int capability, boolean enabled) {
+            capabilities.put(capability, enabled);
+            calls++;
+        }
+
+        @Override
+        public void cullFace(int mode) {
+            cullFace = mode;
+            calls++;
+        }
+
+        @Override
+        public void depthMask(boolean enabled) {
+            depthMask = enabled;
+            calls++;
+        }
+
+        int attributes(int vao) {
+            Integer bits = attributes.get(vao);
+            return bits == null ? 0 : bits;
+        }
+    }
+
+    public static void main(String[] args) {
+        checkRedundantCalls();
+        checkInvalidate();
+        checkDeletedVertexArray();
+        checkRandomOperations(new Random(7), 20000);
+        System.out.println("GLStateCacheCheck: ok");
+    }
+
+    private static void checkRedundantCalls() {
+        FakeGL gl = new FakeGL();
+        GLStateCache cache = new GLStateCache(gl);
+        cache.useProgram(3);
+        cache.useProgram(3);
+        cache.bindVertexArray(5);
+        cache.bindVertexArray(5);
+        cache.enableVertexAttribArrays(0x7);
+        cache.enableVertexAttribArrays(0x7);
+        cache.bindTexture(0, 9);
+        cache.bindTexture(0, 9);
+        cache.enable(0x0B44);
+        cache.enable(0x0B44);
+        check(gl.calls == 8, "chamadas repassadas (1 programa, 1 VAO, 3 atributos, unidade e textura, 1 capacidade)", gl.calls);
+        check(cache.getIssuedCalls() == 8, "chamadas contadas", cache.getIssuedCalls());
+        check(cache.getSkippedCalls() == 7, "chamadas puladas (1 programa, 1 VAO, 3 atributos, 1 textura, 1 capacidade)",
+                cache.getSkippedCalls());
+        // Os atributos são do VAO: voltar a um VAO já configurado não reativa nada
+        cache.bindVertexArray(6);
+        cache.bindVertexArray(5);
+        int before = gl.calls;
+        cache.enableVertexAttribArrays(0x7);
+        check(gl.calls == before, "atributos de um VAO já configurado", gl.calls - before);
+        // O VAO 0 já está associado quando o contexto é criado
+        GLStateCache fresh = new GLStateCache(new FakeGL());
+        fresh.bindVertexArray(0);
+        check(fresh.getIssuedCalls() == 0, "VAO 0 no início", fresh.getIssuedCalls());
+    }
+
+    // invalidate() no meio do quadro (ex.: Loader.loadTexture) seguido de mudanças de atributos sem bindVertexArray
+    private static void checkInvalidate() {
+        FakeGL gl = new FakeGL();
+        GLStateCache cache = new GLStateCache(gl);
+        cache.bindVertexArray(4);
+        cache.enableVertexAttribArrays(0x3);
+        cache.useProgram(2);
+        cache.bindTexture(1, 8);
+        cache.invalidate();
+        // Não pode falhar: o VAO continua conhecido
+        cache.setVertexAttribArrays(0x5);
+        cache.enableVertexAttribArrays(0x8);
+        cache.disableVertexAttribArrays(0x1);
+        check(gl.attributes(4) == 0xC, "atributos do VAO após invalidate", gl.attributes(4));
+        cache.bindVertexArray(7);
+        cache.bindVertexArray(4);
+        cache.disableVertexAttribArrays(0x4);
+        check(gl.attributes(4) == 0x8, "atributos guardados após invalidate", gl.attributes(4));
+        // Programa e texturas são repassados de novo mesmo sem mudar
+        int before = gl.calls;
+        cache.useProgram(2);
+        cache.bindTexture(1, 8);
+        check(gl.calls - before == 3, "chamadas após invalidate (programa, unidade e textura)", gl.calls - before);
+    }
+
+    private static void checkDeletedVertexArray() {
+        FakeGL gl = new FakeGL();
+        GLStateCache cache = new GLStateCache(gl);
+        cache.bindVertexArray(4);
+        cache.enableVertexAttribArrays(0x3);
+        // O OpenGL volta ao VAO 0 e pode reutilizar o ID em um VAO novo, sem atributos ativos
+        gl.attributes.remove(4);
+        gl.vao = 0;
+        cache.vertexArrayDeleted(4);
+        cache.bindVertexArray(4);
+        cache.enableVertexAttribArrays(0x3);
+        check(gl.vao == 4 && gl.attributes(4) == 0x3, "VAO com ID reutilizado", gl.attributes(4));
+    }
+
+    // Operações sorteadas; o estado do backend é comparado com o último pedido após cada uma
+    private static void checkRandomOperations(Random random, int operations) {
+        FakeGL gl = new FakeGL();
+        GLStateCache cache = new GLStateCache(gl);
+        int program = 0;
+        int vao = 0;
+        int[] textures = new int[4];
+        Map<Integer, Integer> attributes = new HashMap<Integer, Integer>();
+        Map<Integer, Boolean> capabilities = new HashMap<Integer, Boolean>();
+        for (int operation = 0; operation < operations; operation++) {
+            String name;
+            switch (random.nextInt(9)) {
+            case 0:
+                name = "useProgram";
+                program = 1 + random.nextInt(3);
+                cache.useProgram(program);
+                break;
+            case 1:
+                name = "bindVertexArray";
+                vao = 1 + random.nextInt(6);
+                cache.bindVertexArray(vao);
+                break;
+            case 2: {
+                name = "setVertexAttribArrays";
+                int mask = random.nextInt(16);
+                cache.setVertexAttribArrays(mask);
+                attributes.put(vao, mask);
+                break;
+            }
+            case 3: {
+                name = "enableVertexAttribArrays";
+                int mask = random.nextInt(16);
+                cache.enableVertexAttribArrays(mask);
+                attributes.put(vao, bits(attributes, vao) | mask);
+                break;
+            }
+            case 4: {
+                name = "disableVertexAttribArrays";
+                int mask = random.nextInt(16);
+                cache.disableVertexAttribArrays(mask);
+                attributes.put(vao, bits(attributes, vao) & ~mask);
+                break;
+            }
+            case 5: {
+                name = "bindTexture";
+                int unit = random.nextInt(textures.length);
+                textures[unit] = 1 + random.nextInt(5);
+                cache.bindTexture(unit, textures[unit]);
+                break;
+            }
+            case 6: {
+                name = "enable/disable";
+                int capability = 0x0B44 + random.nextInt(2);
+                boolean enabled = random.nextBoolean();
+                if (enabled) {
+                    cache.enable(capability);
+                } else {
+                    cache.disable(capability);
+                }
+                capabilities.put(capability, enabled);
+                break;
+            }
+            case 7:
+                name = "invalidate";
+                cache.invalidate();
+                break;
+            default: {
+                name = "vertexArrayDeleted";
+                int deleted = 1 + random.nextInt(6);
+                gl.attributes.remove(deleted);
+                if (gl.vao == deleted) {
+                    gl.vao = 0;
+                }
+                cache.vertexArrayDeleted(deleted);
+                attributes.remove(deleted);
+                if (vao == deleted) {
+                    vao = 0;
+                }
+                break;
+            }
+            }
+            String when = " após " + name + " (operação " + operation + ")";
+            check(gl.program == program, "programa" + when, gl.program);
+            check(gl.vao == vao, "VAO" + when, gl.vao);
+            if (vao != 0) {
+                check(gl.attributes(vao) == bits(attributes, vao), "atributos" + when, gl.attributes(vao));
+            }
+            for (int unit = 0; unit < textures.length; unit++) {
+                check(gl.textures[unit] == textures[unit], "textura da unidade " + unit + when, gl.textures[unit]);
+            }
+            check(gl.capabilities.equals(capabilities), "capacidades" + when, gl.capabilities);
+        }
+        check(cache.getIssuedCalls() == gl.calls, "chamadas contadas", cache.getIssuedCalls() + " e " + gl.calls);
+        check(cache.getSkippedCalls() > 0, "chamadas puladas", cache.getSkippedCalls());
+    }
+
+    private static int bits(Map<Integer, Integer> attributes, int vao) {
+        Integer bits = attributes.get(vao);
+        return bits == null ? 0 : bits;
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package renderEngine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import models.ModelData;
+
+/**
+    Confere o MeshOptimizer numa grade com triângulos embaralhados e no stall.obj: o ACMR (cache FIFO de
+    DEFAULT_ACMR_CACHE_SIZE entradas) cai depois de optimizeVertexCache, e optimizeVertexFetch mantém os mesmos
+    triângulos (mesmos atributos, mesmo sentido de rotação), apenas renumerando os vértices.
+    Não precisa de contexto OpenGL. Executar a partir da raiz do projeto com: java -cp bin renderEngine.MeshOptimizerCheck
+ */
+public class MeshOptimizerCheck {
+
+    public static void main(String[] args) {
+        checkMesh("grade embaralhada", shuffledGrid(64, new Random(42)));
+        checkMesh("stall.obj", OBJLoader.loadObjData("stall"));
+        System.out.println("MeshOptimizerCheck: ok");
+    }
+
+    private static void checkMesh(String name, ModelData data) {
+        int[] indices = data.getIndices();
+        int vertexCount = data.getVertices().length / 3;
+        float before = MeshOptimizer.computeACMR(indices, MeshOptimizer.DEFAULT_ACMR_CACHE_SIZE);
+
+        int[] optimized = MeshOptimizer.optimizeVertexCache(indices, vertexCount);
+        float after = MeshOptimizer.computeACMR(optimized, MeshOptimizer.DEFAULT_ACMR_CACHE_SIZE);
+        check(optimized.length == indices.length, name + ": quantidade de índices", optimized.length);
+        check(after < before, name + ": ACMR antes -> depois", before + " -> " + after);
+        check(triangles(data, indices).equals(triangles(data, optimized)), name + ": optimizeVertexCache muda os triângulos", null);
+
+        ModelData fetched = MeshOptimizer.optimizeVertexFetch(data, optimized);
+        check(triangles(data, optimized).equals(triangles(fetched, fetched.getIndices())),
+                name + ": optimizeVertexFetch muda os triângulos", null);
+        // A renumeração segue a ordem de primeiro uso, então o ACMR não muda
+        float fetchedAcmr = MeshOptimizer.computeACMR(fetched.getIndices(), MeshOptimizer.DEFAULT_ACMR_CACHE_SIZE);
+        check(fetchedAcmr == after, name + ": ACMR depois do optimizeVertexFetch", fetchedAcmr);
+        // Primeiro uso em ordem crescente: nenhum índice salta além do próximo vértice ainda não usado
+        int next = 0;
+        for (int index : fetched.getIndices()) {
+            check(index <= next, name + ": ordem de primeiro uso", index);
+            if (index == next) {
+                next++;
+            }
+        }
+        check(next == fetched.getVertices().length / 3, name + ": vértices sem uso", next);
+    }
+
+    // Grade n x n de quads (dois triângulos cada), com a ordem dos triângulos embaralhada
+    private static ModelData shuffledGrid(int n, Random random) {
+        int side = n + 1;
+        float[] vertices = new float[side * side * 3];
+        float[] textureCoords = new float[side * side * 2];
+        float[] normals = new float[side * side * 3];
+        for (int z = 0; z < side; z++) {
+            for (int x = 0; x < side; x++) {
+                int v = z * side + x;
+                vertices[v * 3] = x;
+                vertices[v * 3 + 1] = (x * 7 + z * 3) % 5;
+                vertices[v * 3 + 2] = z;
+                textureCoords[v * 2] = (float) x / n;
+                textureCoords[v * 2 + 1] = (float) z / n;
+                normals[v * 3 + 1] = 1;
+            }
+        }
+        List<int[]> triangles = new ArrayList<int[]>();
+        for (int z = 0; z < n; z++) {
+            for (int x = 0; x < n; x++) {
+                int topLeft = z * side + x;
+                int bottomLeft = topLeft + side;
+                triangles.add(new int[] { topLeft, bottomLeft, topLeft + 1 });
+                triangles.add(new int[] { topLeft + 1, bottomLeft, bottomLeft + 1 });
+            }
+        }
+        Collections.shuffle(triangles, random);
+        int[] indices = new int[triangles.size() * 3];
+        for (int i = 0; i < triangles.size(); i++) {
+            System.arraycopy(triangles.get(i), 0, indices, i * 3, 3);
+        }
+        return new ModelData(vertices, textureCoords, normals, indices);
+    }
+
+    // Lista ordenada dos triângulos descritos pelos atributos dos vértices; cada triângulo é rotacionado
+    // para começar pelo menor canto, o que ignora a numeração e a ordem dos triângulos mas não o sentido de rotação
+    private static List<String> triangles(ModelData data, int[] indices) {
+        List<String> result = new ArrayList<String>(indices.length / 3);
+        for (int i = 0; i < indices.length; i += 3) {
+            String a = corner(data, indices[i]);
+            String b = corner(data, indices[i + 1]);
+            String c = corner(data, indices[i + 2]);
+            if (b.compareTo(a) < 0 && b.compareTo(c) < 0) {
+                result.add(b + c + a);
+            } else if (c.compareTo(a) < 0 && c.compareTo(b) < 0) {
+                result.add(c + a + b);
+            } else {
+                result.add(a + b + c);
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static String corner(ModelData data, int v) {
+        float[] p = data.getVertices();
+        float[] t = data.getTextureCoords();
+        float[] n = data.getNormals();
+        return "[" + p[v * 3] + " " + p[v * 3 + 1] + " " + p[v * 3 + 2] + " " + t[v * 2] + " " + t[v * 2 + 1]
+                + " " + n[v * 3] + " " + n[v * 3 + 1] + " " + n[v * 3 + 2] + "]";
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
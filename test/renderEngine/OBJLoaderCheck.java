@@ -0,0 +1,100 @@
+package renderEngine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import models.ModelData;
+
+/**
+    Regressão da soldagem de vértices do OBJLoader em stall.obj, tree.obj e Cube.obj: quantidade de vértices
+    soldados (um por trio v/vt/vn distinto) e de índices, e cada canto de triângulo com a mesma posição, textura
+    e normal que um leitor de referência simples (String.split, sem soldagem) encontra no arquivo.
+    Não precisa de contexto OpenGL. Executar a partir da raiz do projeto com: java -cp bin renderEngine.OBJLoaderCheck
+ */
+public class OBJLoaderCheck {
+
+    public static void main(String[] args) throws IOException {
+        checkModel("stall", 629, 1878);
+        checkModel("tree", 624, 930);
+        checkModel("Cube", 24, 36);
+        System.out.println("OBJLoaderCheck: ok");
+    }
+
+    private static void checkModel(String fileName, int expectedVertices, int expectedIndices) throws IOException {
+        ModelData data = OBJLoader.loadObjData(fileName);
+        int vertexCount = data.getVertices().length / 3;
+        check(vertexCount == expectedVertices, fileName + ": vértices soldados", vertexCount);
+        check(data.getTextureCoords().length == vertexCount * 2, fileName + ": coordenadas de textura", data.getTextureCoords().length);
+        check(data.getNormals().length == vertexCount * 3, fileName + ": normais", data.getNormals().length);
+        check(data.getIndices().length == expectedIndices, fileName + ": índices", data.getIndices().length);
+
+        List<String> keys = new ArrayList<String>();
+        List<String> corners = referenceCorners(fileName, keys);
+        check(corners.size() == expectedIndices, fileName + ": cantos da referência", corners.size());
+        check(new HashSet<String>(keys).size() == expectedVertices, fileName + ": trios v/vt/vn distintos", new HashSet<String>(keys).size());
+        // Cada canto aponta para um vértice com os mesmos atributos do arquivo, e trios iguais usam o mesmo índice
+        Set<Integer> used = new HashSet<Integer>();
+        for (int i = 0; i < corners.size(); i++) {
+            int index = data.getIndices()[i];
+            check(corner(data, index).equals(corners.get(i)), fileName + ": canto " + i, corner(data, index) + " != " + corners.get(i));
+            check(keys.indexOf(keys.get(i)) == i || data.getIndices()[keys.indexOf(keys.get(i))] == index, fileName + ": soldagem do canto " + i, index);
+            used.add(index);
+        }
+        check(used.size() == vertexCount, fileName + ": vértices sem uso", vertexCount - used.size());
+    }
+
+    // Lê o OBJ linha a linha e devolve os atributos de cada canto na ordem de rotação do OBJLoader (1, 3, 2),
+    // com a textura invertida no eixo y; em keys ficam os trios "v/vt/vn" de cada canto
+    private static List<String> referenceCorners(String fileName, List<String> keys) throws IOException {
+        List<float[]> positions = new ArrayList<float[]>();
+        List<float[]> textures = new ArrayList<float[]>();
+        List<float[]> normals = new ArrayList<float[]>();
+        List<String> corners = new ArrayList<String>();
+        for (String line : Files.readAllLines(Paths.get("res/" + fileName + ".obj"))) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts[0].equals("v")) {
+                positions.add(new float[] { Float.parseFloat(parts[1]), Float.parseFloat(parts[2]), Float.parseFloat(parts[3]) });
+            } else if (parts[0].equals("vt")) {
+                textures.add(new float[] { Float.parseFloat(parts[1]), 1 - Float.parseFloat(parts[2]) });
+            } else if (parts[0].equals("vn")) {
+                normals.add(new float[] { Float.parseFloat(parts[1]), Float.parseFloat(parts[2]), Float.parseFloat(parts[3]) });
+            } else if (parts[0].equals("f")) {
+                for (int k : new int[] { 1, 3, 2 }) {
+                    String[] ids = parts[k].split("/");
+                    float[] p = positions.get(Integer.parseInt(ids[0]) - 1);
+                    float[] t = textures.get(Integer.parseInt(ids[1]) - 1);
+                    float[] n = normals.get(Integer.parseInt(ids[2]) - 1);
+                    keys.add(parts[k]);
+                    corners.add(format(p[0], p[1], p[2], t[0], t[1], n[0], n[1], n[2]));
+                }
+            }
+        }
+        return corners;
+    }
+
+    private static String corner(ModelData data, int v) {
+        float[] p = data.getVertices();
+        float[] t = data.getTextureCoords();
+        float[] n = data.getNormals();
+        return format(p[v * 3], p[v * 3 + 1], p[v * 3 + 2], t[v * 2], t[v * 2 + 1], n[v * 3], n[v * 3 + 1], n[v * 3 + 2]);
+    }
+
+    private static String format(float... values) {
+        StringBuilder builder = new StringBuilder();
+        for (float value : values) {
+            builder.append(value).append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package renderEngine;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+    Confere a RenderQueue: a ordenação (radix sort) dá a mesma ordem que Arrays.sort e é estável, a fila ordenada
+    pede menos trocas de estado que a fila na ordem de entrada (contadas pelo RecordingRenderBackend), e texturas ou
+    malhas com IDs muito distantes nunca dividem o mesmo campo da chave.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl.jar renderEngine.RenderQueueCheck
+ */
+public class RenderQueueCheck {
+
+    public static void main(String[] args) {
+        checkSortAndStateChanges(new Random(1), 20000);
+        checkKeyCollisions();
+        System.out.println("RenderQueueCheck: ok");
+    }
+
+    // Cena sorteada: 16 texturas, 4 VAOs com 40 modelos, 10% de terrenos, profundidades aleatórias
+    private static void checkSortAndStateChanges(Random random, int count) {
+        RenderQueue queue = new RenderQueue();
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int shader = random.nextInt(10) == 0 ? RenderQueue.SHADER_TERRAIN : RenderQueue.SHADER_STATIC;
+            int texture = queue.textureKey(1 + random.nextInt(16));
+            int mesh = queue.meshKey(1 + random.nextInt(4), random.nextInt(40));
+            keys[i] = RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, shader, texture, mesh, random.nextInt(RenderQueue.MAX_DEPTH + 1));
+            queue.add(keys[i], Integer.valueOf(i));
+        }
+        RecordingRenderBackend backend = new RecordingRenderBackend();
+        queue.execute(backend);
+        int unsortedChanges = backend.getStateChanges();
+        check(backend.getDraws() == count, "desenhos", backend.getDraws());
+
+        queue.sort();
+        backend.reset();
+        queue.execute(backend);
+        check(backend.getDraws() == count, "desenhos após sort", backend.getDraws());
+        // Cada shader, textura e malha distintos são ativados uma única vez por grupo
+        check(backend.getShaderChanges() == 2, "trocas de shader após sort", backend.getShaderChanges());
+        check(backend.getTextureChanges() <= 2 * 16, "trocas de textura após sort", backend.getTextureChanges());
+        check(backend.getMeshChanges() <= 2 * 16 * 160, "trocas de malha após sort", backend.getMeshChanges());
+        check(backend.getStateChanges() * 4 < unsortedChanges, "trocas de estado antes e depois de sort",
+                unsortedChanges + " e " + backend.getStateChanges());
+
+        long[] expected = keys.clone();
+        Arrays.sort(expected);
+        for (int i = 0; i < count; i++) {
+            check(queue.getKey(i) == expected[i], "chave " + i + " após sort", Long.toHexString(queue.getKey(i)));
+            // Itens com a mesma chave mantêm a ordem de entrada
+            if (i > 0 && queue.getKey(i) == queue.getKey(i - 1)) {
+                check((Integer) queue.getItem(i) > (Integer) queue.getItem(i - 1), "estabilidade na posição " + i, queue.getItem(i));
+            }
+        }
+        System.out.println("RenderQueueCheck: " + count + " itens, trocas de estado " + unsortedChanges + " -> "
+                + backend.getStateChanges());
+    }
+
+    // IDs que só diferem acima dos bits dos campos não podem produzir "nada mudou" entre itens diferentes
+    private static void checkKeyCollisions() {
+        RenderQueue queue = new RenderQueue();
+        int mesh = queue.meshKey(1, 1);
+        queue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_STATIC, queue.textureKey(1), mesh, 0), "a");
+        queue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_STATIC, queue.textureKey(1 + 65536), mesh, 0), "b");
+        queue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_STATIC, queue.textureKey(1 + 65536),
+                queue.meshKey(1 + (1 << 24), 1), 0), "c");
+        queue.add(RenderQueue.makeKey(RenderQueue.PASS_OPAQUE, RenderQueue.SHADER_STATIC, queue.textureKey(1 + 65536),
+                queue.meshKey(1, 1 + (1 << 24)), 0), "d");
+        final int[] changes = new int[4];
+        queue.execute(new RenderQueue.RenderBackend() {
+            private int index;
+
+            @Override
+            public void draw(long key, Object item, int itemChanges) {
+                changes[index++] = itemChanges;
+            }
+        });
+        check((changes[1] & RenderQueue.TEXTURE_CHANGED) != 0, "texturas 1 e 65537", changes[1]);
+        check((changes[2] & RenderQueue.TEXTURE_CHANGED) == 0 && (changes[2] & RenderQueue.MESH_CHANGED) != 0,
+                "VAOs 1 e 16777217", changes[2]);
+        check((changes[3] & RenderQueue.MESH_CHANGED) != 0, "modelos 1 e 16777217", changes[3]);
+        // Depois de clear() os índices recomeçam
+        queue.clear();
+        check(queue.textureKey(1 + 65536) == 0 && queue.meshKey(1, 1 + (1 << 24)) == 0, "índices após clear()", "diferentes de 0");
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package renderEngine;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.lwjgl.opengl.GL11;
+
+/**
+	Confere os limites de erro do VertexQuantizer: posições em unorm16 (no máximo meio passo de extent / 65535
+	por eixo), ida e volta exata de todos os half floats que não são NaN e erro relativo de no máximo 2^-11 (~4.9e-4) para
+	floats aleatórios, normais em 10-10-10-2 (no máximo meio passo de 1 / 511 por componente) e os limites de
+	chooseIndexType / packIndices.
+	Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl.jar renderEngine.VertexQuantizerCheck
+ */
+public class VertexQuantizerCheck {
+
+	public static void main(String[] args) {
+		Random random = new Random(7);
+		checkPositions(random);
+		checkHalfFloats(random);
+		checkNormals(random);
+		checkIndexTypes();
+		System.out.println("VertexQuantizerCheck: ok");
+	}
+
+	private static void checkPositions(Random random) {
+		int vertexCount = 5000;
+		float[] positions = new float[vertexCount * 3];
+		float[] textureCoords = new float[vertexCount * 2];
+		float[] normals = new float[vertexCount * 3];
+		for (int i = 0; i < positions.length; i += 3) {
+			positions[i] = -40 + random.nextFloat() * 90;
+			positions[i + 1] = random.nextFloat() * 3;
+			positions[i + 2] = 1000 + random.nextFloat() * 0.5f;
+			normals[i + 1] = 1;
+		}
+		float[] bounds = VertexQuantizer.computeBounds(positions);
+		ByteBuffer buffer = VertexQuantizer.quantizeVertices(positions, textureCoords, normals, bounds);
+		check(buffer.remaining() == vertexCount * VertexQuantizer.VERTEX_SIZE, "tamanho do vertex buffer", buffer.remaining());
+		for (int i = 0; i < vertexCount; i++) {
+			for (int axis = 0; axis < 3; axis++) {
+				float min = bounds[axis];
+				float extent = bounds[axis + 3];
+				float value = positions[i * 3 + axis];
+				short stored = buffer.getShort(i * VertexQuantizer.VERTEX_SIZE + VertexQuantizer.POSITION_OFFSET + axis * 2);
+				check(stored == VertexQuantizer.encodeUnorm16(value, min, extent), "posição no buffer " + i, stored);
+				// Meio passo de quantização, mais a precisão do próprio float na magnitude da coordenada
+				float bound = extent / 65535 / 2 + Math.ulp(Math.abs(min) + extent) * 2;
+				float error = Math.abs(VertexQuantizer.decodeUnorm16(stored, min, extent) - value);
+				check(error <= bound, "erro da posição " + i + " eixo " + axis + " (limite " + bound + ")", error);
+			}
+		}
+		// Os extremos da caixa voltam exatos, e valores fora dela são limitados à caixa
+		check(VertexQuantizer.decodeUnorm16(VertexQuantizer.encodeUnorm16(-2, -2, 8), -2, 8) == -2, "mínimo", null);
+		check(VertexQuantizer.decodeUnorm16(VertexQuantizer.encodeUnorm16(6, -2, 8), -2, 8) == 6, "máximo", null);
+		check(VertexQuantizer.encodeUnorm16(7, -2, 8) == (short) 0xFFFF, "acima da caixa", VertexQuantizer.encodeUnorm16(7, -2, 8));
+		check(VertexQuantizer.encodeUnorm16(-3, -2, 8) == 0, "abaixo da caixa", VertexQuantizer.encodeUnorm16(-3, -2, 8));
+		// Um eixo sem variação usa extent 1 para não dividir por zero
+		float[] flat = VertexQuantizer.computeBounds(new float[] { 1, 5, 2, 3, 5, 2 });
+		check(flat[4] == 1 && flat[5] == 1 && flat[3] == 2, "caixa de eixo plano", flat[3] + " " + flat[4] + " " + flat[5]);
+	}
+
+	private static void checkHalfFloats(Random random) {
+		// Todo half (zeros, subnormais, normais e infinitos) sobrevive à ida e volta; NaN continua NaN, mas o
+		// Float.floatToIntBits usado em floatToHalf troca qualquer NaN pelo NaN canônico
+		for (int half = 0; half <= 0xFFFF; half++) {
+			short back = VertexQuantizer.floatToHalf(VertexQuantizer.halfToFloat((short) half));
+			if ((half & 0x7C00) == 0x7C00 && (half & 0x3FF) != 0) {
+				check((back & 0x7C00) == 0x7C00 && (back & 0x3FF) != 0, "NaN 0x" + Integer.toHexString(half), Integer.toHexString(back & 0xFFFF));
+			} else {
+				check((back & 0xFFFF) == half, "ida e volta do half 0x" + Integer.toHexString(half), Integer.toHexString(back & 0xFFFF));
+			}
+		}
+		// Na faixa normal (2^-14 a 65504) o arredondamento ao mais próximo erra no máximo 2^-11 relativo
+		float relativeBound = 1f / 2048;
+		for (int i = 0; i < 200000; i++) {
+			float value = (float) Math.pow(2, -14 + random.nextDouble() * 29.9);
+			if (random.nextBoolean()) {
+				value = -value;
+			}
+			float back = VertexQuantizer.halfToFloat(VertexQuantizer.floatToHalf(value));
+			float error = Math.abs(back - value) / Math.abs(value);
+			check(error <= relativeBound, "erro relativo do half para " + value, error);
+		}
+		// Coordenadas de textura em [0, 1]: abaixo de 2^-14 o half é subnormal, com passo absoluto de 2^-24
+		for (int i = 0; i < 100000; i++) {
+			float value = i == 0 ? 0 : random.nextFloat() * (i % 2 == 0 ? 1 : 1e-4f);
+			float back = VertexQuantizer.halfToFloat(VertexQuantizer.floatToHalf(value));
+			float error = Math.abs(back - value);
+			check(error <= Math.max(value * relativeBound, 0x1p-25f), "erro do half para " + value, error);
+		}
+		check(VertexQuantizer.halfToFloat(VertexQuantizer.floatToHalf(1e6f)) == Float.POSITIVE_INFINITY, "overflow", null);
+		check(VertexQuantizer.halfToFloat(VertexQuantizer.floatToHalf(65504)) == 65504, "maior half", null);
+	}
+
+	private static void checkNormals(Random random) {
+		float componentBound = 0.5f / 511 + 1e-6f;
+		for (int i = 0; i < 100000; i++) {
+			float x = (float) random.nextGaussian();
+			float y = (float) random.nextGaussian();
+			float z = (float) random.nextGaussian();
+			float length = (float) Math.sqrt(x * x + y * y + z * z);
+			x /= length;
+			y /= length;
+			z /= length;
+			int packed = VertexQuantizer.packNormal(x, y, z);
+			check((packed >>> 30) == 0, "w da normal", packed >>> 30);
+			float[] back = VertexQuantizer.unpackNormal(packed);
+			float error = Math.max(Math.abs(back[0] - x), Math.max(Math.abs(back[1] - y), Math.abs(back[2] - z)));
+			check(error <= componentBound, "erro da normal (" + x + ", " + y + ", " + z + ")", error);
+		}
+		// Os eixos e o zero voltam exatos
+		float[] axes = VertexQuantizer.unpackNormal(VertexQuantizer.packNormal(-1, 0, 1));
+		check(axes[0] == -1 && axes[1] == 0 && axes[2] == 1, "eixos", axes[0] + " " + axes[1] + " " + axes[2]);
+	}
+
+	private static void checkIndexTypes() {
+		check(VertexQuantizer.chooseIndexType(1) == GL11.GL_UNSIGNED_BYTE, "1 vértice", VertexQuantizer.chooseIndexType(1));
+		check(VertexQuantizer.chooseIndexType(256) == GL11.GL_UNSIGNED_BYTE, "256 vértices", VertexQuantizer.chooseIndexType(256));
+		check(VertexQuantizer.chooseIndexType(257) == GL11.GL_UNSIGNED_SHORT, "257 vértices", VertexQuantizer.chooseIndexType(257));
+		check(VertexQuantizer.chooseIndexType(65536) == GL11.GL_UNSIGNED_SHORT, "65536 vértices", VertexQuantizer.chooseIndexType(65536));
+		check(VertexQuantizer.chooseIndexType(65537) == GL11.GL_UNSIGNED_INT, "65537 vértices", VertexQuantizer.chooseIndexType(65537));
+
+		// O maior índice de cada tipo sobrevive ao empacotamento
+		ByteBuffer bytes = VertexQuantizer.packIndices(new int[] { 0, 255 }, GL11.GL_UNSIGNED_BYTE);
+		check(bytes.remaining() == 2 && (bytes.get(1) & 0xFF) == 255, "índices de 8 bits", bytes.get(1) & 0xFF);
+		ByteBuffer shorts = VertexQuantizer.packIndices(new int[] { 0, 65535 }, GL11.GL_UNSIGNED_SHORT);
+		check(shorts.remaining() == 4 && (shorts.getShort(2) & 0xFFFF) == 65535, "índices de 16 bits", shorts.getShort(2) & 0xFFFF);
+		ByteBuffer ints = VertexQuantizer.packIndices(new int[] { 0, 65536 }, GL11.GL_UNSIGNED_INT);
+		check(ints.remaining() == 8 && ints.getInt(4) == 65536, "índices de 32 bits", ints.getInt(4));
+	}
+
+	private static void check(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new AssertionError(what + ": " + actual);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package terrains;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+	Confere todas as variantes (nível e máscara de costura) de GeomipmapIndices: cada variante cobre o patch inteiro
+	sem sobreposição (área total igual à do patch), todos os triângulos têm a mesma orientação da malha completa e
+	as únicas arestas sem par estão no contorno do patch (nenhum buraco dentro do patch).
+	Não precisa de contexto OpenGL. Executar com: java -cp bin terrains.GeomipmapIndicesCheck
+ */
+public class GeomipmapIndicesCheck {
+
+	public static void main(String[] args) {
+		// Grade padrão dos terrenos e uma grade maior que um patch só
+		checkTable(Terrain.getDefaultVertexCount(), TerrainLod.PATCH_QUADS);
+		checkTable(257, TerrainLod.PATCH_QUADS);
+		checkTable(129, 32);
+		System.out.println("GeomipmapIndicesCheck: ok");
+	}
+
+	private static void checkTable(int rowStride, int patchQuads) {
+		GeomipmapIndices table = new GeomipmapIndices(rowStride, patchQuads);
+		int[] indices = table.getIndices();
+		for (int level = 0; level < table.getLevelCount(); level++) {
+			for (int mask = 0; mask < GeomipmapIndices.MASK_COUNT; mask++) {
+				String variant = "patch " + patchQuads + ", nível " + level + ", máscara " + mask;
+				int offset = table.getOffset(level, mask);
+				int count = table.getCount(level, mask);
+				check(count % 3 == 0, variant + ": quantidade de índices", count);
+				// Aresta orientada (de -> para) -> quantas vezes aparece
+				Map<Long, Integer> edges = new HashMap<Long, Integer>();
+				long doubleArea = 0;
+				for (int triangle = offset; triangle < offset + count; triangle += 3) {
+					long triangleArea = 0;
+					for (int corner = 0; corner < 3; corner++) {
+						int from = indices[triangle + corner];
+						int to = indices[triangle + (corner + 1) % 3];
+						triangleArea += (long) (from % rowStride) * (to / rowStride) - (long) (to % rowStride) * (from / rowStride);
+						Long edge = ((long) from << 32) | to;
+						Integer times = edges.get(edge);
+						edges.put(edge, times == null ? 1 : times + 1);
+					}
+					// Mesma orientação dos triângulos de TerrainMesh (área com sinal negativo em x/z), nenhum degenerado
+					check(triangleArea < 0, variant + ": triângulo " + (triangle - offset) / 3 + " com área", triangleArea);
+					doubleArea -= triangleArea;
+				}
+				check(doubleArea == 2L * patchQuads * patchQuads, variant + ": área total (x2)", doubleArea);
+				for (Map.Entry<Long, Integer> entry : edges.entrySet()) {
+					long from = entry.getKey() >>> 32;
+					long to = entry.getKey() & 0xFFFFFFFFL;
+					check(entry.getValue() == 1, variant + ": aresta repetida", from + "-" + to);
+					if (!edges.containsKey((to << 32) | from)) {
+						// Aresta sem o triângulo do outro lado: só pode estar no contorno do patch
+						int fromX = (int) (from % rowStride);
+						int fromZ = (int) (from / rowStride);
+						int toX = (int) (to % rowStride);
+						int toZ = (int) (to / rowStride);
+						boolean onBorder = (fromX == toX && (fromX == 0 || fromX == patchQuads))
+								|| (fromZ == toZ && (fromZ == 0 || fromZ == patchQuads));
+						check(onBorder, variant + ": aresta aberta dentro do patch",
+								"(" + fromX + ", " + fromZ + ")-(" + toX + ", " + toZ + ")");
+					}
+				}
+			}
+		}
+	}
+
+	private static void check(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new AssertionError(what + ": " + actual);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package terrains;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.lwjgl.util.vector.Vector3f;
+
+import models.RawModel;
+import renderEngine.Loader;
+
+/**
+	Procura rachaduras (T-junctions) entre patches vizinhos, dentro de um terreno e na divisa entre terrenos:
+	em cada divisa, os vértices dos triângulos dos dois lados que ficam sobre a divisa devem ser os mesmos.
+	Os níveis são escolhidos por TerrainLod.select, como no jogo, com câmeras e limites de erro sorteados.
+	Também confere que patches vizinhos nunca diferem em mais de um nível.
+	Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl.jar;lib/jars/lwjgl_util.jar terrains.TerrainLodCheck
+ */
+public class TerrainLodCheck {
+
+	// Terrenos em uma grade GRID x GRID
+	private static final int GRID = 2;
+	private static final int FRAMES = 500;
+	// Bordas de um patch
+	private static final int NORTH = 0;
+	private static final int EAST = 1;
+	private static final int SOUTH = 2;
+	private static final int WEST = 3;
+
+	public static void main(String[] args) {
+		// Loader que não envia nada para a GPU: o terreno só precisa do RawModel
+		Loader loader = new Loader() {
+			@Override
+			public RawModel loadToVAO(float[] positions, float[] textureCoords, float[] normals, int[] indices) {
+				return new RawModel(0, indices.length);
+			}
+		};
+		HeightGenerator generator = new HeightGenerator(42, 40, 24);
+		List<Terrain> terrains = new ArrayList<Terrain>();
+		for (int gridZ = 0; gridZ < GRID; gridZ++) {
+			for (int gridX = 0; gridX < GRID; gridX++) {
+				TerrainMesh mesh = TerrainMesh.generate(generator, Terrain.getDefaultVertexCount(), gridX, gridZ,
+						Terrain.getSize(), null);
+				terrains.add(new Terrain(gridX, gridZ, loader, null, mesh));
+			}
+		}
+		int patchesPerSide = (Terrain.getDefaultVertexCount() - 1) / TerrainLod.PATCH_QUADS;
+		int globalPatches = GRID * patchesPerSide;
+
+		Random random = new Random(1);
+		Vector3f camera = new Vector3f();
+		long boundaries = 0;
+		long stitchedBoundaries = 0;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			float extent = GRID * Terrain.getSize();
+			camera.set(random.nextFloat() * extent * 1.5f - extent * 0.25f, random.nextFloat() * 300,
+					random.nextFloat() * extent * 1.5f - extent * 0.25f);
+			// Escala de uma tela de 720 linhas com 70 graus de campo de visão; o limite de erro varia bastante para
+			// misturar todos os níveis
+			float pixelScale = 360 / (float) Math.tan(Math.toRadians(35));
+			float maxPixelError = 0.25f + random.nextFloat() * 16;
+			TerrainLod.select(terrains, camera, pixelScale, maxPixelError);
+
+			for (int z = 0; z < globalPatches; z++) {
+				for (int x = 0; x < globalPatches; x++) {
+					// Divisa leste (com o patch x + 1) e divisa sul (com o patch z + 1)
+					if (x + 1 < globalPatches) {
+						stitchedBoundaries += checkBoundary(terrains, patchesPerSide, x, z, x + 1, z) ? 1 : 0;
+						boundaries++;
+					}
+					if (z + 1 < globalPatches) {
+						stitchedBoundaries += checkBoundary(terrains, patchesPerSide, x, z, x, z + 1) ? 1 : 0;
+						boundaries++;
+					}
+				}
+			}
+		}
+		// Sem divisas entre níveis diferentes a verificação não testaria a costura
+		check(stitchedBoundaries > 0, "divisas entre níveis diferentes", stitchedBoundaries);
+		System.out.println("TerrainLodCheck: ok (" + boundaries + " divisas, " + stitchedBoundaries + " entre níveis diferentes)");
+	}
+
+	// Confere a divisa entre o patch (x, z) e o patch (otherX, otherZ) a leste ou ao sul dele, em coordenadas de patch
+	// da grade de terrenos. Retorna se os níveis dos dois lados são diferentes.
+	private static boolean checkBoundary(List<Terrain> terrains, int patchesPerSide, int x, int z, int otherX, int otherZ) {
+		boolean east = otherX != x;
+		int level = level(terrains, patchesPerSide, x, z);
+		int otherLevel = level(terrains, patchesPerSide, otherX, otherZ);
+		String where = "patches (" + x + ", " + z + ") e (" + otherX + ", " + otherZ + ")";
+		check(Math.abs(level - otherLevel) <= 1, where + ": níveis", level + " e " + otherLevel);
+		Set<Integer> vertices = edgeVertices(terrains, patchesPerSide, x, z, east ? EAST : SOUTH);
+		Set<Integer> otherVertices = edgeVertices(terrains, patchesPerSide, otherX, otherZ, east ? WEST : NORTH);
+		check(vertices.equals(otherVertices), where + ": vértices da divisa", vertices + " e " + otherVertices);
+		return level != otherLevel;
+	}
+
+	private static TerrainLod lodAt(List<Terrain> terrains, int patchesPerSide, int x, int z) {
+		return terrains.get((z / patchesPerSide) * GRID + x / patchesPerSide).getLod();
+	}
+
+	private static int patchAt(int patchesPerSide, int x, int z) {
+		return (z % patchesPerSide) * patchesPerSide + x % patchesPerSide;
+	}
+
+	private static int level(List<Terrain> terrains, int patchesPerSide, int x, int z) {
+		return lodAt(terrains, patchesPerSide, x, z).getLevel(patchAt(patchesPerSide, x, z));
+	}
+
+	// Posições (em vértices da grade global, ao longo da borda) dos vértices das arestas de triângulos do patch
+	// que ficam sobre a borda na direção informada
+	private static Set<Integer> edgeVertices(List<Terrain> terrains, int patchesPerSide, int x, int z, int direction) {
+		TerrainLod lod = lodAt(terrains, patchesPerSide, x, z);
+		int patch = patchAt(patchesPerSide, x, z);
+		int rowStride = Terrain.getDefaultVertexCount();
+		int quads = TerrainLod.PATCH_QUADS;
+		int[] indices = lod.getIndices().getIndices();
+		int offset = lod.getIndexOffset(patch);
+		int count = lod.getIndexCount(patch);
+		Set<Integer> vertices = new TreeSet<Integer>();
+		for (int triangle = offset; triangle < offset + count; triangle += 3) {
+			for (int corner = 0; corner < 3; corner++) {
+				int from = indices[triangle + corner];
+				int to = indices[triangle + (corner + 1) % 3];
+				int fromX = from % rowStride;
+				int fromZ = from / rowStride;
+				int toX = to % rowStride;
+				int toZ = to / rowStride;
+				switch (direction) {
+				case NORTH:
+				case SOUTH:
+					int borderZ = direction == NORTH ? 0 : quads;
+					if (fromZ == borderZ && toZ == borderZ) {
+						vertices.add(x * quads + fromX);
+						vertices.add(x * quads + toX);
+					}
+					break;
+				default:
+					int borderX = direction == WEST ? 0 : quads;
+					if (fromX == borderX && toX == borderX) {
+						vertices.add(z * quads + fromZ);
+						vertices.add(z * quads + toZ);
+					}
+				}
+			}
+		}
+		return vertices;
+	}
+
+	private static void check(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new AssertionError(what + ": " + actual);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package terrains;
+
+import java.util.Arrays;
+
+import toolbox.JobSystem;
+
+/**
+	Confere que TerrainMesh.generate monta exatamente a mesma malha (alturas, vértices, normais, coordenadas de
+	textura e índices, bit a bit) na thread atual e distribuída em faixas de linhas entre 2, 4 e 8 threads, e que as
+	alturas são as mesmas de HeightMap.generate. Usa grades com e sem níveis de detalhe (TerrainLod).
+	Não precisa de contexto OpenGL. Executar com: java -cp bin terrains.TerrainMeshCheck
+ */
+public class TerrainMeshCheck {
+
+	private static final int[] VERTEX_COUNTS = { 128, 129, 513 };
+	private static final int[] THREADS = { 2, 4, 8 };
+
+	public static void main(String[] args) {
+		HeightGenerator generator = new HeightGenerator(42, 40, 24);
+		for (int vertexCount : VERTEX_COUNTS) {
+			// Terreno (1, -1): coordenadas negativas também passam pelo gerador
+			TerrainMesh reference = TerrainMesh.generate(generator, vertexCount, 1, -1, Terrain.getSize(), null);
+			HeightMap heights = HeightMap.generate(generator, vertexCount, 1, -1);
+			for (int z = 0; z < vertexCount; z++) {
+				for (int x = 0; x < vertexCount; x++) {
+					check(Float.floatToIntBits(reference.getHeightMap().getHeight(x, z)) == Float.floatToIntBits(heights.getHeight(x, z)),
+							vertexCount + " vértices: altura (" + x + ", " + z + ") diferente de HeightMap.generate",
+							reference.getHeightMap().getHeight(x, z));
+				}
+			}
+			check((reference.getLod() != null) == TerrainLod.supports(vertexCount), vertexCount + " vértices: TerrainLod",
+					reference.getLod());
+			for (int threads : THREADS) {
+				JobSystem jobs = new JobSystem(threads);
+				try {
+					TerrainMesh mesh = TerrainMesh.generate(generator, vertexCount, 1, -1, Terrain.getSize(), jobs);
+					String what = vertexCount + " vértices, " + threads + " threads: ";
+					check(Arrays.equals(reference.getVertices(), mesh.getVertices()), what + "posições", "diferentes");
+					check(Arrays.equals(reference.getNormals(), mesh.getNormals()), what + "normais", "diferentes");
+					check(Arrays.equals(reference.getTextureCoords(), mesh.getTextureCoords()), what + "coordenadas de textura",
+							"diferentes");
+					check(Arrays.equals(reference.getIndices(), mesh.getIndices()), what + "índices", "diferentes");
+					if (reference.getLod() != null) {
+						check(Arrays.equals(reference.getLod().getIndices().getIndices(), mesh.getLod().getIndices().getIndices()),
+								what + "índices dos níveis de detalhe", "diferentes");
+					}
+				} finally {
+					jobs.shutdown();
+				}
+			}
+		}
+		System.out.println("TerrainMeshCheck: ok");
+	}
+
+	private static void check(boolean condition, String what, Object actual) {
+		if (!condition) {
+			throw new AssertionError(what + ": " + actual);
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package toolbox;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.lwjgl.util.vector.Matrix4f;
+
+/**
+    Confere os deslocamentos e os valores escritos pelo Std140Writer contra as regras do layout std140.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin;lib/jars/lwjgl_util.jar toolbox.Std140WriterCheck
+ */
+public class Std140WriterCheck {
+
+    public static void main(String[] args) {
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        Std140Writer writer = new Std140Writer(buffer);
+
+        // float em 0
+        writer.putFloat(1);
+        check(writer.getOffset() == 4, "float", writer.getOffset());
+        // vec3 alinhado em 16: ocupa [16, 28)
+        writer.putVec3(2, 3, 4);
+        check(writer.getOffset() == 28, "vec3", writer.getOffset());
+        // float logo depois do vec3, no espaço que sobra do vec4
+        writer.putFloat(5);
+        check(writer.getOffset() == 32, "float após vec3", writer.getOffset());
+        // vec2 alinhado em 8
+        writer.putVec2(6, 7);
+        check(writer.getOffset() == 40, "vec2", writer.getOffset());
+        // vec4 alinhado em 16: ocupa [48, 64)
+        writer.putVec4(8, 9, 10, 11);
+        check(writer.getOffset() == 64, "vec4", writer.getOffset());
+        // mat4: 4 colunas vec4
+        Matrix4f matrix = new Matrix4f();
+        matrix.m30 = 12;
+        writer.putMat4(matrix);
+        check(writer.getOffset() == 128, "mat4", writer.getOffset());
+        // float[2]: cada elemento ocupa 16 bytes
+        writer.putFloatArray(new float[] { 13, 14 }, 2);
+        check(writer.getOffset() == 160, "float[2]", writer.getOffset());
+        // struct { vec3; float; }: começa e termina alinhada em 16
+        writer.beginStruct().putVec3(15, 16, 17).putFloat(18).endStruct();
+        check(writer.getOffset() == 176, "struct", writer.getOffset());
+        writer.putInt(19);
+        writer.finish();
+
+        check(buffer.getFloat(0) == 1, "valor do float", buffer.getFloat(0));
+        check(buffer.getFloat(16) == 2, "valor do vec3", buffer.getFloat(16));
+        check(buffer.getFloat(28) == 5, "valor do float após vec3", buffer.getFloat(28));
+        check(buffer.getFloat(32) == 6, "valor do vec2", buffer.getFloat(32));
+        check(buffer.getFloat(48) == 8, "valor do vec4", buffer.getFloat(48));
+        // A translação (m30) fica na primeira linha da quarta coluna
+        check(buffer.getFloat(64 + 48) == 12, "valor do mat4", buffer.getFloat(64 + 48));
+        check(buffer.getFloat(144) == 14, "segundo elemento do array", buffer.getFloat(144));
+        check(buffer.getFloat(172) == 18, "float da struct", buffer.getFloat(172));
+        check(buffer.getInt(176) == 19, "int após a struct", buffer.getInt(176));
+        check(buffer.position() == 180, "posição após finish()", buffer.position());
+
+        System.out.println("Std140WriterCheck: ok");
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package toolbox;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.lwjgl.util.vector.Matrix4f;
+import org.lwjgl.util.vector.Vector3f;
+
+/**
+    Confere as implementações do TransformBatch contra Maths.createTransformationMatrix: o caminho escalar tem de
+    ser idêntico bit a bit, e o SIMD (toolbox.simd.VectorTransformBatch) fica dentro de uma tolerância, já que calcula
+    senos e cossenos em float. Intervalos [from, to) desalinhados cobrem as entidades que sobram no fim do bloco SIMD.
+    A parte SIMD só roda quando o pacote foi compilado (game.bat buildSimd) e a JVM tem o módulo incubado; caso
+    contrário ela é pulada com um aviso.
+    Não precisa de contexto OpenGL. Executar com: java [--add-modules jdk.incubator.vector] -cp bin;lib/jars/lwjgl_util.jar toolbox.TransformBatchCheck
+ */
+public class TransformBatchCheck {
+
+    private static final String VECTOR_IMPLEMENTATION = "toolbox.simd.VectorTransformBatch";
+
+    // Erro absoluto aceito por componente do caminho SIMD, multiplicado pela escala da entidade
+    private static final float SIMD_TOLERANCE = 1e-5f;
+
+    public static void main(String[] args) {
+        Random random = new Random(11);
+        int count = 1000;
+        float[] positions = new float[count * 3];
+        float[] rotations = new float[count * 3];
+        float[] scales = new float[count];
+        for (int i = 0; i < count; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                positions[i * 3 + axis] = (random.nextFloat() - 0.5f) * 1600;
+                rotations[i * 3 + axis] = (random.nextFloat() - 0.5f) * 1440;
+            }
+            scales[i] = 0.1f + random.nextFloat() * 5;
+        }
+        // Ângulos exatos (0, 90, 180...) também precisam conferir
+        for (int i = 0; i < 24; i++) {
+            rotations[i * 3] = (i % 8) * 90;
+            rotations[i * 3 + 1] = -(i % 5) * 180;
+            rotations[i * 3 + 2] = (i % 3) * 270;
+        }
+        float[] expected = expectedMatrices(positions, rotations, scales, count);
+
+        checkImplementation(TransformBatch.scalar(), positions, rotations, scales, expected, 0);
+        TransformBatch vector = vectorImplementation();
+        if (vector != null) {
+            checkImplementation(vector, positions, rotations, scales, expected, SIMD_TOLERANCE);
+            check(TransformBatch.get().getClass() == vector.getClass(), "implementação escolhida", TransformBatch.get().getName());
+        } else {
+            check(TransformBatch.get() == TransformBatch.scalar(), "implementação escolhida", TransformBatch.get().getName());
+            System.out.println("TransformBatchCheck: caminho SIMD indisponível, só o escalar foi conferido");
+        }
+        System.out.println("TransformBatchCheck: ok (" + TransformBatch.get().getName() + ")");
+    }
+
+    // Matrizes de referência montadas entidade por entidade com Maths.createTransformationMatrix (ordem de colunas)
+    private static float[] expectedMatrices(float[] positions, float[] rotations, float[] scales, int count) {
+        float[] matrices = new float[count * 16];
+        Matrix4f matrix = new Matrix4f();
+        Vector3f translation = new Vector3f();
+        for (int i = 0; i < count; i++) {
+            int p = i * 3;
+            translation.set(positions[p], positions[p + 1], positions[p + 2]);
+            Maths.createTransformationMatrix(translation, rotations[p], rotations[p + 1], rotations[p + 2], scales[i], matrix);
+            float[] m = {
+                matrix.m00, matrix.m01, matrix.m02, matrix.m03,
+                matrix.m10, matrix.m11, matrix.m12, matrix.m13,
+                matrix.m20, matrix.m21, matrix.m22, matrix.m23,
+                matrix.m30, matrix.m31, matrix.m32, matrix.m33 };
+            System.arraycopy(m, 0, matrices, i * 16, 16);
+        }
+        return matrices;
+    }
+
+    // Monta o lote inteiro e alguns intervalos desalinhados; tolerance 0 exige igualdade bit a bit
+    private static void checkImplementation(TransformBatch batch, float[] positions, float[] rotations, float[] scales,
+            float[] expected, float tolerance) {
+        int count = scales.length;
+        int[][] ranges = { { 0, count }, { 3, 3 + 37 }, { 1, 2 }, { 5, count - 7 }, { count - 3, count } };
+        for (int[] range : ranges) {
+            float[] matrices = new float[count * 16];
+            Arrays.fill(matrices, Float.NaN);
+            batch.build(positions, rotations, scales, matrices, range[0], range[1]);
+            for (int i = 0; i < count * 16; i++) {
+                int entity = i / 16;
+                String what = batch.getName() + " [" + range[0] + ", " + range[1] + ") entidade " + entity + " componente " + (i % 16);
+                if (entity < range[0] || entity >= range[1]) {
+                    check(Float.isNaN(matrices[i]), what + " fora do intervalo", matrices[i]);
+                } else if (tolerance == 0) {
+                    check(Float.floatToIntBits(matrices[i]) == Float.floatToIntBits(expected[i]), what, matrices[i] + " != " + expected[i]);
+                } else {
+                    float error = Math.abs(matrices[i] - expected[i]);
+                    check(error <= tolerance * scales[entity], what, matrices[i] + " != " + expected[i]);
+                }
+            }
+        }
+    }
+
+    // Instancia a implementação SIMD, ou null se o pacote não foi compilado ou o módulo não está disponível
+    private static TransformBatch vectorImplementation() {
+        try {
+            return (TransformBatch) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package toolbox;
+
+import java.util.Random;
+
+/**
+    Confere a troca de objetos do TripleBuffer: objetos distintos no construtor, o consumidor começa pelo terceiro,
+    acquire() só troca quando há algo publicado, os intermediários são pulados e os três objetos nunca se repetem entre
+    produtor, meio e consumidor. Depois roda um produtor e um consumidor em threads separadas e confere que o
+    consumidor nunca lê um objeto pela metade e que os números de sequência só aumentam.
+    Não precisa de contexto OpenGL. Executar com: java -cp bin toolbox.TripleBufferCheck
+ */
+public class TripleBufferCheck {
+
+    private static final int PUBLISHES = 2000000;
+
+    // Dado de teste: a sequência é gravada duas vezes, então um objeto lido pela metade não confere
+    private static class Frame {
+        long sequence = -1;
+        long copy = -1;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        checkConstructor();
+        checkHandOff();
+        checkThreads();
+        System.out.println("TripleBufferCheck: ok");
+    }
+
+    private static void checkConstructor() {
+        Frame frame = new Frame();
+        boolean rejected = false;
+        try {
+            new TripleBuffer<Frame>(frame, new Frame(), frame);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "objetos repetidos aceitos", null);
+    }
+
+    private static void checkHandOff() {
+        Frame first = new Frame();
+        Frame second = new Frame();
+        Frame third = new Frame();
+        TripleBuffer<Frame> buffer = new TripleBuffer<Frame>(first, second, third);
+        check(buffer.getBack() == first && buffer.getFront() == third, "objetos iniciais", null);
+        check(!buffer.acquire() && buffer.getFront() == third, "acquire sem nada publicado", null);
+
+        buffer.getBack().sequence = 1;
+        buffer.publish();
+        check(buffer.getBack() == second, "objeto do produtor depois de publicar", null);
+        check(buffer.acquire() && buffer.getFront() == first && buffer.getFront().sequence == 1, "primeira troca", buffer.getFront().sequence);
+        check(!buffer.acquire() && buffer.getFront() == first, "acquire repetido", null);
+
+        // Dois passos publicados antes do acquire: o consumidor recebe só o último
+        for (long sequence = 2; sequence <= 3; sequence++) {
+            buffer.getBack().sequence = sequence;
+            buffer.publish();
+        }
+        check(buffer.acquire() && buffer.getFront().sequence == 3, "passo intermediário não foi pulado", buffer.getFront().sequence);
+
+        // Em qualquer sequência de operações o produtor e o consumidor nunca apontam para o mesmo objeto
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; i++) {
+            if (random.nextBoolean()) {
+                buffer.publish();
+            } else {
+                buffer.acquire();
+            }
+            check(buffer.getBack() != buffer.getFront(), "produtor e consumidor com o mesmo objeto", i);
+        }
+    }
+
+    private static void checkThreads() throws InterruptedException {
+        final TripleBuffer<Frame> buffer = new TripleBuffer<Frame>(new Frame(), new Frame(), new Frame());
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long sequence = 0; sequence < PUBLISHES; sequence++) {
+                    Frame frame = buffer.getBack();
+                    frame.sequence = sequence;
+                    frame.copy = sequence;
+                    buffer.publish();
+                }
+            }
+        });
+        producer.start();
+        long last = -1;
+        long acquired = 0;
+        while (last < PUBLISHES - 1) {
+            if (!buffer.acquire()) {
+                continue;
+            }
+            Frame frame = buffer.getFront();
+            check(frame.sequence == frame.copy, "objeto lido pela metade", frame.sequence + " / " + frame.copy);
+            check(frame.sequence > last, "sequência voltou", last + " -> " + frame.sequence);
+            last = frame.sequence;
+            acquired++;
+        }
+        producer.join();
+        check(!buffer.acquire(), "publicação sobrando depois da última", null);
+        check(acquired > 0 && acquired <= PUBLISHES, "trocas", acquired);
+    }
+
+    private static void check(boolean condition, String what, Object actual) {
+        if (!condition) {
+            throw new AssertionError(what + ": " + actual);
+        }
+    }
+}